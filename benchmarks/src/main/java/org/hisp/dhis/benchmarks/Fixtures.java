@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.benchmarks;
+
+import com.google.gson.stream.JsonWriter;
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import org.hisp.dhis.recording.Exchange;
+import org.hisp.dhis.recording.ReplayStubServer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * Response fixtures in the shape DHIS2 returns them. Fixtures are served
+ * once by a {@link ReplayStubServer} and fully read, so benchmarks work on
+ * real Rest-Assured responses without network access.
+ */
+class Fixtures
+{
+    private static final String[] TRACKER_TYPES = { "TRACKED_ENTITY", "ENROLLMENT", "EVENT" };
+
+    private Fixtures()
+    {
+    }
+
+    /**
+     * Fetches the json through Rest-Assured and reads the body.
+     */
+    static Response response( String json )
+    {
+        Exchange exchange = new Exchange( System.currentTimeMillis(), 0, "GET", "/fixture", null, null, null, 200,
+            "application/json;charset=UTF-8", json.getBytes( StandardCharsets.UTF_8 ) );
+
+        try ( ReplayStubServer server = ReplayStubServer.start( Collections.singletonList( exchange ), false ) )
+        {
+            Response response = RestAssured.given().baseUri( server.getBaseUri() ).get( "/fixture" );
+            response.asByteArray();
+
+            return response;
+        }
+    }
+
+    static String metadataCreated()
+    {
+        return write( writer -> {
+            writer.beginObject()
+                .name( "httpStatus" ).value( "Created" )
+                .name( "httpStatusCode" ).value( 201 )
+                .name( "status" ).value( "OK" )
+                .name( "response" ).beginObject()
+                .name( "responseType" ).value( "ObjectReport" )
+                .name( "uid" ).value( uid( 0 ) )
+                .name( "klass" ).value( "org.hisp.dhis.dataelement.DataElement" )
+                .name( "errorReports" ).beginArray().endArray()
+                .endObject()
+                .endObject();
+        } );
+    }
+
+    static String metadataCollection( String resource, int size )
+    {
+        return write( writer -> {
+            writer.beginObject()
+                .name( "pager" ).beginObject()
+                .name( "page" ).value( 1 )
+                .name( "total" ).value( size )
+                .name( "pageSize" ).value( size )
+                .endObject()
+                .name( resource ).beginArray();
+
+            for ( int i = 0; i < size; i++ )
+            {
+                writer.beginObject()
+                    .name( "id" ).value( uid( i ) )
+                    .name( "name" ).value( "Data element " + i )
+                    .name( "shortName" ).value( "DE " + i )
+                    .name( "valueType" ).value( "NUMBER" )
+                    .name( "aggregationType" ).value( "SUM" )
+                    .endObject();
+            }
+
+            writer.endArray().endObject();
+        } );
+    }
+
+    /**
+     * Import report of a successful tracker import. A tenth of the objects
+     * are tracked entities, a tenth enrollments and the rest events.
+     */
+    static String trackerImportReport( int objects )
+    {
+        int[] counts = { objects / 10, objects / 10, objects - 2 * (objects / 10) };
+
+        return write( writer -> {
+            writer.beginObject()
+                .name( "status" ).value( "OK" )
+                .name( "validationReport" ).beginObject()
+                .name( "errorReports" ).beginArray().endArray()
+                .name( "warningReports" ).beginArray().endArray()
+                .endObject();
+            stats( writer, objects );
+            writer.name( "bundleReport" ).beginObject()
+                .name( "status" ).value( "OK" )
+                .name( "typeReportMap" ).beginObject();
+
+            int index = 0;
+
+            for ( int type = 0; type < TRACKER_TYPES.length; type++ )
+            {
+                writer.name( TRACKER_TYPES[type] ).beginObject()
+                    .name( "trackerType" ).value( TRACKER_TYPES[type] );
+                stats( writer, counts[type] );
+                writer.name( "objectReports" ).beginArray();
+
+                for ( int i = 0; i < counts[type]; i++ )
+                {
+                    writer.beginObject()
+                        .name( "trackerType" ).value( TRACKER_TYPES[type] )
+                        .name( "uid" ).value( uid( index ) )
+                        .name( "index" ).value( i )
+                        .name( "errorReports" ).beginArray().endArray()
+                        .endObject();
+                    index++;
+                }
+
+                writer.endArray().endObject();
+            }
+
+            writer.endObject();
+            stats( writer, objects );
+            writer.endObject().endObject();
+        } );
+    }
+
+    private static void stats( JsonWriter writer, int created )
+        throws IOException
+    {
+        writer.name( "stats" ).beginObject()
+            .name( "created" ).value( created )
+            .name( "updated" ).value( 0 )
+            .name( "deleted" ).value( 0 )
+            .name( "ignored" ).value( 0 )
+            .name( "total" ).value( created )
+            .endObject();
+    }
+
+    private static String uid( int index )
+    {
+        return String.format( "a%010d", index );
+    }
+
+    private static String write( JsonContent content )
+    {
+        StringWriter out = new StringWriter();
+
+        try ( JsonWriter writer = new JsonWriter( out ) )
+        {
+            content.write( writer );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return out.toString();
+    }
+
+    @FunctionalInterface
+    private interface JsonContent
+    {
+        void write( JsonWriter writer )
+            throws IOException;
+    }
+}
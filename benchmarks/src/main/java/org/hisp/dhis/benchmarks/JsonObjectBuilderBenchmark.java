@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.benchmarks;
+
+import com.google.gson.JsonObject;
+import org.hisp.dhis.utils.JsonObjectBuilder;
+import org.hisp.dhis.utils.StreamingJsonObjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds and serializes a tracker payload of events, in memory and
+ * streamed.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class JsonObjectBuilderBenchmark
+{
+    @Param( { "1", "100" } )
+    public int events;
+
+    @Benchmark
+    public String buildAndSerialize()
+    {
+        JsonObject[] array = new JsonObject[events];
+
+        for ( int i = 0; i < events; i++ )
+        {
+            array[i] = event( i );
+        }
+
+        return new JsonObjectBuilder()
+            .addArray( "events", array )
+            .build()
+            .toString();
+    }
+
+    @Benchmark
+    public String stream()
+    {
+        StringWriter writer = new StringWriter();
+
+        StreamingJsonObjectBuilder.jsonObject( writer )
+            .addArray( "events", events, ( builder, i ) -> builder
+                .addProperty( "event", "eventUid" + i )
+                .addProperty( "program", "programUid1" )
+                .addProperty( "programStage", "stageUid001" )
+                .addProperty( "orgUnit", "orgUnitUid1" )
+                .addProperty( "occurredAt", "2022-01-01" )
+                .addProperty( "status", "COMPLETED" ) )
+            .build();
+
+        return writer.toString();
+    }
+
+    private JsonObject event( int i )
+    {
+        return new JsonObjectBuilder()
+            .addProperty( "event", "eventUid" + i )
+            .addProperty( "program", "programUid1" )
+            .addProperty( "programStage", "stageUid001" )
+            .addProperty( "orgUnit", "orgUnitUid1" )
+            .addProperty( "occurredAt", "2022-01-01" )
+            .addProperty( "status", "COMPLETED" )
+            .build();
+    }
+}
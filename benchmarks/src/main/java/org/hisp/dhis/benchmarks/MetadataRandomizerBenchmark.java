@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.benchmarks;
+
+import com.google.gson.JsonElement;
+import org.hisp.dhis.response.dto.schemas.PropertyType;
+import org.hisp.dhis.response.dto.schemas.SchemaProperty;
+import org.hisp.dhis.utils.MetadataRandomizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Value generation for the property types that do not need a server.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class MetadataRandomizerBenchmark
+{
+    private SchemaProperty text;
+
+    private SchemaProperty number;
+
+    private SchemaProperty date;
+
+    private SchemaProperty constant;
+
+    private SchemaProperty bool;
+
+    @Setup
+    public void setUp()
+    {
+        text = property( "name", PropertyType.STRING, 1, 230 );
+        number = property( "sortOrder", PropertyType.NUMBER, 0, 1000 );
+        date = property( "openingDate", PropertyType.DATE, 0, 0 );
+        bool = property( "compulsory", PropertyType.BOOLEAN, 0, 0 );
+        constant = property( "valueType", PropertyType.CONSTANT, 0, 0 );
+        constant.setConstants( Arrays.asList( "TEXT", "NUMBER", "INTEGER", "BOOLEAN", "DATE" ) );
+    }
+
+    @Benchmark
+    public JsonElement text()
+    {
+        return MetadataRandomizer.generateRandomValueMatchingSchema( text );
+    }
+
+    @Benchmark
+    public JsonElement number()
+    {
+        return MetadataRandomizer.generateRandomValueMatchingSchema( number );
+    }
+
+    @Benchmark
+    public JsonElement date()
+    {
+        return MetadataRandomizer.generateRandomValueMatchingSchema( date );
+    }
+
+    @Benchmark
+    public JsonElement bool()
+    {
+        return MetadataRandomizer.generateRandomValueMatchingSchema( bool );
+    }
+
+    @Benchmark
+    public JsonElement constant()
+    {
+        return MetadataRandomizer.generateRandomValueMatchingSchema( constant );
+    }
+
+    private static SchemaProperty property( String name, PropertyType propertyType, double min, double max )
+    {
+        SchemaProperty property = new SchemaProperty();
+        property.setName( name );
+        property.setPropertyType( propertyType );
+        property.setMin( min );
+        property.setMax( max );
+        property.setRequired( true );
+
+        return property;
+    }
+}
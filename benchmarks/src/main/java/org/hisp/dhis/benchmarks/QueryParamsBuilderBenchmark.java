@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.benchmarks;
+
+import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.request.QueryParamsTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class QueryParamsBuilderBenchmark
+{
+    private QueryParamsBuilder builder;
+
+    private QueryParamsTemplate template;
+
+    private int page;
+
+    @Setup
+    public void setUp()
+    {
+        builder = params();
+        template = params().template( "page" );
+    }
+
+    @Benchmark
+    public String buildNew()
+    {
+        return params().build();
+    }
+
+    @Benchmark
+    public String buildCached()
+    {
+        return builder.build();
+    }
+
+    @Benchmark
+    public String buildAfterUpdate()
+    {
+        return builder.addOrUpdate( "page", String.valueOf( ++page ) ).build();
+    }
+
+    @Benchmark
+    public String buildTemplate()
+    {
+        return template.build( String.valueOf( ++page ) );
+    }
+
+    @Benchmark
+    public String buildTemplateEncoded()
+    {
+        return template.buildEncoded( String.valueOf( ++page ) );
+    }
+
+    private static QueryParamsBuilder params()
+    {
+        return new QueryParamsBuilder()
+            .add( "fields=id,name,attributes[attribute,value]" )
+            .add( "program=IpHINAT79UW" )
+            .add( "orgUnit=DiszpKrYNg8" )
+            .add( "ouMode=DESCENDANTS" )
+            .add( "pageSize=50" )
+            .add( "page=1" );
+    }
+}
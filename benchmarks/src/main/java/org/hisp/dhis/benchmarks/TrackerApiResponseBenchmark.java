@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.benchmarks;
+
+import io.restassured.response.ValidatableResponse;
+import org.hisp.dhis.response.dto.ApiResponse;
+import org.hisp.dhis.response.dto.TrackerApiResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation and extraction of tracker import reports, from a single
+ * object up to a 100k object import. Every operation wraps the response
+ * anew, as every import returns its own report.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2, time = 5 )
+@Measurement( iterations = 3, time = 5 )
+@Fork( value = 1, jvmArgsAppend = "-Xmx4g" )
+@State( Scope.Benchmark )
+public class TrackerApiResponseBenchmark
+{
+    @Param( { "10", "10000", "100000" } )
+    public int objects;
+
+    private ApiResponse response;
+
+    @Setup
+    public void setUp()
+    {
+        response = new ApiResponse( Fixtures.response( Fixtures.trackerImportReport( objects ) ) );
+    }
+
+    @Benchmark
+    public TrackerApiResponse validateSuccessfulImport()
+    {
+        return new TrackerApiResponse( response ).validateSuccessfulImport();
+    }
+
+    @Benchmark
+    public ValidatableResponse validateEvents()
+    {
+        return new TrackerApiResponse( response ).validateEvents();
+    }
+
+    @Benchmark
+    public List<String> extractImportedEvents()
+    {
+        return new TrackerApiResponse( response ).extractImportedEvents();
+    }
+
+    @Benchmark
+    public List<String> extractImportedTeis()
+    {
+        return new TrackerApiResponse( response ).extractImportedTeis();
+    }
+
+    @Benchmark
+    public String extractUid()
+    {
+        return new TrackerApiResponse( response ).extractUid();
+    }
+}
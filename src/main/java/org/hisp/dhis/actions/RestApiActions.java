@@ -31,12 +31,27 @@ package org.hisp.dhis.actions;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import io.restassured.mapper.ObjectMapperType;
+import io.restassured.response.Response;
 import io.restassured.specification.RequestSpecification;
 import org.hamcrest.Matchers;
+import org.hisp.dhis.helpers.TestRunStorage;
+import org.hisp.dhis.recording.TimingLog;
 import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.request.UrlEncoding;
+import org.hisp.dhis.response.BodySampler;
 import org.hisp.dhis.response.dto.ApiResponse;
+import org.hisp.dhis.response.dto.ResponseSummary;
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+import org.hisp.dhis.transport.ConcurrencyLimiter;
+import org.hisp.dhis.transport.HedgingPolicy;
+import org.hisp.dhis.transport.HttpTransport;
+import org.hisp.dhis.transport.ResponseCache;
+import org.hisp.dhis.transport.SingleFlight;
+import org.hisp.dhis.transport.TransportRequest;
 
 import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
 * @author Gintare Vilkelyte
@@ -44,10 +59,26 @@ import java.io.File;
  */
 public class RestApiActions
 {
+    private static volatile TimingLog timingLog;
+
     private String endpoint;
 
     private String baseUri;
 
+    private BodySampler bodySampler = BodySampler.never();
+
+    private HttpTransport transport;
+
+    private ResponseCache responseCache;
+
+    private SingleFlight singleFlight;
+
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    private HedgingPolicy hedgingPolicy;
+
+    private volatile TimingEndpoints timingEndpoints;
+
     public RestApiActions( final String endpoint )
     {
         this.baseUri = RestAssured.baseURI;
@@ -67,16 +98,125 @@ public class RestApiActions
         return this;
     }
 
+    /**
+     * Sets which responses of the *AndDiscard methods keep their body.
+     *
+     * @param bodySampler sampler, {@link BodySampler#never()} by default
+     * @return RestApiActions
+     */
+    public RestApiActions setBodySampler( BodySampler bodySampler )
+    {
+        this.bodySampler = bodySampler;
+
+        return this;
+    }
+
+    /**
+     * Sends the requests of this instance through the transport instead of
+     * Rest-Assured. Rest-Assured filters are not applied to them.
+     *
+     * @param transport transport to use, null for Rest-Assured
+     * @return RestApiActions
+     */
+    public RestApiActions setTransport( HttpTransport transport )
+    {
+        this.transport = transport;
+
+        return this;
+    }
+
+    /**
+     * Answers GET requests of this instance from the cache when the server
+     * confirms with a 304 that the cached response is still valid. The
+     * *AndDiscard methods are never cached. A cache can be shared between
+     * instances.
+     *
+     * @param responseCache cache to use, null to disable caching
+     * @return RestApiActions
+     */
+    public RestApiActions setResponseCache( ResponseCache responseCache )
+    {
+        this.responseCache = responseCache;
+
+        return this;
+    }
+
+    /**
+     * Coalesces GET requests of this instance with identical GET requests in
+     * flight on other threads, so they are sent once and share the response.
+     * Share one instance between all actions whose requests should be
+     * coalesced. The *AndDiscard methods are never coalesced.
+     *
+     * @param singleFlight coalescer to use, null to send every request
+     * @return RestApiActions
+     */
+    public RestApiActions setSingleFlight( SingleFlight singleFlight )
+    {
+        this.singleFlight = singleFlight;
+
+        return this;
+    }
+
+    /**
+     * Caps the requests of this instance in flight, per base uri and per
+     * endpoint, adapting the caps to the latency and errors of the responses.
+     * Share one instance between all actions sending to the same server.
+     *
+     * @param concurrencyLimiter limiter to use, null for no cap
+     * @return RestApiActions
+     */
+    public RestApiActions setConcurrencyLimiter( ConcurrencyLimiter concurrencyLimiter )
+    {
+        this.concurrencyLimiter = concurrencyLimiter;
+
+        return this;
+    }
+
+    /**
+     * Sends GET requests of this instance a second time when they are slower
+     * than the recent latency percentile of the policy, and uses the first
+     * response. The *AndDiscard methods are never hedged.
+     *
+     * @param hedgingPolicy policy to use, null to send every request once
+     * @return RestApiActions
+     */
+    public RestApiActions setHedgingPolicy( HedgingPolicy hedgingPolicy )
+    {
+        this.hedgingPolicy = hedgingPolicy;
+
+        return this;
+    }
+
+    /**
+     * Records the timing of every request sent through any actions instance
+     * to the log.
+     *
+     * @param timingLog log to write, null to stop recording
+     */
+    public static void setTimingLog( TimingLog timingLog )
+    {
+        RestApiActions.timingLog = timingLog;
+    }
+
     protected RequestSpecification given()
     {
-        return RestAssured.given()
+        RequestSpecification requestSpecification = RestAssured.given()
             .baseUri( this.baseUri )
             .basePath( endpoint );
+
+        VirtualUser virtualUser = VirtualUser.current();
+
+        if ( virtualUser != null )
+        {
+            virtualUser.applyTo( requestSpecification );
+        }
+
+        return requestSpecification;
     }
 
     /**
      * Sends post request to specified endpoint.
-     * If post request successful, saves created entity in TestRunStorage
+     * If post request successful and {@link TestRunStorage} is enabled, saves created entity in TestRunStorage
      *
      * @param object Body of request
      * @return ApiResponse
@@ -105,11 +245,16 @@ public class RestApiActions
     {
         String path = queryParams == null ? "" : queryParams.build();
 
-        return new ApiResponse( this.given()
-            .body( object )
-            .contentType( contentType )
-            .when()
-            .post( resource + path ) );
+        ApiResponse response = exchange( new TransportRequest( "POST", resource + path )
+            .setContentType( contentType )
+            .setBody( object ) );
+
+        if ( TestRunStorage.isEnabled() )
+        {
+            saveCreatedEntities( resource + path, response );
+        }
+
+        return response;
     }
 
     /**
@@ -160,10 +305,8 @@ public class RestApiActions
     {
         String path = queryParamsBuilder == null ? "" : queryParamsBuilder.build();
 
-        return new ApiResponse( this.given()
-            .contentType( ContentType.TEXT )
-            .when()
-            .get( resourceId + path ) );
+        return exchange( new TransportRequest( "GET", resourceId + path )
+            .setContentType( ContentType.TEXT.toString() ) );
     }
 
     /**
@@ -174,9 +317,7 @@ public class RestApiActions
      */
     public ApiResponse delete( String path )
     {
-        return new ApiResponse( this.given()
-            .when()
-            .delete( path ) );
+        return exchange( new TransportRequest( "DELETE", path ) );
     }
 
     /**
@@ -188,18 +329,14 @@ public class RestApiActions
      */
     public ApiResponse update( String resourceId, Object object )
     {
-        return new ApiResponse( this.given().body( object, ObjectMapperType.GSON )
-            .when()
-            .put( resourceId ) );
+        return update( resourceId, object, null );
     }
 
     public ApiResponse update( String resourceId, Object object, String contentType )
     {
-        return new ApiResponse( this.given()
-            .contentType( contentType )
-            .body( object, ObjectMapperType.GSON )
-            .when()
-            .put( resourceId ) );
+        return exchange( new TransportRequest( "PUT", resourceId )
+            .setContentType( contentType )
+            .setBody( object ) );
     }
 
     public ApiResponse postFile( File file )
@@ -211,10 +348,272 @@ public class RestApiActions
     {
         String url = queryParamsBuilder == null ? "" : queryParamsBuilder.build();
 
-        return new ApiResponse( this.given()
-            .body( file )
-            .when()
-            .post( url ) );
+        ApiResponse response = exchange( new TransportRequest( "POST", url )
+            .setBody( file ) );
+
+        if ( TestRunStorage.isEnabled() )
+        {
+            saveCreatedEntities( url, response );
+        }
+
+        return response;
     }
-}
 
+    /**
+     * Records the entity created by a post in {@link TestRunStorage}. Only
+     * posts to the endpoint itself, not to a sub resource, are recorded.
+     *
+     * @param path path the post was sent to, relative to the endpoint
+     * @param response response of the post
+     */
+    protected void saveCreatedEntities( String path, ApiResponse response )
+    {
+        if ( !(path.isEmpty() || path.startsWith( "?" )) || !isJsonSuccess( response ) )
+        {
+            return;
+        }
+
+        String uid = response.extractUid();
+
+        if ( uid != null && !uid.isEmpty() )
+        {
+            TestRunStorage.addCreatedEntity( endpoint, uid );
+        }
+    }
+
+    protected static boolean isJsonSuccess( ApiResponse response )
+    {
+        return (response.statusCode() == 200 || response.statusCode() == 201)
+            && response.getContentType() != null && response.getContentType().contains( "json" );
+    }
+
+    /**
+     * Sends GET request and discards the response body, unless it is sampled.
+     * Meant for load runs, where only status, size and timing are needed.
+     *
+     * @param resourceId         Id of resource
+     * @param queryParamsBuilder Query params to append to url
+     * @return ResponseSummary
+     */
+    public ResponseSummary getAndDiscard( String resourceId, QueryParamsBuilder queryParamsBuilder )
+    {
+        String path = queryParamsBuilder == null ? "" : queryParamsBuilder.build();
+
+        return exchangeAndDiscard( new TransportRequest( "GET", resourceId + path )
+            .setContentType( ContentType.TEXT.toString() ) );
+    }
+
+    public ResponseSummary getAndDiscard( String resourceId )
+    {
+        return getAndDiscard( resourceId, null );
+    }
+
+    /**
+     * Sends POST request and discards the response body, unless it is sampled.
+     *
+     * @param resource    resource to append to the endpoint
+     * @param object      Body of request
+     * @param queryParams Query params to append to url
+     * @return ResponseSummary
+     */
+    public ResponseSummary postAndDiscard( String resource, Object object, QueryParamsBuilder queryParams )
+    {
+        String path = queryParams == null ? "" : queryParams.build();
+
+        return exchangeAndDiscard( new TransportRequest( "POST", resource + path )
+            .setContentType( ContentType.JSON.toString() )
+            .setBody( object ) );
+    }
+
+    public ResponseSummary postAndDiscard( Object object )
+    {
+        return postAndDiscard( "", object, null );
+    }
+
+    private ApiResponse exchange( TransportRequest request )
+    {
+        long start = System.nanoTime();
+        Response response;
+
+        if ( !"GET".equals( request.getMethod() ) )
+        {
+            response = send( request );
+        }
+        else if ( singleFlight != null )
+        {
+            response = singleFlight.send( resolve( request.getPath() ), request, this::sendGet );
+        }
+        else
+        {
+            response = sendGet( request );
+        }
+
+        if ( timingLog != null )
+        {
+            // chunked responses have no Content-Length, their body is read
+            // by now
+            String contentLength = response.getHeader( "Content-Length" );
+
+            record( request, response.statusCode(), System.nanoTime() - start,
+                contentLength == null ? response.asByteArray().length : Long.parseLong( contentLength ) );
+        }
+
+        return new ApiResponse( response );
+    }
+
+    private ResponseSummary exchangeAndDiscard( TransportRequest request )
+    {
+        long start = System.nanoTime();
+        ResponseSummary summary = ResponseSummary.of( send( request ), start, bodySampler.shouldSample() );
+
+        record( request, summary.getStatusCode(), summary.getTotalTimeNanos(), summary.getBodySize() );
+
+        return summary;
+    }
+
+    private void record( TransportRequest request, int status, long latencyNanos, long bytes )
+    {
+        TimingLog log = timingLog;
+
+        if ( log == null )
+        {
+            return;
+        }
+
+        TimingEndpoints endpoints = timingEndpoints;
+
+        if ( endpoints == null || endpoints.log != log )
+        {
+            endpoints = new TimingEndpoints( log );
+            timingEndpoints = endpoints;
+        }
+
+        log.record( endpoints.id( request.getMethod() ), status, latencyNanos, bytes );
+    }
+
+    private Response sendGet( TransportRequest request )
+    {
+        if ( responseCache != null )
+        {
+            return responseCache.send( resolve( request.getPath() ), request, this::sendHedged );
+        }
+
+        return sendHedged( request );
+    }
+
+    private Response sendHedged( TransportRequest request )
+    {
+        if ( hedgingPolicy != null )
+        {
+            return hedgingPolicy.send( endpoint, request, this::send );
+        }
+
+        return send( request );
+    }
+
+    private Response send( TransportRequest request )
+    {
+        if ( concurrencyLimiter != null )
+        {
+            return concurrencyLimiter.send( String.valueOf( baseUri ),
+                endpoint, request, this::sendNow );
+        }
+
+        return sendNow( request );
+    }
+
+    private Response sendNow( TransportRequest request )
+    {
+        if ( transport != null )
+        {
+            return transport.send( resolve( request.getPath() ), request );
+        }
+
+        // the path is sent as it is encoded by UrlEncoding, so Rest-Assured
+        // must not encode escapes again
+        RequestSpecification requestSpecification = this.given().urlEncodingEnabled( false );
+
+        if ( request.getContentType() != null )
+        {
+            requestSpecification.contentType( request.getContentType() );
+        }
+
+        if ( !request.getHeaders().isEmpty() )
+        {
+            requestSpecification.headers( request.getHeaders() );
+        }
+
+        if ( request.getBody() != null && "PUT".equals( request.getMethod() ) )
+        {
+            requestSpecification.body( request.getBody(), ObjectMapperType.GSON );
+        }
+        else if ( request.getBody() != null )
+        {
+            requestSpecification.body( request.getBody() );
+        }
+
+        return requestSpecification.when().request( request.getMethod(), UrlEncoding.encodeUri( request.getPath() ) );
+    }
+
+    /**
+     * Resolves the path against the base uri and endpoint the way Rest-Assured
+     * does.
+     *
+     * @param path path relative to the endpoint, may start with a query
+     * @return the absolute uri
+     */
+    private String resolve( String path )
+    {
+        StringBuilder uri = new StringBuilder( baseUri == null ? RestAssured.baseURI : baseUri );
+
+        appendPath( uri, endpoint );
+        appendPath( uri, path );
+
+        return uri.toString();
+    }
+
+    private static void appendPath( StringBuilder uri, String path )
+    {
+        if ( path == null || path.isEmpty() )
+        {
+            return;
+        }
+
+        boolean endsWithSlash = uri.length() > 0 && uri.charAt( uri.length() - 1 ) == '/';
+
+        if ( path.startsWith( "/" ) && endsWithSlash )
+        {
+            uri.append( path, 1, path.length() );
+        }
+        else if ( path.startsWith( "/" ) || path.startsWith( "?" ) || endsWithSlash )
+        {
+            uri.append( path );
+        }
+        else
+        {
+            uri.append( '/' ).append( path );
+        }
+    }
+
+    /**
+     * Ids of the endpoints of this instance in a timing log, by method.
+     */
+    private class TimingEndpoints
+    {
+        private final TimingLog log;
+
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+        private TimingEndpoints( TimingLog log )
+        {
+            this.log = log;
+        }
+
+        private int id( String method )
+        {
+            Integer id = ids.get( method );
+
+            return id != null ? id : ids.computeIfAbsent( method, m -> log.endpointId( m + " " + endpoint ) );
+        }
+    }
+}
@@ -2,14 +2,26 @@ package org.hisp.dhis.actions;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import org.hisp.dhis.helpers.TestRunStorage;
+import org.hisp.dhis.paging.Page;
+import org.hisp.dhis.paging.PrefetchingPageIterator;
 import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.request.QueryParamsTemplate;
 import org.hisp.dhis.response.dto.ApiResponse;
 import org.hisp.dhis.response.dto.TrackerApiResponse;
+import org.hisp.dhis.response.dto.tracker.TrackerObjectReport;
+import org.hisp.dhis.response.dto.tracker.TrackerStats;
+import org.hisp.dhis.response.dto.tracker.TrackerTypeReport;
 import org.hisp.dhis.utils.JsonObjectBuilder;
 
 import java.io.File;
 import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.notNullValue;
 
@@ -19,6 +31,16 @@ import static org.hamcrest.Matchers.notNullValue;
 public class TrackerActions
     extends RestApiActions
 {
+    public static final int DEFAULT_EXPORT_PAGE_SIZE = 1000;
+
+    private static final Pattern IMPORT_STRATEGY = Pattern.compile( "importStrategy=([A-Z_]+)" );
+
+    /**
+     * Import strategies of the async imports whose reports were not fetched
+     * yet, by job id.
+     */
+    private static final Map<String, String> JOB_IMPORT_STRATEGIES = new ConcurrentHashMap<>();
+
     private Logger logger = Logger.getLogger( TrackerActions.class.getName() );
 
     public TrackerActions()
@@ -26,6 +48,128 @@ public class TrackerActions
         super( "/tracker" );
     }
 
+    /**
+     * Streams tracked entities from the tracker export, see
+     * {@link #export(String, QueryParamsBuilder, int)}.
+     *
+     * @param queryParamsBuilder filters of the export, for example the program
+     * @return lazy stream of tracked entities
+     */
+    public Stream<JsonObject> exportTrackedEntities( QueryParamsBuilder queryParamsBuilder )
+    {
+        return export( "trackedEntities", queryParamsBuilder, DEFAULT_EXPORT_PAGE_SIZE );
+    }
+
+    public Stream<JsonObject> exportEnrollments( QueryParamsBuilder queryParamsBuilder )
+    {
+        return export( "enrollments", queryParamsBuilder, DEFAULT_EXPORT_PAGE_SIZE );
+    }
+
+    public Stream<JsonObject> exportEvents( QueryParamsBuilder queryParamsBuilder )
+    {
+        return export( "events", queryParamsBuilder, DEFAULT_EXPORT_PAGE_SIZE );
+    }
+
+    /**
+     * Streams all objects of a tracker export endpoint. Pages are fetched
+     * lazily, the next page while the current one is processed, so only two
+     * pages are held in memory. Close the stream to stop fetching early.
+     *
+     * @param resource export resource, for example {@code events}
+     * @param queryParamsBuilder filters of the export. Page and page size are
+     *        set on a copy, the builder is not changed.
+     * @param pageSize number of objects per page
+     * @return lazy stream of the exported objects
+     */
+    public Stream<JsonObject> export( String resource, QueryParamsBuilder queryParamsBuilder, int pageSize )
+    {
+        QueryParamsTemplate template = queryParamsBuilder.copy()
+            .addOrUpdate( "pageSize", String.valueOf( pageSize ) )
+            .template( "page" );
+
+        return new PrefetchingPageIterator<>(
+            page -> Page.read( get( "/" + resource + template.build( String.valueOf( page ) ) ), resource )
+                .getItems(), pageSize ).stream();
+    }
+
+    /**
+     * Records the objects created by tracker imports in
+     * {@link TestRunStorage}. Object reports do not tell created from updated
+     * objects, so with the default CREATE_AND_UPDATE strategy the objects of
+     * a type are only recorded when the import updated none of that type.
+     * Objects with errors, updates and deletes are not recorded. The objects
+     * of an async import are recorded when its report is fetched with
+     * {@link #getJobReport(String, String)} in FULL report mode, other report
+     * modes do not list the objects.
+     */
+    @Override
+    protected void saveCreatedEntities( String path, ApiResponse response )
+    {
+        Matcher importStrategy = IMPORT_STRATEGY.matcher( path );
+        String strategy = importStrategy.find() ? importStrategy.group( 1 ) : "CREATE_AND_UPDATE";
+
+        if ( !(strategy.equals( "CREATE" ) || strategy.equals( "CREATE_AND_UPDATE" )) || !isJsonSuccess( response ) )
+        {
+            return;
+        }
+
+        String jobId = jobId( response );
+
+        if ( jobId != null )
+        {
+            JOB_IMPORT_STRATEGIES.put( jobId, strategy );
+            return;
+        }
+
+        saveCreatedTrackerObjects( strategy, new TrackerApiResponse( response ) );
+    }
+
+    private static void saveCreatedTrackerObjects( String strategy, TrackerApiResponse response )
+    {
+        Map<String, TrackerTypeReport> typeReports = response.getImportReport().getTypeReports();
+
+        if ( typeReports == null )
+        {
+            return;
+        }
+
+        for ( Map.Entry<String, TrackerTypeReport> typeReport : typeReports.entrySet() )
+        {
+            TrackerStats stats = typeReport.getValue().getStats();
+
+            if ( !strategy.equals( "CREATE" ) && (stats.getUpdated() > 0 || stats.getDeleted() > 0) )
+            {
+                continue;
+            }
+
+            for ( TrackerObjectReport objectReport : typeReport.getValue().getObjectReports() )
+            {
+                if ( objectReport.getErrorReports().isEmpty() )
+                {
+                    TestRunStorage.addCreatedTrackerObject( typeReport.getKey(), objectReport.getUid() );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return id of the job an async import was scheduled as, or null if the
+     *         response is an import report
+     */
+    private static String jobId( ApiResponse response )
+    {
+        JsonObject body = response.getBody();
+
+        if ( body.has( "typeReports" ) || !body.has( "response" ) || !body.get( "response" ).isJsonObject() )
+        {
+            return null;
+        }
+
+        JsonObject jobResponse = body.getAsJsonObject( "response" );
+
+        return jobResponse.has( "id" ) ? jobResponse.get( "id" ).getAsString() : null;
+    }
+
     public ApiResponse getJob( String jobId )
     {
         return this.get( "/jobs/" + jobId );
@@ -91,13 +235,37 @@ public class TrackerActions
         //return getJobReportByImportResponse( response );
     }
 
+    /**
+     * Imports a pre-serialized payload, for example one rendered from a
+     * {@link org.hisp.dhis.request.PayloadTemplate}.
+     *
+     * @param payload serialized JSON payload
+     * @param queryParamsBuilder query params to append to url
+     * @return TrackerApiResponse
+     */
+    public TrackerApiResponse postAndGetJobReport( byte[] payload, QueryParamsBuilder queryParamsBuilder )
+    {
+        queryParamsBuilder.add( "async=false" );
+
+        ApiResponse response = this.post( payload, queryParamsBuilder );
+
+        return new TrackerApiResponse( response );
+    }
+
     public TrackerApiResponse getJobReport( String jobId, String reportMode )
     {
         ApiResponse response = this.get( String.format( "/jobs/%s/report?reportMode=%s", jobId, reportMode ) );
+        TrackerApiResponse report = new TrackerApiResponse( response );
+        String strategy = JOB_IMPORT_STRATEGIES.get( jobId );
 
-        // add created entities
+        if ( strategy != null && TestRunStorage.isEnabled() && isJsonSuccess( response )
+            && report.getImportReport().getTypeReports() != null )
+        {
+            saveCreatedTrackerObjects( strategy, report );
+            JOB_IMPORT_STRATEGIES.remove( jobId );
+        }
 
-        return new TrackerApiResponse( response );
+        return report;
     }
 
     private TrackerApiResponse getJobReportByImportResponse( ApiResponse response )
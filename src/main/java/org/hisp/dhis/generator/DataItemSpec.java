@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.generator;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import org.hisp.dhis.utils.GeometryRandomizer;
+import org.hisp.dhis.utils.Randomizer;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * A tracked entity attribute or data element and how its values are
+ * generated. Values follow the DHIS2 value type, unless options or a custom
+ * generator are set. Value types that reference other objects, like
+ * ORGANISATION_UNIT, USERNAME or FILE_RESOURCE, need options or a generator.
+ */
+public class DataItemSpec
+{
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern( "yyyy-MM-dd'T'HH:mm:ss.SSS" );
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern( "HH:mm" );
+
+    private final String uid;
+
+    private final String valueType;
+
+    private List<String> options = Collections.emptyList();
+
+    private Function<Randomizer, String> generator;
+
+    private double missingRate;
+
+    /**
+     * @param uid uid of the attribute or data element
+     * @param valueType DHIS2 value type, e.g. TEXT, INTEGER or DATE
+     */
+    public DataItemSpec( String uid, String valueType )
+    {
+        this.uid = uid;
+        this.valueType = valueType;
+    }
+
+    /**
+     * @param options codes of the option set, values are picked from them
+     * @return DataItemSpec
+     */
+    public DataItemSpec setOptions( String... options )
+    {
+        this.options = Arrays.asList( options );
+
+        return this;
+    }
+
+    /**
+     * @param generator generates the values, e.g. {@link Randomizer#randomFirstName()}
+     * @return DataItemSpec
+     */
+    public DataItemSpec setGenerator( Function<Randomizer, String> generator )
+    {
+        this.generator = generator;
+
+        return this;
+    }
+
+    /**
+     * @param missingRate share of objects without a value, between 0 and 1
+     * @return DataItemSpec
+     */
+    public DataItemSpec setMissingRate( double missingRate )
+    {
+        this.missingRate = missingRate;
+
+        return this;
+    }
+
+    public String getUid()
+    {
+        return uid;
+    }
+
+    public String getValueType()
+    {
+        return valueType;
+    }
+
+    /**
+     * Generates a value.
+     *
+     * @param randomizer source of randomness
+     * @param referenceDate date generated dates are relative to
+     * @return the value or null if the value is missing
+     * @throws IllegalStateException if values of the value type can only be
+     *         generated from options or a generator
+     */
+    public String generate( Randomizer randomizer, LocalDate referenceDate )
+    {
+        if ( missingRate > 0 && randomizer.getRandom().nextDouble() < missingRate )
+        {
+            return null;
+        }
+
+        if ( generator != null )
+        {
+            return generator.apply( randomizer );
+        }
+
+        if ( !options.isEmpty() )
+        {
+            return randomizer.randomElementFromList( options );
+        }
+
+        switch ( valueType )
+        {
+        case "TEXT":
+            return randomizer.randomString( 5 + randomizer.randomInt( 16 ) );
+        case "LONG_TEXT":
+            return randomizer.randomLongText( 10 );
+        case "LETTER":
+            return randomizer.randomString( 1 );
+        case "EMAIL":
+            return randomizer.randomString( 5 + randomizer.randomInt( 6 ) ).toLowerCase( Locale.ROOT ) + "@example.org";
+        case "URL":
+            return "https://example.org/" + randomizer.randomString( 5 + randomizer.randomInt( 6 ) )
+                .toLowerCase( Locale.ROOT );
+        case "PHONE_NUMBER":
+            return randomizer.randomPhoneNumber();
+        case "INTEGER":
+        case "INTEGER_ZERO_OR_POSITIVE":
+            return String.valueOf( randomizer.randomInt( 1_000 ) );
+        case "INTEGER_POSITIVE":
+            return String.valueOf( 1 + randomizer.randomInt( 1_000 ) );
+        case "INTEGER_NEGATIVE":
+            return String.valueOf( -1 - randomizer.randomInt( 1_000 ) );
+        case "NUMBER":
+            return String.valueOf( randomizer.randomDoubleInRange( 0, 100, 2 ) );
+        case "PERCENTAGE":
+            return String.valueOf( randomizer.randomInt( 101 ) );
+        case "UNIT_INTERVAL":
+            return String.valueOf( randomizer.randomDoubleInRange( 0, 1, 2 ) );
+        case "BOOLEAN":
+            return String.valueOf( randomizer.randomBoolean() );
+        case "TRUE_ONLY":
+            return "true";
+        case "DATE":
+            return referenceDate.minusDays( randomizer.randomInt( 3_650 ) ).toString();
+        case "DATETIME":
+            return referenceDate.minusDays( randomizer.randomInt( 3_650 ) )
+                .atTime( randomTime( randomizer ) ).format( DATE_TIME );
+        case "TIME":
+            return randomTime( randomizer ).format( TIME );
+        case "AGE":
+            return referenceDate.minusYears( 18 + randomizer.randomInt( 62 ) )
+                .minusDays( randomizer.randomInt( 365 ) ).toString();
+        case "COORDINATE":
+            Coordinate coordinate = new GeometryRandomizer( randomizer ).randomCoordinate( GeometryRandomizer.WORLD );
+            return String.format( Locale.ROOT, "[%.6f,%.6f]", coordinate.x, coordinate.y );
+        default:
+            // references to other objects, files and geometries
+            throw new IllegalStateException( String.format(
+                "Values of type %s of %s can not be generated, set options or a generator", valueType, uid ) );
+        }
+    }
+
+    private static LocalTime randomTime( Randomizer randomizer )
+    {
+        return LocalTime.of( randomizer.randomInt( 24 ), randomizer.randomInt( 60 ) );
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.generator;
+
+import java.util.Random;
+
+/**
+ * Distribution of a count, for example the number of events of a stage per
+ * enrollment.
+ */
+@FunctionalInterface
+public interface Distribution
+{
+    /**
+     * Draws a count.
+     *
+     * @param random source of randomness
+     * @return a count, not negative
+     */
+    int sample( Random random );
+
+    /**
+     * @param count the count
+     * @return a distribution always returning the count
+     */
+    static Distribution fixed( int count )
+    {
+        return random -> count;
+    }
+
+    /**
+     * @param min minimum count
+     * @param max maximum count, inclusive
+     * @return a distribution returning counts between min and max with equal
+     *         probability
+     */
+    static Distribution uniform( int min, int max )
+    {
+        return random -> min + random.nextInt( max - min + 1 );
+    }
+
+    /**
+     * @param mean mean count
+     * @return a Poisson distribution with the mean
+     */
+    static Distribution poisson( double mean )
+    {
+        double limit = Math.exp( -mean );
+
+        return random -> {
+            int count = 0;
+            double product = random.nextDouble();
+
+            while ( product > limit )
+            {
+                count++;
+                product *= random.nextDouble();
+            }
+
+            return count;
+        };
+    }
+
+    /**
+     * @param probability probability of 1
+     * @return a distribution returning 1 with the probability and 0 otherwise
+     */
+    static Distribution bernoulli( double probability )
+    {
+        return random -> random.nextDouble() < probability ? 1 : 0;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A tracker program: the attributes of its enrolled tracked entities and
+ * its stages.
+ */
+public class ProgramSpec
+{
+    private final String uid;
+
+    private final List<DataItemSpec> attributes = new ArrayList<>();
+
+    private final List<ProgramStageSpec> stages = new ArrayList<>();
+
+    private Distribution enrollments = Distribution.fixed( 1 );
+
+    public ProgramSpec( String uid )
+    {
+        this.uid = uid;
+    }
+
+    /**
+     * @param attribute program attribute, generated for every enrolled
+     *        tracked entity
+     * @return ProgramSpec
+     */
+    public ProgramSpec addAttribute( DataItemSpec attribute )
+    {
+        this.attributes.add( attribute );
+
+        return this;
+    }
+
+    public ProgramSpec addStage( ProgramStageSpec stage )
+    {
+        this.stages.add( stage );
+
+        return this;
+    }
+
+    /**
+     * @param enrollments number of enrollments per tracked entity, 1 by
+     *        default. Use {@link Distribution#bernoulli(double)} to enroll a
+     *        share of the tracked entities.
+     * @return ProgramSpec
+     */
+    public ProgramSpec setEnrollments( Distribution enrollments )
+    {
+        this.enrollments = enrollments;
+
+        return this;
+    }
+
+    public String getUid()
+    {
+        return uid;
+    }
+
+    public List<DataItemSpec> getAttributes()
+    {
+        return Collections.unmodifiableList( attributes );
+    }
+
+    public List<ProgramStageSpec> getStages()
+    {
+        return Collections.unmodifiableList( stages );
+    }
+
+    public Distribution getEnrollments()
+    {
+        return enrollments;
+    }
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.generator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.hisp.dhis.actions.TrackerActions;
+import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.response.dto.TrackerApiResponse;
+import org.hisp.dhis.utils.JsonObjectBuilder;
+import org.hisp.dhis.utils.PredictableRandomizer;
+import org.hisp.dhis.utils.Randomizer;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Generates tracker data: tracked entities with attributes, their
+ * enrollments into the configured programs, events of the program stages
+ * with data values, and relationships between the tracked entities.
+ * <p>
+ * The data is split into partitions, each a self-contained tracker import
+ * payload. A partition is generated by a {@link PredictableRandomizer} seeded
+ * from the seed and the partition number, so partitions can be
+ * generated in parallel and the same configuration always generates the same
+ * data. Dates are relative to the reference date, not the current date.
+ *
+ * <pre>
+ * TrackerDataGenerator generator = new TrackerDataGenerator( "nEenWmSyUEp", "DiszpKrYNg8" )
+ *     .setTrackedEntities( 100_000 )
+ *     .setPartitions( 100 )
+ *     .addAttribute( new DataItemSpec( "w75KJ2mc4zz", "TEXT" ).setGenerator( Randomizer::randomFirstName ) )
+ *     .addProgram( new ProgramSpec( "IpHINAT79UW" )
+ *         .addStage( new ProgramStageSpec( "A03MvHHogjR" )
+ *             .setEvents( Distribution.poisson( 3 ) )
+ *             .addDataElement( new DataItemSpec( "UXz7xuGCEhU", "NUMBER" ) ) ) );
+ *
+ * generator.importInto( new TrackerActions() );
+ * </pre>
+ */
+public class TrackerDataGenerator
+{
+    private static final char[] UID_LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private static final char[] UID_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
+        .toCharArray();
+
+    /**
+     * Randomizers are expensive to create, so each thread reuses one and
+     * reseeds its {@link Random} per partition. All values are drawn from
+     * that {@link Random}, so the result does not depend on the thread.
+     */
+    private static final ThreadLocal<Randomizer> RANDOMIZERS = ThreadLocal
+        .withInitial( () -> new PredictableRandomizer( 0 ) );
+
+    private final String trackedEntityType;
+
+    private final List<String> orgUnits;
+
+    private final List<DataItemSpec> attributes = new ArrayList<>();
+
+    private final List<ProgramSpec> programs = new ArrayList<>();
+
+    private long seed;
+
+    private int trackedEntities = 1_000;
+
+    private int partitions = 1;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private LocalDate referenceDate = LocalDate.of( 2024, 1, 1 );
+
+    private int enrollmentPeriodDays = 730;
+
+    private String relationshipType;
+
+    private Distribution relationships = Distribution.fixed( 0 );
+
+    /**
+     * @param trackedEntityType uid of the type of the tracked entities
+     * @param orgUnits uids of the org units the data is registered in
+     */
+    public TrackerDataGenerator( String trackedEntityType, String... orgUnits )
+    {
+        if ( orgUnits.length == 0 )
+        {
+            throw new IllegalArgumentException( "At least one org unit is required" );
+        }
+
+        this.trackedEntityType = trackedEntityType;
+        this.orgUnits = Arrays.asList( orgUnits );
+    }
+
+    public TrackerDataGenerator setSeed( long seed )
+    {
+        this.seed = seed;
+
+        return this;
+    }
+
+    /**
+     * @param trackedEntities number of tracked entities over all partitions
+     * @return TrackerDataGenerator
+     */
+    public TrackerDataGenerator setTrackedEntities( int trackedEntities )
+    {
+        this.trackedEntities = trackedEntities;
+
+        return this;
+    }
+
+    /**
+     * @param partitions number of payloads the data is split into
+     * @return TrackerDataGenerator
+     */
+    public TrackerDataGenerator setPartitions( int partitions )
+    {
+        if ( partitions < 1 )
+        {
+            throw new IllegalArgumentException( "Partitions have to be positive, got " + partitions );
+        }
+
+        this.partitions = partitions;
+
+        return this;
+    }
+
+    /**
+     * @param parallelism number of partitions generated ahead of the import by
+     *        {@link #importInto(TrackerActions, String...)}
+     * @return TrackerDataGenerator
+     */
+    public TrackerDataGenerator setParallelism( int parallelism )
+    {
+        this.parallelism = parallelism;
+
+        return this;
+    }
+
+    /**
+     * @param referenceDate latest date of generated enrollments and events
+     * @return TrackerDataGenerator
+     */
+    public TrackerDataGenerator setReferenceDate( LocalDate referenceDate )
+    {
+        this.referenceDate = referenceDate;
+
+        return this;
+    }
+
+    /**
+     * @param enrollmentPeriodDays enrollments are spread over this many days
+     *        before the reference date
+     * @return TrackerDataGenerator
+     */
+    public TrackerDataGenerator setEnrollmentPeriodDays( int enrollmentPeriodDays )
+    {
+        this.enrollmentPeriodDays = enrollmentPeriodDays;
+
+        return this;
+    }
+
+    /**
+     * @param attribute attribute of the tracked entity type, generated for
+     *        every tracked entity
+     * @return TrackerDataGenerator
+     */
+    public TrackerDataGenerator addAttribute( DataItemSpec attribute )
+    {
+        this.attributes.add( attribute );
+
+        return this;
+    }
+
+    public TrackerDataGenerator addProgram( ProgramSpec program )
+    {
+        this.programs.add( program );
+
+        return this;
+    }
+
+    /**
+     * Generates relationships from each tracked entity to other tracked
+     * entities of the same partition.
+     *
+     * @param relationshipType uid of the relationship type
+     * @param relationships number of relationships per tracked entity
+     * @return TrackerDataGenerator
+     */
+    public TrackerDataGenerator setRelationships( String relationshipType, Distribution relationships )
+    {
+        this.relationshipType = relationshipType;
+        this.relationships = relationships;
+
+        return this;
+    }
+
+    public int getPartitions()
+    {
+        return partitions;
+    }
+
+    /**
+     * @param partition number of the partition, from 0
+     * @return number of tracked entities in the partition
+     */
+    public int getTrackedEntities( int partition )
+    {
+        return trackedEntities / partitions + (partition < trackedEntities % partitions ? 1 : 0);
+    }
+
+    /**
+     * Generates a partition. The result only depends on the configuration and
+     * the partition number.
+     *
+     * @param partition number of the partition, from 0
+     * @return tracker import payload with trackedEntities and relationships
+     */
+    public JsonObject generatePartition( int partition )
+    {
+        Randomizer randomizer = RANDOMIZERS.get();
+        Random random = randomizer.getRandom();
+        random.setSeed( partitionSeed( partition ) );
+
+        int count = getTrackedEntities( partition );
+        JsonArray trackedEntityArray = new JsonArray();
+        List<String> uids = new ArrayList<>( count );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            String uid = uid( random );
+            uids.add( uid );
+            trackedEntityArray.add( trackedEntity( uid, randomizer ) );
+        }
+
+        JsonArray relationshipArray = new JsonArray();
+
+        if ( relationshipType != null && count > 1 )
+        {
+            for ( String from : uids )
+            {
+                for ( int i = relationships.sample( random ); i > 0; i-- )
+                {
+                    String to = uids.get( random.nextInt( count ) );
+
+                    if ( !to.equals( from ) )
+                    {
+                        relationshipArray.add( relationship( random, from, to ) );
+                    }
+                }
+            }
+        }
+
+        JsonObject payload = new JsonObject();
+        payload.add( "trackedEntities", trackedEntityArray );
+        payload.add( "relationships", relationshipArray );
+
+        return payload;
+    }
+
+    /**
+     * Generates all partitions in parallel.
+     *
+     * @return the partitions in partition order
+     */
+    public List<JsonObject> generate()
+    {
+        return IntStream.range( 0, partitions ).parallel()
+            .mapToObj( this::generatePartition )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Imports all partitions synchronously, one after the other, on the
+     * calling thread. The next partitions are generated in the background
+     * while a partition is imported.
+     *
+     * @param trackerActions actions to import with
+     * @param queryParams query params of every import, e.g.
+     *        importStrategy=CREATE
+     * @return the import responses in partition order
+     */
+    public List<TrackerApiResponse> importInto( TrackerActions trackerActions, String... queryParams )
+    {
+        List<TrackerApiResponse> responses = new ArrayList<>( partitions );
+        Deque<CompletableFuture<JsonObject>> generated = new ArrayDeque<>();
+        int next = 0;
+
+        while ( responses.size() < partitions )
+        {
+            while ( next < partitions && generated.size() < Math.max( 1, parallelism ) )
+            {
+                int partition = next++;
+                generated.add( CompletableFuture.supplyAsync( () -> generatePartition( partition ) ) );
+            }
+
+            JsonObject payload = generated.poll().join();
+            responses.add( trackerActions.postAndGetJobReport( payload, new QueryParamsBuilder().addAll( queryParams ) ) );
+        }
+
+        return responses;
+    }
+
+    private JsonObject trackedEntity( String uid, Randomizer randomizer )
+    {
+        Random random = randomizer.getRandom();
+        String orgUnit = randomizer.randomElementFromList( orgUnits );
+        JsonArray attributeArray = new JsonArray();
+        JsonArray enrollmentArray = new JsonArray();
+
+        addValues( attributeArray, "attribute", attributes, randomizer );
+
+        for ( ProgramSpec program : programs )
+        {
+            int enrollments = program.getEnrollments().sample( random );
+
+            if ( enrollments > 0 )
+            {
+                addValues( attributeArray, "attribute", program.getAttributes(), randomizer );
+            }
+
+            for ( int i = 0; i < enrollments; i++ )
+            {
+                enrollmentArray.add( enrollment( uid, orgUnit, program, randomizer ) );
+            }
+        }
+
+        JsonObject trackedEntity = new JsonObjectBuilder()
+            .addProperty( "trackedEntity", uid )
+            .addProperty( "trackedEntityType", trackedEntityType )
+            .addProperty( "orgUnit", orgUnit )
+            .build();
+        trackedEntity.add( "attributes", attributeArray );
+        trackedEntity.add( "enrollments", enrollmentArray );
+
+        return trackedEntity;
+    }
+
+    private JsonObject enrollment( String trackedEntity, String orgUnit, ProgramSpec program, Randomizer randomizer )
+    {
+        Random random = randomizer.getRandom();
+        LocalDate enrolledAt = referenceDate.minusDays( random.nextInt( Math.max( 1, enrollmentPeriodDays ) ) );
+        int daysSinceEnrollment = (int) ChronoUnit.DAYS.between( enrolledAt, referenceDate );
+        JsonArray eventArray = new JsonArray();
+
+        String enrollment = uid( random );
+
+        for ( ProgramStageSpec stage : program.getStages() )
+        {
+            for ( int i = stage.getEvents().sample( random ); i > 0; i-- )
+            {
+                LocalDate occurredAt = enrolledAt.plusDays( random.nextInt( daysSinceEnrollment + 1 ) );
+                JsonArray dataValues = new JsonArray();
+                addValues( dataValues, "dataElement", stage.getDataElements(), randomizer );
+
+                JsonObject event = new JsonObjectBuilder()
+                    .addProperty( "event", uid( random ) )
+                    .addProperty( "enrollment", enrollment )
+                    .addProperty( "program", program.getUid() )
+                    .addProperty( "programStage", stage.getUid() )
+                    .addProperty( "orgUnit", orgUnit )
+                    .addProperty( "occurredAt", occurredAt.toString() )
+                    .addProperty( "status", "COMPLETED" )
+                    .build();
+                event.add( "dataValues", dataValues );
+                eventArray.add( event );
+            }
+        }
+
+        JsonObject object = new JsonObjectBuilder()
+            .addProperty( "enrollment", enrollment )
+            .addProperty( "trackedEntity", trackedEntity )
+            .addProperty( "program", program.getUid() )
+            .addProperty( "orgUnit", orgUnit )
+            .addProperty( "enrolledAt", enrolledAt.toString() )
+            .addProperty( "occurredAt", enrolledAt.toString() )
+            .addProperty( "status", "ACTIVE" )
+            .build();
+        object.add( "events", eventArray );
+
+        return object;
+    }
+
+    private JsonObject relationship( Random random, String from, String to )
+    {
+        return new JsonObjectBuilder()
+            .addProperty( "relationship", uid( random ) )
+            .addProperty( "relationshipType", relationshipType )
+            .addObject( "from", new JsonObjectBuilder().addProperty( "trackedEntity", from ) )
+            .addObject( "to", new JsonObjectBuilder().addProperty( "trackedEntity", to ) )
+            .build();
+    }
+
+    private void addValues( JsonArray values, String key, List<DataItemSpec> items, Randomizer randomizer )
+    {
+        for ( DataItemSpec item : items )
+        {
+            String value = item.generate( randomizer, referenceDate );
+
+            if ( value != null )
+            {
+                values.add( new JsonObjectBuilder()
+                    .addProperty( key, item.getUid() )
+                    .addProperty( "value", value )
+                    .build() );
+            }
+        }
+    }
+
+    private long partitionSeed( int partition )
+    {
+        long mixed = (seed + partition * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+
+        return mixed ^ (mixed >>> 31);
+    }
+
+    private static String uid( Random random )
+    {
+        char[] uid = new char[11];
+        uid[0] = UID_LETTERS[random.nextInt( UID_LETTERS.length )];
+
+        for ( int i = 1; i < uid.length; i++ )
+        {
+            uid[i] = UID_CHARS[random.nextInt( UID_CHARS.length )];
+        }
+
+        return new String( uid );
+    }
+}
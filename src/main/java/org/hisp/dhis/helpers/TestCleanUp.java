@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.helpers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.actions.TrackerActions;
+import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.response.dto.ApiResponse;
+import org.hisp.dhis.response.dto.TrackerApiResponse;
+import org.hisp.dhis.response.dto.tracker.TrackerErrorReport;
+import org.hisp.dhis.response.dto.tracker.TrackerImportReport;
+import org.hisp.dhis.response.dto.tracker.TrackerObjectReport;
+import org.hisp.dhis.response.dto.tracker.TrackerStats;
+import org.hisp.dhis.response.dto.tracker.TrackerTypeReport;
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Deletes the entities recorded in {@link TestRunStorage}. Tracker objects
+ * are deleted first, relationships to tracked entities, then the endpoints in
+ * reverse order of their first created entity, and the entities of an endpoint
+ * newest first, so entities are deleted before the entities they were created
+ * to reference. Deletes are sent in batches, as tracker DELETE imports and
+ * /metadata DELETE imports. The batches of a tracker type are sent in
+ * parallel, objects of one type do not reference each other. The batches of
+ * an endpoint are sent one after the other, as its entities can reference
+ * each other. Endpoints that are not a metadata collection, batches the
+ * /metadata import rejects, and entities the import report lists with errors,
+ * are deleted one by one. Only entities the import reports confirm as deleted
+ * are removed from the storage, entities that could not be deleted stay in it.
+ */
+public class TestCleanUp
+{
+    private static final List<String> TRACKER_DELETE_ORDER = Collections.unmodifiableList( Arrays.asList(
+        TrackerImportReport.RELATIONSHIP, TrackerImportReport.EVENT, TrackerImportReport.ENROLLMENT,
+        TrackerImportReport.TRACKED_ENTITY ) );
+
+    private final Logger logger = Logger.getLogger( TestCleanUp.class.getName() );
+
+    private int batchSize = 500;
+
+    private int parallelism = 4;
+
+    /**
+     * @param batchSize number of entities deleted per request
+     * @return TestCleanUp
+     */
+    public TestCleanUp setBatchSize( int batchSize )
+    {
+        this.batchSize = batchSize;
+
+        return this;
+    }
+
+    /**
+     * @param parallelism number of tracker delete requests sent at the same
+     *        time
+     * @return TestCleanUp
+     */
+    public TestCleanUp setParallelism( int parallelism )
+    {
+        this.parallelism = parallelism;
+
+        return this;
+    }
+
+    /**
+     * Deletes all entities recorded in {@link TestRunStorage}, as the
+     * {@link VirtualUser} bound to the calling thread.
+     *
+     * @return number of deleted entities
+     */
+    public int deleteCreatedEntities()
+    {
+        VirtualUser virtualUser = VirtualUser.current();
+        ExecutorService executor = Executors.newFixedThreadPool( parallelism, runnable -> {
+            Thread thread = new Thread( runnable, "test-clean-up" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+
+        try
+        {
+            int deleted = 0;
+
+            for ( String trackerType : TRACKER_DELETE_ORDER )
+            {
+                List<String> uids = TestRunStorage.getCreatedTrackerObjects( trackerType );
+
+                deleted += inParallel( executor, virtualUser, batches( uids ),
+                    batch -> deleteTrackerObjects( trackerType, batch ) );
+            }
+
+            List<String> endpoints = new ArrayList<>( TestRunStorage.getCreatedEntities().keySet() );
+            Collections.reverse( endpoints );
+
+            for ( String endpoint : endpoints )
+            {
+                List<String> uids = TestRunStorage.getCreatedEntities( endpoint );
+                String collection = endpoint.substring( 1 );
+                Collections.reverse( uids );
+
+                for ( List<String> batch : batches( uids ) )
+                {
+                    deleted += collection.isEmpty() || collection.contains( "/" )
+                        ? deleteOneByOne( endpoint, batch )
+                        : deleteMetadata( endpoint, collection, batch );
+                }
+            }
+
+            return deleted;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private int deleteTrackerObjects( String trackerType, List<String> uids )
+    {
+        String[] collection = trackerCollection( trackerType );
+
+        ApiResponse response = new TrackerActions().post( payload( collection[0], collection[1], uids ),
+            new QueryParamsBuilder().addAll( "importStrategy=DELETE", "atomicMode=OBJECT", "async=false" ) );
+
+        if ( response.statusCode() != 200 )
+        {
+            logger.warning( String.format( "Deleting %d %s failed with status %d", uids.size(), collection[0],
+                response.statusCode() ) );
+            return 0;
+        }
+
+        TrackerImportReport report = new TrackerApiResponse( response ).getImportReport();
+        Set<String> rejected = rejectedTrackerObjects( report, trackerType );
+        List<String> accepted = without( uids, rejected );
+        TrackerTypeReport typeReport = report.getTypeReport( trackerType );
+        TrackerStats stats = typeReport != null ? typeReport.getStats() : report.getStats();
+
+        if ( stats.getDeleted() != accepted.size() )
+        {
+            if ( uids.size() == 1 )
+            {
+                logger.warning( String.format( "Deleting %s %s was not confirmed", trackerType, uids.get( 0 ) ) );
+                return 0;
+            }
+
+            // the report does not tell which objects were deleted, delete
+            // them one per request
+            int deleted = 0;
+
+            for ( String uid : uids )
+            {
+                deleted += deleteTrackerObjects( trackerType, Collections.singletonList( uid ) );
+            }
+
+            return deleted;
+        }
+
+        if ( !rejected.isEmpty() )
+        {
+            logger.warning( String.format( "Deleting %s %s was rejected", trackerType, rejected ) );
+        }
+
+        accepted.forEach( uid -> TestRunStorage.removeTrackerObject( trackerType, uid ) );
+
+        return accepted.size();
+    }
+
+    private int deleteMetadata( String endpoint, String collection, List<String> uids )
+    {
+        ApiResponse response = new RestApiActions( "/metadata" ).post( payload( collection, "id", uids ),
+            new QueryParamsBuilder().addAll( "importStrategy=DELETE", "atomicMode=NONE" ) );
+
+        if ( response.statusCode() != 200 )
+        {
+            return deleteOneByOne( endpoint, uids );
+        }
+
+        JsonObject report = response.getBody();
+
+        if ( report.has( "response" ) && report.get( "response" ).isJsonObject() )
+        {
+            report = report.getAsJsonObject( "response" );
+        }
+
+        Set<String> rejected = rejectedMetadata( report );
+        List<String> accepted = without( uids, rejected );
+
+        if ( deletedCount( report ) != accepted.size() )
+        {
+            return deleteOneByOne( endpoint, uids );
+        }
+
+        accepted.forEach( uid -> TestRunStorage.removeEntity( endpoint, uid ) );
+
+        return accepted.size() + deleteOneByOne( endpoint, new ArrayList<>( rejected ) );
+    }
+
+    private int deleteOneByOne( String endpoint, List<String> uids )
+    {
+        RestApiActions actions = new RestApiActions( endpoint );
+        int deleted = 0;
+
+        for ( String uid : uids )
+        {
+            int status = actions.delete( uid ).statusCode();
+
+            if ( status == 200 || status == 204 || status == 404 )
+            {
+                TestRunStorage.removeEntity( endpoint, uid );
+                deleted++;
+            }
+            else
+            {
+                logger.warning( String.format( "Deleting %s/%s failed with status %d", endpoint, uid, status ) );
+            }
+        }
+
+        return deleted;
+    }
+
+    private static Set<String> rejectedTrackerObjects( TrackerImportReport report, String trackerType )
+    {
+        Set<String> rejected = new LinkedHashSet<>();
+
+        if ( report.getErrorReports() != null )
+        {
+            for ( TrackerErrorReport errorReport : report.getErrorReports() )
+            {
+                if ( errorReport.getUid() != null && (errorReport.getTrackerType() == null
+                    || errorReport.getTrackerType().equals( trackerType )) )
+                {
+                    rejected.add( errorReport.getUid() );
+                }
+            }
+        }
+
+        TrackerTypeReport typeReport = report.getTypeReport( trackerType );
+
+        if ( typeReport != null )
+        {
+            for ( TrackerObjectReport objectReport : typeReport.getObjectReports() )
+            {
+                if ( !objectReport.getErrorReports().isEmpty() )
+                {
+                    rejected.add( objectReport.getUid() );
+                }
+            }
+        }
+
+        return rejected;
+    }
+
+    /**
+     * @return uids of the object reports with errors in a /metadata import
+     *         report
+     */
+    private static Set<String> rejectedMetadata( JsonObject report )
+    {
+        Set<String> rejected = new LinkedHashSet<>();
+
+        if ( !report.has( "typeReports" ) || !report.get( "typeReports" ).isJsonArray() )
+        {
+            return rejected;
+        }
+
+        for ( JsonElement typeReport : report.getAsJsonArray( "typeReports" ) )
+        {
+            JsonElement objectReports = typeReport.getAsJsonObject().get( "objectReports" );
+
+            if ( objectReports == null || !objectReports.isJsonArray() )
+            {
+                continue;
+            }
+
+            for ( JsonElement element : objectReports.getAsJsonArray() )
+            {
+                JsonObject objectReport = element.getAsJsonObject();
+                JsonElement errorReports = objectReport.get( "errorReports" );
+
+                if ( objectReport.has( "uid" ) && errorReports != null && errorReports.isJsonArray()
+                    && errorReports.getAsJsonArray().size() > 0 )
+                {
+                    rejected.add( objectReport.get( "uid" ).getAsString() );
+                }
+            }
+        }
+
+        return rejected;
+    }
+
+    private static int deletedCount( JsonObject report )
+    {
+        JsonElement stats = report.get( "stats" );
+
+        if ( stats == null || !stats.isJsonObject() || !stats.getAsJsonObject().has( "deleted" ) )
+        {
+            return -1;
+        }
+
+        return stats.getAsJsonObject().get( "deleted" ).getAsInt();
+    }
+
+    private static List<String> without( List<String> uids, Set<String> excluded )
+    {
+        List<String> remaining = new ArrayList<>( uids );
+        remaining.removeAll( excluded );
+
+        return remaining;
+    }
+
+    private List<List<String>> batches( List<String> uids )
+    {
+        List<List<String>> batches = new ArrayList<>();
+
+        for ( int from = 0; from < uids.size(); from += Math.max( 1, batchSize ) )
+        {
+            batches.add( uids.subList( from, Math.min( uids.size(), from + Math.max( 1, batchSize ) ) ) );
+        }
+
+        return batches;
+    }
+
+    private static int inParallel( ExecutorService executor, VirtualUser virtualUser, List<List<String>> batches,
+        BatchDelete delete )
+    {
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for ( List<String> batch : batches )
+        {
+            Supplier<Integer> task = () -> delete.apply( batch );
+            results.add( executor.submit( () -> virtualUser == null ? task.get() : virtualUser.callAs( task ) ) );
+        }
+
+        int deleted = 0;
+
+        for ( Future<Integer> result : results )
+        {
+            try
+            {
+                deleted += result.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException( "Interrupted while deleting entities", e );
+            }
+            catch ( ExecutionException e )
+            {
+                throw new IllegalStateException( "Deleting entities failed", e.getCause() );
+            }
+        }
+
+        return deleted;
+    }
+
+    private static JsonObject payload( String collection, String key, List<String> uids )
+    {
+        JsonArray objects = new JsonArray();
+
+        for ( String uid : uids )
+        {
+            JsonObject object = new JsonObject();
+            object.addProperty( key, uid );
+            objects.add( object );
+        }
+
+        JsonObject payload = new JsonObject();
+        payload.add( collection, objects );
+
+        return payload;
+    }
+
+    /**
+     * @return name of the collection and of the uid property of the type in
+     *         a tracker import payload
+     */
+    private static String[] trackerCollection( String trackerType )
+    {
+        switch ( trackerType )
+        {
+        case TrackerImportReport.TRACKED_ENTITY:
+            return new String[] { "trackedEntities", "trackedEntity" };
+        case TrackerImportReport.ENROLLMENT:
+            return new String[] { "enrollments", "enrollment" };
+        case TrackerImportReport.EVENT:
+            return new String[] { "events", "event" };
+        case TrackerImportReport.RELATIONSHIP:
+            return new String[] { "relationships", "relationship" };
+        default:
+            throw new IllegalArgumentException( "Unknown tracker type " + trackerType );
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchDelete
+    {
+        int apply( List<String> batch );
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.helpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the entities created during a test run, so they can be deleted
+ * at its end by {@link TestCleanUp}. While enabled, uids created through
+ * {@link org.hisp.dhis.actions.RestApiActions} posts and tracker imports are
+ * recorded, grouped by endpoint or tracker type, in the order they were
+ * created. The objects of an async tracker import are only recorded once its
+ * report is fetched, see {@link org.hisp.dhis.actions.TrackerActions}.
+ * Recording is disabled by default, as extracting uids from every response
+ * costs load tests time. Thread safe.
+ */
+public class TestRunStorage
+{
+    private static final Map<String, Group> ENTITIES = new ConcurrentHashMap<>();
+
+    private static final Map<String, Group> TRACKER_OBJECTS = new ConcurrentHashMap<>();
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static volatile boolean enabled;
+
+    private TestRunStorage()
+    {
+    }
+
+    /**
+     * Starts recording created entities.
+     */
+    public static void enable()
+    {
+        enabled = true;
+    }
+
+    public static void disable()
+    {
+        enabled = false;
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @param endpoint endpoint the entity was created with, e.g. /dataElements
+     * @param uid uid of the created entity
+     */
+    public static void addCreatedEntity( String endpoint, String uid )
+    {
+        group( ENTITIES, endpoint.startsWith( "/" ) ? endpoint : "/" + endpoint ).add( uid );
+    }
+
+    /**
+     * @param trackerType tracker type, see
+     *        {@link org.hisp.dhis.response.dto.tracker.TrackerImportReport}
+     * @param uid uid of the imported object
+     */
+    public static void addCreatedTrackerObject( String trackerType, String uid )
+    {
+        group( TRACKER_OBJECTS, trackerType ).add( uid );
+    }
+
+    /**
+     * Returns the created entities by endpoint, in the order the first entity
+     * of each endpoint was created.
+     *
+     * @return copy of the created entities
+     */
+    public static Map<String, List<String>> getCreatedEntities()
+    {
+        return snapshot( ENTITIES );
+    }
+
+    /**
+     * @param endpoint endpoint the entities were created with
+     * @return copy of the uids created with the endpoint, oldest first
+     */
+    public static List<String> getCreatedEntities( String endpoint )
+    {
+        return uids( ENTITIES, endpoint.startsWith( "/" ) ? endpoint : "/" + endpoint );
+    }
+
+    /**
+     * @return copy of the imported tracker objects by tracker type
+     */
+    public static Map<String, List<String>> getCreatedTrackerObjects()
+    {
+        return snapshot( TRACKER_OBJECTS );
+    }
+
+    public static List<String> getCreatedTrackerObjects( String trackerType )
+    {
+        return uids( TRACKER_OBJECTS, trackerType );
+    }
+
+    public static void removeEntity( String endpoint, String uid )
+    {
+        Group group = ENTITIES.get( endpoint.startsWith( "/" ) ? endpoint : "/" + endpoint );
+
+        if ( group != null )
+        {
+            group.remove( uid );
+        }
+    }
+
+    public static void removeTrackerObject( String trackerType, String uid )
+    {
+        Group group = TRACKER_OBJECTS.get( trackerType );
+
+        if ( group != null )
+        {
+            group.remove( uid );
+        }
+    }
+
+    /**
+     * Forgets all recorded entities without deleting them.
+     */
+    public static void removeEntities()
+    {
+        ENTITIES.clear();
+        TRACKER_OBJECTS.clear();
+    }
+
+    /**
+     * @return number of recorded entities and tracker objects
+     */
+    public static int size()
+    {
+        return ENTITIES.values().stream().mapToInt( Group::size ).sum()
+            + TRACKER_OBJECTS.values().stream().mapToInt( Group::size ).sum();
+    }
+
+    private static Group group( Map<String, Group> groups, String key )
+    {
+        return groups.computeIfAbsent( key, k -> new Group( SEQUENCE.incrementAndGet() ) );
+    }
+
+    private static List<String> uids( Map<String, Group> groups, String key )
+    {
+        Group group = groups.get( key );
+
+        return group == null ? Collections.emptyList() : group.uids();
+    }
+
+    private static Map<String, List<String>> snapshot( Map<String, Group> groups )
+    {
+        List<Map.Entry<String, Group>> entries = new ArrayList<>( groups.entrySet() );
+        entries.sort( Comparator.comparingLong( entry -> entry.getValue().order ) );
+
+        Map<String, List<String>> snapshot = new LinkedHashMap<>();
+
+        for ( Map.Entry<String, Group> entry : entries )
+        {
+            List<String> uids = entry.getValue().uids();
+
+            if ( !uids.isEmpty() )
+            {
+                snapshot.put( entry.getKey(), uids );
+            }
+        }
+
+        return snapshot;
+    }
+
+    private static class Group
+    {
+        private final long order;
+
+        private final Set<String> uids = new LinkedHashSet<>();
+
+        private Group( long order )
+        {
+            this.order = order;
+        }
+
+        private synchronized void add( String uid )
+        {
+            uids.add( uid );
+        }
+
+        private synchronized void remove( String uid )
+        {
+            uids.remove( uid );
+        }
+
+        private synchronized int size()
+        {
+            return uids.size();
+        }
+
+        private synchronized List<String> uids()
+        {
+            return new ArrayList<>( uids );
+        }
+    }
+}
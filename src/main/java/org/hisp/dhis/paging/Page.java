@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.paging;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.hisp.dhis.response.dto.ApiResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a paged collection. Reads the metadata format, with the items
+ * under the collection name and a {@code pager} object, and the tracker
+ * export formats, with the items under the collection name or under
+ * {@code instances} and the pager fields at the top level.
+ */
+public class Page
+{
+    private final List<JsonObject> items;
+
+    private final int page;
+
+    private final int pageSize;
+
+    private final int pageCount;
+
+    private final int total;
+
+    private Page( List<JsonObject> items, int page, int pageSize, int pageCount, int total )
+    {
+        this.items = items;
+        this.page = page;
+        this.pageSize = pageSize;
+        this.pageCount = pageCount;
+        this.total = total;
+    }
+
+    /**
+     * Reads the page from a successful response.
+     *
+     * @param response response to a collection request
+     * @param collection name of the collection, for example {@code dataElements}
+     * @return the page
+     */
+    public static Page read( ApiResponse response, String collection )
+    {
+        response.validate().statusCode( 200 );
+
+        JsonObject body = new JsonParser().parse( response.getAsString() ).getAsJsonObject();
+        JsonObject pager = body.has( "pager" ) && body.get( "pager" ).isJsonObject() ? body.getAsJsonObject( "pager" )
+            : body;
+
+        JsonElement array = body.has( collection ) ? body.get( collection ) : body.get( "instances" );
+        List<JsonObject> items = new ArrayList<>();
+
+        if ( array != null && array.isJsonArray() )
+        {
+            for ( JsonElement item : (JsonArray) array )
+            {
+                items.add( item.getAsJsonObject() );
+            }
+        }
+
+        return new Page( Collections.unmodifiableList( items ), integer( pager, "page" ), integer( pager, "pageSize" ),
+            integer( pager, "pageCount" ), integer( pager, "total" ) );
+    }
+
+    public List<JsonObject> getItems()
+    {
+        return items;
+    }
+
+    /**
+     * @return number of the page, -1 when the response has no pager
+     */
+    public int getPage()
+    {
+        return page;
+    }
+
+    public int getPageSize()
+    {
+        return pageSize;
+    }
+
+    /**
+     * @return number of pages, -1 when the server did not count them
+     */
+    public int getPageCount()
+    {
+        return pageCount;
+    }
+
+    /**
+     * @return number of items in all pages, -1 when the server did not count
+     *         them
+     */
+    public int getTotal()
+    {
+        return total;
+    }
+
+    private static int integer( JsonObject object, String name )
+    {
+        JsonElement value = object.get( name );
+
+        return value == null || !value.isJsonPrimitive() ? -1 : value.getAsInt();
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.paging;
+
+import com.google.gson.JsonObject;
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.request.QueryParamsTemplate;
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a whole paged collection, for example {@code /organisationUnits}.
+ * The first page is read alone for its pager, the remaining pages are
+ * fetched concurrently with bounded parallelism. Pages are fetched as the
+ * {@link VirtualUser} bound to the calling thread.
+ */
+public class ParallelPageFetcher
+{
+    private final RestApiActions actions;
+
+    private final String collection;
+
+    private int pageSize = 500;
+
+    private int parallelism = 4;
+
+    /**
+     * @param actions actions of the collection endpoint
+     * @param collection name of the collection in the response, for example
+     *        {@code organisationUnits}
+     */
+    public ParallelPageFetcher( RestApiActions actions, String collection )
+    {
+        this.actions = actions;
+        this.collection = collection;
+    }
+
+    public ParallelPageFetcher setPageSize( int pageSize )
+    {
+        this.pageSize = pageSize;
+
+        return this;
+    }
+
+    /**
+     * @param parallelism maximum number of pages fetched at the same time
+     * @return ParallelPageFetcher
+     */
+    public ParallelPageFetcher setParallelism( int parallelism )
+    {
+        this.parallelism = parallelism;
+
+        return this;
+    }
+
+    /**
+     * Fetches all pages and returns their items in page order.
+     *
+     * @param queryParamsBuilder filters and fields of the request. Page and
+     *        page size are set on a copy, the builder is not changed.
+     * @return all items of the collection
+     */
+    public List<JsonObject> fetchAll( QueryParamsBuilder queryParamsBuilder )
+    {
+        QueryParamsTemplate template = template( queryParamsBuilder );
+        Page first = fetch( template, 1 );
+        List<JsonObject> items = new ArrayList<>( Math.max( first.getTotal(), first.getItems().size() ) );
+        items.addAll( first.getItems() );
+
+        if ( first.getPageCount() <= 1 )
+        {
+            return items;
+        }
+
+        ExecutorService executor = executor();
+
+        try
+        {
+            List<Future<Page>> pages = new ArrayList<>();
+            VirtualUser virtualUser = VirtualUser.current();
+
+            for ( int page = 2; page <= first.getPageCount(); page++ )
+            {
+                int number = page;
+                pages.add( executor.submit( () -> fetchAs( virtualUser, template, number ) ) );
+            }
+
+            for ( Future<Page> page : pages )
+            {
+                items.addAll( await( page ).getItems() );
+            }
+
+            return items;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Streams the items page by page, in the order the pages complete. Only
+     * as many pages as the parallelism are fetched ahead of the consumer, so
+     * memory stays bounded. Close the stream to stop fetching early.
+     *
+     * @param queryParamsBuilder filters and fields of the request. Page and
+     *        page size are set on a copy, the builder is not changed.
+     * @return stream of the items of the collection
+     */
+    public Stream<JsonObject> stream( QueryParamsBuilder queryParamsBuilder )
+    {
+        UnorderedPages pages = new UnorderedPages( template( queryParamsBuilder ) );
+
+        return StreamSupport
+            .stream( Spliterators.spliteratorUnknownSize( pages, Spliterator.NONNULL ), false )
+            .onClose( pages::close );
+    }
+
+    private QueryParamsTemplate template( QueryParamsBuilder queryParamsBuilder )
+    {
+        return queryParamsBuilder.copy()
+            .addOrUpdate( "pageSize", String.valueOf( pageSize ) )
+            .template( "page" );
+    }
+
+    private Page fetch( QueryParamsTemplate template, int page )
+    {
+        return Page.read( actions.get( template.build( String.valueOf( page ) ) ), collection );
+    }
+
+    private Page fetchAs( VirtualUser virtualUser, QueryParamsTemplate template, int page )
+    {
+        return virtualUser == null ? fetch( template, page ) : virtualUser.callAs( () -> fetch( template, page ) );
+    }
+
+    private ExecutorService executor()
+    {
+        return Executors.newFixedThreadPool( parallelism, runnable -> {
+            Thread thread = new Thread( runnable, "page-fetch" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    private static Page await( Future<Page> page )
+    {
+        try
+        {
+            return page.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while fetching pages", e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause();
+            }
+
+            if ( e.getCause() instanceof Error )
+            {
+                throw (Error) e.getCause();
+            }
+
+            throw new IllegalStateException( e.getCause() );
+        }
+    }
+
+    private class UnorderedPages
+        implements Iterator<JsonObject>
+    {
+        private final QueryParamsTemplate template;
+
+        private final VirtualUser virtualUser = VirtualUser.current();
+
+        private Iterator<JsonObject> current = Collections.emptyIterator();
+
+        private ExecutorService executor;
+
+        private CompletionService<Page> completionService;
+
+        private int pageCount = -1;
+
+        private int nextPage = 2;
+
+        private int inFlight;
+
+        private UnorderedPages( QueryParamsTemplate template )
+        {
+            this.template = template;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while ( !current.hasNext() )
+            {
+                if ( pageCount < 0 )
+                {
+                    Page first = fetch( template, 1 );
+                    pageCount = Math.max( first.getPageCount(), 1 );
+                    current = first.getItems().iterator();
+                    submit();
+                    continue;
+                }
+
+                if ( inFlight == 0 )
+                {
+                    close();
+                    return false;
+                }
+
+                Page page = await( take() );
+                inFlight--;
+                current = page.getItems().iterator();
+                submit();
+            }
+
+            return true;
+        }
+
+        @Override
+        public JsonObject next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+
+            return current.next();
+        }
+
+        private void submit()
+        {
+            while ( inFlight < parallelism && nextPage <= pageCount )
+            {
+                if ( executor == null )
+                {
+                    executor = executor();
+                    completionService = new ExecutorCompletionService<>( executor );
+                }
+
+                int number = nextPage++;
+                completionService.submit( () -> fetchAs( virtualUser, template, number ) );
+                inFlight++;
+            }
+        }
+
+        private Future<Page> take()
+        {
+            try
+            {
+                return completionService.take();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException( "Interrupted while fetching pages", e );
+            }
+        }
+
+        private void close()
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow();
+            }
+
+            inFlight = 0;
+            nextPage = Integer.MAX_VALUE;
+            current = Collections.emptyIterator();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.paging;
+
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy iterator over a paged endpoint. While the caller processes a page,
+ * the next page is already fetched in the background, so at most two pages
+ * are held in memory. Iteration ends with the first page that has fewer
+ * items than the page size. Pages are fetched as the {@link VirtualUser}
+ * bound to the thread creating the iterator.
+ *
+ * @param <T> type of the items
+ */
+public class PrefetchingPageIterator<T>
+    implements Iterator<T>, AutoCloseable
+{
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool( runnable -> {
+        Thread thread = new Thread( runnable, "page-prefetch" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private final IntFunction<List<T>> pageFetcher;
+
+    private final int pageSize;
+
+    private final VirtualUser virtualUser;
+
+    private Iterator<T> current = Collections.emptyIterator();
+
+    private CompletableFuture<List<T>> next;
+
+    private int nextPage;
+
+    /**
+     * @param pageFetcher returns the items of a page, pages start at 1
+     * @param pageSize number of items requested per page
+     */
+    public PrefetchingPageIterator( IntFunction<List<T>> pageFetcher, int pageSize )
+    {
+        if ( pageSize < 1 )
+        {
+            throw new IllegalArgumentException( "Page size has to be positive, got " + pageSize );
+        }
+
+        this.pageFetcher = pageFetcher;
+        this.pageSize = pageSize;
+        this.virtualUser = VirtualUser.current();
+        this.nextPage = 1;
+        this.next = fetch( nextPage );
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        while ( !current.hasNext() )
+        {
+            if ( next == null )
+            {
+                return false;
+            }
+
+            List<T> page = await( next );
+            nextPage++;
+            next = page.size() < pageSize ? null : fetch( nextPage );
+            current = page.iterator();
+        }
+
+        return true;
+    }
+
+    @Override
+    public T next()
+    {
+        if ( !hasNext() )
+        {
+            throw new NoSuchElementException();
+        }
+
+        return current.next();
+    }
+
+    /**
+     * Stops prefetching. A page being fetched is discarded.
+     */
+    @Override
+    public void close()
+    {
+        if ( next != null )
+        {
+            next.cancel( false );
+            next = null;
+        }
+
+        current = Collections.emptyIterator();
+    }
+
+    /**
+     * @return a sequential stream of the items, closing it stops prefetching
+     */
+    public Stream<T> stream()
+    {
+        return StreamSupport
+            .stream( Spliterators.spliteratorUnknownSize( this, Spliterator.ORDERED | Spliterator.NONNULL ), false )
+            .onClose( this::close );
+    }
+
+    private CompletableFuture<List<T>> fetch( int page )
+    {
+        return CompletableFuture.supplyAsync( () -> virtualUser == null ? pageFetcher.apply( page )
+            : virtualUser.callAs( () -> pageFetcher.apply( page ) ), EXECUTOR );
+    }
+
+    private List<T> await( CompletableFuture<List<T>> page )
+    {
+        try
+        {
+            return page.join();
+        }
+        catch ( CompletionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause();
+            }
+
+            if ( e.getCause() instanceof Error )
+            {
+                throw (Error) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.recording;
+
+/**
+ * A recorded request and its response. Paths are relative to the base uri
+ * of the request, so an exchange can be replayed against another instance.
+ */
+public class Exchange
+{
+    private static final byte[] EMPTY = new byte[0];
+
+    private final long startedAt;
+
+    private final long durationNanos;
+
+    private final String method;
+
+    private final String path;
+
+    private final String query;
+
+    private final String requestContentType;
+
+    private final byte[] requestBody;
+
+    private final int statusCode;
+
+    private final String responseContentType;
+
+    private final byte[] responseBody;
+
+    /**
+     * @param startedAt start of the request in epoch millis
+     * @param durationNanos time until the response was received
+     * @param method http method
+     * @param path path relative to the base uri
+     * @param query encoded query without ?, null if there is none
+     * @param requestContentType content type of the request, or null
+     * @param requestBody body of the request, or null
+     * @param statusCode status of the response
+     * @param responseContentType content type of the response, or null
+     * @param responseBody body of the response, or null
+     */
+    public Exchange( long startedAt, long durationNanos, String method, String path, String query,
+        String requestContentType, byte[] requestBody, int statusCode, String responseContentType,
+        byte[] responseBody )
+    {
+        this.startedAt = startedAt;
+        this.durationNanos = durationNanos;
+        this.method = method;
+        this.path = path == null ? "" : path;
+        this.query = query;
+        this.requestContentType = requestContentType;
+        this.requestBody = requestBody == null ? EMPTY : requestBody;
+        this.statusCode = statusCode;
+        this.responseContentType = responseContentType;
+        this.responseBody = responseBody == null ? EMPTY : responseBody;
+    }
+
+    public long getStartedAt()
+    {
+        return startedAt;
+    }
+
+    public long getDurationNanos()
+    {
+        return durationNanos;
+    }
+
+    public String getMethod()
+    {
+        return method;
+    }
+
+    public String getPath()
+    {
+        return path;
+    }
+
+    public String getQuery()
+    {
+        return query;
+    }
+
+    /**
+     * @return path and query, as sent to the server
+     */
+    public String getPathAndQuery()
+    {
+        return query == null || query.isEmpty() ? path : path + "?" + query;
+    }
+
+    public String getRequestContentType()
+    {
+        return requestContentType;
+    }
+
+    public byte[] getRequestBody()
+    {
+        return requestBody;
+    }
+
+    public int getStatusCode()
+    {
+        return statusCode;
+    }
+
+    public String getResponseContentType()
+    {
+        return responseContentType;
+    }
+
+    public byte[] getResponseBody()
+    {
+        return responseBody;
+    }
+
+    @Override
+    public String toString()
+    {
+        return method + " " + getPathAndQuery() + " -> " + statusCode;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.recording;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a recording written by {@link RecordingWriter}.
+ */
+public class RecordingReader
+    implements Closeable
+{
+    private final DataInputStream in;
+
+    public RecordingReader( InputStream in )
+    {
+        this.in = new DataInputStream( new BufferedInputStream( in ) );
+
+        try
+        {
+            byte[] magic = new byte[RecordingWriter.MAGIC.length];
+            this.in.readFully( magic );
+
+            if ( !Arrays.equals( magic, RecordingWriter.MAGIC ) )
+            {
+                throw new IllegalArgumentException( "Not a recording" );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Reads all exchanges of the file.
+     *
+     * @param file the recording
+     * @return exchanges in the order they were recorded
+     */
+    public static List<Exchange> readAll( Path file )
+    {
+        try ( RecordingReader reader = new RecordingReader( Files.newInputStream( file ) ) )
+        {
+            List<Exchange> exchanges = new ArrayList<>();
+            Exchange exchange;
+
+            while ( (exchange = reader.next()) != null )
+            {
+                exchanges.add( exchange );
+            }
+
+            return exchanges;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * @return the next exchange, or null at the end of the recording
+     */
+    public Exchange next()
+    {
+        try
+        {
+            int length;
+
+            try
+            {
+                length = in.readInt();
+            }
+            catch ( EOFException e )
+            {
+                return null;
+            }
+
+            byte[] record = new byte[length];
+
+            try
+            {
+                in.readFully( record );
+            }
+            catch ( EOFException e )
+            {
+                return null;
+            }
+
+            DataInputStream data = new DataInputStream( new ByteArrayInputStream( record ) );
+
+            return new Exchange( data.readLong(), data.readLong(), readString( data ), readString( data ),
+                readString( data ), readString( data ), readBytes( data ), data.readUnsignedShort(),
+                readString( data ), readBytes( data ) );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        in.close();
+    }
+
+    private static String readString( DataInputStream data )
+        throws IOException
+    {
+        String value = new String( readBytes( data ), StandardCharsets.UTF_8 );
+
+        return value.isEmpty() ? null : value;
+    }
+
+    private static byte[] readBytes( DataInputStream data )
+        throws IOException
+    {
+        byte[] value = new byte[data.readInt()];
+        data.readFully( value );
+
+        return value;
+    }
+}
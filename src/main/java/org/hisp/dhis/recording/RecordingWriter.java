@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.recording;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Appends exchanges to a recording. Every record is written with a single
+ * write, prefixed with its length, so records of concurrent threads do not
+ * interleave and a record cut short by a crash is skipped when read. When an
+ * existing recording is opened, a record cut short at its end is truncated,
+ * so the records appended after it can be read.
+ * <p>
+ * Format: the magic bytes {@code DRC1}, followed by records of an int
+ * length and the fields of {@link Exchange} in declaration order. Strings
+ * are an int length followed by the UTF-8 bytes, with an empty string for
+ * null. Byte arrays are an int length followed by the bytes.
+ */
+public class RecordingWriter
+    implements Closeable
+{
+    static final byte[] MAGIC = { 'D', 'R', 'C', '1' };
+
+    private final OutputStream out;
+
+    /**
+     * @param file recording to append to, created if it does not exist
+     * @throws IllegalArgumentException if the file is not a recording
+     */
+    public RecordingWriter( Path file )
+    {
+        try
+        {
+            boolean isNew = !Files.exists( file ) || Files.size( file ) == 0;
+
+            if ( !isNew )
+            {
+                truncateIncompleteRecord( file );
+            }
+
+            this.out = new FileOutputStream( file.toFile(), true );
+
+            if ( isNew )
+            {
+                out.write( MAGIC );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    public void write( Exchange exchange )
+    {
+        ByteArrayOutputStream record = new ByteArrayOutputStream( 256 + exchange.getRequestBody().length +
+            exchange.getResponseBody().length );
+
+        try
+        {
+            DataOutputStream data = new DataOutputStream( record );
+            data.writeInt( 0 );
+            data.writeLong( exchange.getStartedAt() );
+            data.writeLong( exchange.getDurationNanos() );
+            writeString( data, exchange.getMethod() );
+            writeString( data, exchange.getPath() );
+            writeString( data, exchange.getQuery() );
+            writeString( data, exchange.getRequestContentType() );
+            writeBytes( data, exchange.getRequestBody() );
+            data.writeShort( exchange.getStatusCode() );
+            writeString( data, exchange.getResponseContentType() );
+            writeBytes( data, exchange.getResponseBody() );
+            data.flush();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        byte[] bytes = record.toByteArray();
+        int length = bytes.length - 4;
+        bytes[0] = (byte) (length >>> 24);
+        bytes[1] = (byte) (length >>> 16);
+        bytes[2] = (byte) (length >>> 8);
+        bytes[3] = (byte) length;
+
+        synchronized ( out )
+        {
+            try
+            {
+                out.write( bytes );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        synchronized ( out )
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Truncates the recording after its last complete record.
+     */
+    private static void truncateIncompleteRecord( Path file )
+        throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+        {
+            ByteBuffer buffer = ByteBuffer.allocate( 4 );
+
+            if ( channel.read( buffer, 0 ) < MAGIC.length || !Arrays.equals( buffer.array(), MAGIC ) )
+            {
+                throw new IllegalArgumentException( "Not a recording: " + file );
+            }
+
+            long size = channel.size();
+            long end = MAGIC.length;
+
+            while ( end + 4 <= size )
+            {
+                buffer.clear();
+
+                int length = channel.read( buffer, end ) == 4 ? buffer.getInt( 0 ) : -1;
+
+                if ( length < 0 || end + 4 + length > size )
+                {
+                    break;
+                }
+
+                end += 4 + length;
+            }
+
+            if ( end < size )
+            {
+                channel.truncate( end );
+            }
+        }
+    }
+
+    private static void writeString( DataOutputStream data, String value )
+        throws IOException
+    {
+        writeBytes( data, value == null ? new byte[0] : value.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private static void writeBytes( DataOutputStream data, byte[] value )
+        throws IOException
+    {
+        data.writeInt( value.length );
+        data.write( value );
+    }
+}
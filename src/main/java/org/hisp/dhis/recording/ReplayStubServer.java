@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.recording;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local http server answering requests with recorded responses. Exchanges
+ * are matched by method, path and query. Repeated requests get the recorded
+ * responses in order, the last one is repeated once all were served.
+ * Requests without a recording get a 404.
+ */
+public class ReplayStubServer
+    implements Closeable
+{
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final Map<String, List<Exchange>> exchanges = new HashMap<>();
+
+    private final Map<String, AtomicInteger> positions = new HashMap<>();
+
+    private final boolean simulateLatency;
+
+    private ReplayStubServer( List<Exchange> recording, boolean simulateLatency )
+    {
+        this.simulateLatency = simulateLatency;
+
+        for ( Exchange exchange : recording )
+        {
+            String key = key( exchange.getMethod(), exchange.getPath(), exchange.getQuery() );
+            exchanges.computeIfAbsent( key, k -> new ArrayList<>() ).add( exchange );
+            positions.putIfAbsent( key, new AtomicInteger() );
+        }
+
+        try
+        {
+            server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        server.createContext( "/", this::handle );
+        server.setExecutor( executor );
+        server.start();
+    }
+
+    /**
+     * Starts a server on a free local port.
+     *
+     * @param recording exchanges to serve
+     * @param simulateLatency true to delay responses by their recorded
+     *        duration
+     * @return the running server
+     */
+    public static ReplayStubServer start( List<Exchange> recording, boolean simulateLatency )
+    {
+        return new ReplayStubServer( recording, simulateLatency );
+    }
+
+    public static ReplayStubServer start( Path recording, boolean simulateLatency )
+    {
+        return start( RecordingReader.readAll( recording ), simulateLatency );
+    }
+
+    /**
+     * @return base uri to point the client to, e.g. http://127.0.0.1:41234
+     */
+    public String getBaseUri()
+    {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop( 0 );
+        executor.shutdownNow();
+    }
+
+    private void handle( HttpExchange http )
+        throws IOException
+    {
+        String key = key( http.getRequestMethod(), http.getRequestURI().getRawPath(),
+            http.getRequestURI().getRawQuery() );
+
+        // the request body has to be consumed before responding
+        drain( http );
+
+        List<Exchange> recorded = exchanges.get( key );
+
+        if ( recorded == null )
+        {
+            byte[] body = String.format(
+                "{\"httpStatus\":\"Not Found\",\"httpStatusCode\":404,\"message\":\"No recorded exchange for %s\"}",
+                key.replace( "\"", "\\\"" ) ).getBytes( StandardCharsets.UTF_8 );
+            respond( http, 404, "application/json;charset=UTF-8", body );
+            return;
+        }
+
+        int position = positions.get( key ).getAndIncrement();
+        Exchange exchange = recorded.get( Math.min( position, recorded.size() - 1 ) );
+
+        if ( simulateLatency )
+        {
+            LockSupport.parkNanos( exchange.getDurationNanos() );
+        }
+
+        respond( http, exchange.getStatusCode(), exchange.getResponseContentType(), exchange.getResponseBody() );
+    }
+
+    private static void drain( HttpExchange http )
+        throws IOException
+    {
+        byte[] buffer = new byte[8192];
+
+        while ( http.getRequestBody().read( buffer ) != -1 )
+        {
+            // discard
+        }
+    }
+
+    private static void respond( HttpExchange http, int status, String contentType, byte[] body )
+        throws IOException
+    {
+        if ( contentType != null )
+        {
+            http.getResponseHeaders().set( "Content-Type", contentType );
+        }
+
+        http.sendResponseHeaders( status, body.length == 0 ? -1 : body.length );
+
+        try ( OutputStream out = http.getResponseBody() )
+        {
+            out.write( body );
+        }
+    }
+
+    /**
+     * Trailing slashes are ignored, Rest-Assured appends one when the path of
+     * the request only consists of the query.
+     */
+    private static String key( String method, String path, String query )
+    {
+        String normalizedPath = path.length() > 1 && path.endsWith( "/" )
+            ? path.substring( 0, path.length() - 1 )
+            : path;
+
+        return method.toUpperCase() + " " + normalizedPath + (query == null || query.isEmpty() ? "" : "?" + query);
+    }
+}
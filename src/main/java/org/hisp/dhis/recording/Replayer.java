@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.recording;
+
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.hisp.dhis.response.dto.ResponseSummary;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends recorded exchanges again, at the recorded rate or scaled, against
+ * any base uri. Requests are started at their recorded offset from the
+ * first exchange divided by the speed, so the load profile of the recording
+ * is kept. Response bodies are discarded.
+ */
+public class Replayer
+{
+    private final List<Exchange> exchanges;
+
+    private final int threads;
+
+    public Replayer( List<Exchange> exchanges )
+    {
+        this( exchanges, 16 );
+    }
+
+    /**
+     * @param exchanges exchanges in the order they were recorded
+     * @param threads number of threads sending requests
+     */
+    public Replayer( List<Exchange> exchanges, int threads )
+    {
+        this.exchanges = Collections.unmodifiableList( new ArrayList<>( exchanges ) );
+        this.threads = threads;
+    }
+
+    public static Replayer fromFile( Path recording )
+    {
+        return new Replayer( RecordingReader.readAll( recording ) );
+    }
+
+    /**
+     * Replays the recording.
+     *
+     * @param baseUri base uri to send the requests to
+     * @param speed 1 for the recorded rate, 2 for twice as fast, 0 to send
+     *        the requests as fast as possible
+     * @return summaries of the responses, in the order of the recording
+     */
+    public List<ResponseSummary> replay( String baseUri, double speed )
+    {
+        if ( exchanges.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool( threads );
+        long first = exchanges.get( 0 ).getStartedAt();
+
+        try
+        {
+            List<Future<ResponseSummary>> futures = new ArrayList<>( exchanges.size() );
+
+            for ( Exchange exchange : exchanges )
+            {
+                long delayNanos = speed <= 0 ? 0
+                    : (long) (TimeUnit.MILLISECONDS.toNanos( exchange.getStartedAt() - first ) / speed);
+
+                futures.add( executor.schedule( () -> send( baseUri, exchange ), delayNanos, TimeUnit.NANOSECONDS ) );
+            }
+
+            List<ResponseSummary> summaries = new ArrayList<>( futures.size() );
+
+            for ( Future<ResponseSummary> future : futures )
+            {
+                summaries.add( future.get() );
+            }
+
+            return summaries;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Replay was interrupted", e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IllegalStateException( "Replaying request failed", e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private ResponseSummary send( String baseUri, Exchange exchange )
+    {
+        RequestSpecification request = RestAssured.given()
+            .baseUri( baseUri )
+            .urlEncodingEnabled( false );
+
+        if ( exchange.getRequestContentType() != null )
+        {
+            request.contentType( exchange.getRequestContentType() );
+        }
+
+        if ( exchange.getRequestBody().length > 0 )
+        {
+            request.body( exchange.getRequestBody() );
+        }
+
+        long start = System.nanoTime();
+        Response response = request.request( exchange.getMethod(), exchange.getPathAndQuery() );
+
+        return ResponseSummary.of( response, start, false );
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.recording;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Binary log of the timing of every request, for analysis after long runs.
+ * Each thread writes into its own memory mapped chunk of the file, so
+ * recording a request takes no lock and allocates nothing. A thread claims
+ * the next free chunk with a single atomic add when its chunk is full.
+ * Chunks are appended, never reused, so the log keeps every request of a run
+ * while holding nothing in heap. Full chunks are forced to disk by a
+ * background thread, the chunks in use when the log is closed.
+ * <p>
+ * Format: a header of {@value #HEADER_SIZE} bytes with the magic bytes
+ * {@code DTL1}, the record size and the number of records per chunk,
+ * followed by chunks of fixed size records: long timestamp in epoch millis,
+ * long latency in nanos, long response bytes (-1 when unknown), int endpoint
+ * id, short status and two reserved bytes. The timestamp is written last, a
+ * zero timestamp ends the used part of a chunk. Endpoint names are appended
+ * to a text file next to the log, see {@link #endpointsFile(Path)}.
+ */
+public class TimingLog
+    implements Closeable
+{
+    static final byte[] MAGIC = { 'D', 'T', 'L', '1' };
+
+    static final int HEADER_SIZE = 64;
+
+    static final int RECORD_SIZE = 32;
+
+    public static final int DEFAULT_CHUNK_RECORDS = 32_768;
+
+    private final FileChannel channel;
+
+    private final Writer endpointsWriter;
+
+    private final int chunkSize;
+
+    private final AtomicLong nextChunk;
+
+    private final Map<String, Integer> endpoints = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextEndpointId = new AtomicInteger();
+
+    private final ThreadLocal<Chunk> chunks = new ThreadLocal<>();
+
+    private final Set<Chunk> activeChunks = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "timing-log-flush" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private volatile boolean closed;
+
+    public TimingLog( Path file )
+    {
+        this( file, DEFAULT_CHUNK_RECORDS );
+    }
+
+    /**
+     * @param file file to write, replaced if it exists
+     * @param chunkRecords number of records in the chunk of a thread
+     */
+    public TimingLog( Path file, int chunkRecords )
+    {
+        if ( chunkRecords < 1 )
+        {
+            throw new IllegalArgumentException( "Chunk has to hold at least one record, got " + chunkRecords );
+        }
+
+        this.chunkSize = chunkRecords * RECORD_SIZE;
+        this.nextChunk = new AtomicLong( HEADER_SIZE );
+
+        try
+        {
+            this.channel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING );
+            this.endpointsWriter = Files.newBufferedWriter( endpointsFile( file ), StandardCharsets.UTF_8 );
+
+            ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+
+            for ( int i = 0; i < MAGIC.length; i++ )
+            {
+                header.put( i, MAGIC[i] );
+            }
+
+            header.putInt( 4, RECORD_SIZE ).putInt( 8, chunkRecords );
+            channel.write( header, 0 );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Returns the file holding the endpoint names of the log, one
+     * {@code id<TAB>name} line per endpoint.
+     *
+     * @param file the log
+     * @return the endpoints file
+     */
+    public static Path endpointsFile( Path file )
+    {
+        return Paths.get( file.toString() + ".endpoints" );
+    }
+
+    /**
+     * Returns the id of the endpoint, registering it on first use.
+     *
+     * @param endpoint name of the endpoint, for example {@code GET /dataElements}
+     * @return id of the endpoint
+     */
+    public int endpointId( String endpoint )
+    {
+        Integer id = endpoints.get( endpoint );
+
+        return id != null ? id : endpoints.computeIfAbsent( endpoint, this::register );
+    }
+
+    /**
+     * Records a request that completed now.
+     *
+     * @param endpoint name of the endpoint
+     * @param status status code of the response
+     * @param latencyNanos time from sending the request to reading the response
+     * @param bytes size of the response body, -1 when unknown
+     */
+    public void record( String endpoint, int status, long latencyNanos, long bytes )
+    {
+        record( endpointId( endpoint ), status, latencyNanos, bytes );
+    }
+
+    public void record( int endpointId, int status, long latencyNanos, long bytes )
+    {
+        if ( closed )
+        {
+            return;
+        }
+
+        Chunk chunk = chunks.get();
+
+        if ( chunk == null || chunk.position == chunkSize )
+        {
+            chunk = claimChunk( chunk );
+        }
+
+        int position = chunk.position;
+
+        chunk.buffer.putLong( position + 8, latencyNanos )
+            .putLong( position + 16, bytes )
+            .putInt( position + 24, endpointId )
+            .putShort( position + 28, (short) status )
+            .putLong( position, System.currentTimeMillis() );
+        chunk.position = position + RECORD_SIZE;
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        flusher.shutdown();
+
+        try
+        {
+            flusher.awaitTermination( 1, TimeUnit.MINUTES );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        try
+        {
+            for ( Chunk chunk : activeChunks )
+            {
+                chunk.buffer.force();
+            }
+
+            synchronized ( endpointsWriter )
+            {
+                endpointsWriter.close();
+            }
+
+            channel.close();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private Chunk claimChunk( Chunk full )
+    {
+        if ( full != null )
+        {
+            activeChunks.remove( full );
+
+            try
+            {
+                flusher.execute( full.buffer::force );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                // closed meanwhile
+                full.buffer.force();
+            }
+        }
+
+        try
+        {
+            Chunk chunk = new Chunk(
+                channel.map( FileChannel.MapMode.READ_WRITE, nextChunk.getAndAdd( chunkSize ), chunkSize ) );
+            chunks.set( chunk );
+            activeChunks.add( chunk );
+
+            return chunk;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private Integer register( String endpoint )
+    {
+        int id = nextEndpointId.getAndIncrement();
+
+        synchronized ( endpointsWriter )
+        {
+            try
+            {
+                endpointsWriter.write( id + "\t" + endpoint + "\n" );
+                endpointsWriter.flush();
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        return id;
+    }
+
+    private static class Chunk
+    {
+        private final MappedByteBuffer buffer;
+
+        private int position;
+
+        private Chunk( MappedByteBuffer buffer )
+        {
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.recording;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads a log written by {@link TimingLog}. Records are streamed one chunk at
+ * a time, so logs of any length can be converted. Records of different
+ * threads are in different chunks and are not ordered by time.
+ */
+public class TimingLogReader
+    implements Closeable
+{
+    private final FileChannel channel;
+
+    private final int chunkSize;
+
+    private final Map<Integer, String> endpoints = new HashMap<>();
+
+    public TimingLogReader( Path file )
+    {
+        try
+        {
+            this.channel = FileChannel.open( file, StandardOpenOption.READ );
+
+            ByteBuffer header = ByteBuffer.wrap( readFully( 0, TimingLog.HEADER_SIZE ) );
+            byte[] magic = new byte[TimingLog.MAGIC.length];
+            header.get( magic );
+
+            if ( !Arrays.equals( magic, TimingLog.MAGIC ) || header.getInt( 4 ) != TimingLog.RECORD_SIZE )
+            {
+                throw new IOException( file + " is not a timing log" );
+            }
+
+            this.chunkSize = header.getInt( 8 ) * TimingLog.RECORD_SIZE;
+
+            Path endpointsFile = TimingLog.endpointsFile( file );
+
+            if ( Files.exists( endpointsFile ) )
+            {
+                for ( String line : Files.readAllLines( endpointsFile, StandardCharsets.UTF_8 ) )
+                {
+                    int tab = line.indexOf( '\t' );
+
+                    if ( tab > 0 )
+                    {
+                        endpoints.put( Integer.parseInt( line.substring( 0, tab ) ), line.substring( tab + 1 ) );
+                    }
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    public Map<Integer, String> getEndpoints()
+    {
+        return endpoints;
+    }
+
+    public String getEndpoint( int endpointId )
+    {
+        return endpoints.getOrDefault( endpointId, String.valueOf( endpointId ) );
+    }
+
+    /**
+     * Passes every record of the log to the handler.
+     *
+     * @param handler handler of the records
+     */
+    public void forEach( RecordHandler handler )
+    {
+        try
+        {
+            for ( long offset = TimingLog.HEADER_SIZE; offset < channel.size(); offset += chunkSize )
+            {
+                ByteBuffer chunk = ByteBuffer.wrap( readFully( offset, chunkSize ) );
+
+                for ( int position = 0; position + TimingLog.RECORD_SIZE <= chunk.capacity();
+                    position += TimingLog.RECORD_SIZE )
+                {
+                    long timestamp = chunk.getLong( position );
+
+                    if ( timestamp == 0 )
+                    {
+                        break;
+                    }
+
+                    handler.accept( timestamp, chunk.getInt( position + 24 ), chunk.getShort( position + 28 ),
+                        chunk.getLong( position + 8 ), chunk.getLong( position + 16 ) );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Writes one CSV line per request:
+     * {@code timestamp,endpoint,status,latency_ms,bytes}.
+     *
+     * @param out writer of the CSV
+     */
+    public void writeCsv( Writer out )
+    {
+        try
+        {
+            out.write( "timestamp,endpoint,status,latency_ms,bytes\n" );
+
+            forEach( ( timestamp, endpointId, status, latencyNanos, bytes ) -> {
+                try
+                {
+                    out.write( timestamp + "," + csv( getEndpoint( endpointId ) ) + "," + status + "," +
+                        latencyNanos / 1_000_000.0 + "," + bytes + "\n" );
+                }
+                catch ( IOException e )
+                {
+                    throw new UncheckedIOException( e );
+                }
+            } );
+
+            out.flush();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Writes a CSV series with one line per time bucket and endpoint:
+     * {@code bucket_start,endpoint,count,errors,mean_ms,max_ms,bytes}.
+     * Responses with a status of 400 or more count as errors. Only the
+     * buckets are kept in memory, not the records.
+     *
+     * @param out writer of the CSV
+     * @param bucketMillis length of a bucket
+     */
+    public void writeSeries( Writer out, long bucketMillis )
+    {
+        Map<Long, Map<Integer, Bucket>> buckets = new TreeMap<>();
+
+        forEach( ( timestamp, endpointId, status, latencyNanos, bytes ) -> buckets
+            .computeIfAbsent( timestamp - timestamp % bucketMillis, start -> new TreeMap<>() )
+            .computeIfAbsent( endpointId, id -> new Bucket() )
+            .add( status, latencyNanos, bytes ) );
+
+        try
+        {
+            out.write( "bucket_start,endpoint,count,errors,mean_ms,max_ms,bytes\n" );
+
+            for ( Map.Entry<Long, Map<Integer, Bucket>> bucket : buckets.entrySet() )
+            {
+                for ( Map.Entry<Integer, Bucket> endpoint : bucket.getValue().entrySet() )
+                {
+                    Bucket value = endpoint.getValue();
+
+                    out.write( bucket.getKey() + "," + csv( getEndpoint( endpoint.getKey() ) ) + "," + value.count +
+                        "," + value.errors + "," + value.latencyNanos / value.count / 1_000_000.0 + "," +
+                        value.maxLatencyNanos / 1_000_000.0 + "," + value.bytes + "\n" );
+                }
+            }
+
+            out.flush();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            channel.close();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private byte[] readFully( long offset, int length )
+        throws IOException
+    {
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = ByteBuffer.wrap( bytes );
+
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer, offset + buffer.position() ) < 0 )
+            {
+                break;
+            }
+        }
+
+        return bytes;
+    }
+
+    private static String csv( String value )
+    {
+        return value.contains( "," ) || value.contains( "\"" ) ? "\"" + value.replace( "\"", "\"\"" ) + "\"" : value;
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler
+    {
+        void accept( long timestamp, int endpointId, int status, long latencyNanos, long bytes );
+    }
+
+    private static class Bucket
+    {
+        private long count;
+
+        private long errors;
+
+        private long latencyNanos;
+
+        private long maxLatencyNanos;
+
+        private long bytes;
+
+        private void add( int status, long latencyNanos, long bytes )
+        {
+            count++;
+            errors += status >= 400 ? 1 : 0;
+            this.latencyNanos += latencyNanos;
+            maxLatencyNanos = Math.max( maxLatencyNanos, latencyNanos );
+            this.bytes += Math.max( bytes, 0 );
+        }
+    }
+}
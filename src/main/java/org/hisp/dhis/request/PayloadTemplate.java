@@ -0,0 +1,614 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.request;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import org.hisp.dhis.utils.JsonObjectBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Payload serialized once into byte segments with typed slots in between.
+ * Requests are rendered by splicing slot values into a reusable buffer, so
+ * sending many nearly identical payloads needs no JSON serialization.
+ * <p>
+ * Slots are declared by using placeholders as string values in the payload,
+ * for example:
+ *
+ * <pre>
+ * PayloadTemplate template = PayloadTemplate.compile( new JsonObjectBuilder()
+ *     .addProperty( "trackedEntity", PayloadTemplate.uid( "te" ) )
+ *     .addProperty( "enrolledAt", PayloadTemplate.date( "enrolledAt" ) )
+ *     .wrapIntoArray( "trackedEntities" ) );
+ *
+ * PayloadTemplate.Renderer renderer = template.newRenderer();
+ * byte[] body = renderer.set( "te", uid ).set( "enrolledAt", date ).render();
+ * </pre>
+ *
+ * A placeholder has to be the whole value. Slots with the same name share
+ * the value.
+ */
+public class PayloadTemplate
+{
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private static final Pattern SLOT_PATTERN = Pattern.compile( "\"\\$\\{(uid|date|text|number|boolean):([^}\"]+)}\"" );
+
+    public enum SlotType
+    {
+        /**
+         * DHIS2 uid, written as a string. Must be alphanumeric.
+         */
+        UID( "uid" ),
+
+        /**
+         * Date or timestamp, written as a string. Must be ASCII without quotes.
+         */
+        DATE( "date" ),
+
+        /**
+         * Any text, JSON escaped and written as a string.
+         */
+        TEXT( "text" ),
+
+        /**
+         * Number, written without quotes.
+         */
+        NUMBER( "number" ),
+
+        /**
+         * Boolean, written without quotes.
+         */
+        BOOLEAN( "boolean" );
+
+        private final String prefix;
+
+        SlotType( String prefix )
+        {
+            this.prefix = prefix;
+        }
+
+        private static SlotType fromPrefix( String prefix )
+        {
+            for ( SlotType type : values() )
+            {
+                if ( type.prefix.equals( prefix ) )
+                {
+                    return type;
+                }
+            }
+
+            throw new IllegalArgumentException( "Unknown slot type: " + prefix );
+        }
+    }
+
+    private final byte[][] segments;
+
+    private final int[] segmentSlots;
+
+    private final String[] slotNames;
+
+    private final SlotType[] slotTypes;
+
+    private final Map<String, Integer> slotIndexes;
+
+    private final int staticLength;
+
+    private PayloadTemplate( byte[][] segments, int[] segmentSlots, Map<String, SlotType> slots )
+    {
+        this.segments = segments;
+        this.segmentSlots = segmentSlots;
+        this.slotNames = slots.keySet().toArray( new String[0] );
+        this.slotTypes = slots.values().toArray( new SlotType[0] );
+        this.slotIndexes = new LinkedHashMap<>();
+
+        for ( int i = 0; i < slotNames.length; i++ )
+        {
+            slotIndexes.put( slotNames[i], i );
+        }
+
+        this.staticLength = Arrays.stream( segments ).mapToInt( segment -> segment.length ).sum();
+    }
+
+    public static String uid( String name )
+    {
+        return slot( SlotType.UID, name );
+    }
+
+    public static String date( String name )
+    {
+        return slot( SlotType.DATE, name );
+    }
+
+    public static String text( String name )
+    {
+        return slot( SlotType.TEXT, name );
+    }
+
+    public static String number( String name )
+    {
+        return slot( SlotType.NUMBER, name );
+    }
+
+    public static String bool( String name )
+    {
+        return slot( SlotType.BOOLEAN, name );
+    }
+
+    /**
+     * Returns the placeholder declaring a slot.
+     *
+     * @param type type of the slot
+     * @param name name of the slot
+     * @return placeholder to use as a string value in the payload
+     */
+    public static String slot( SlotType type, String name )
+    {
+        return "${" + type.prefix + ":" + name + "}";
+    }
+
+    public static PayloadTemplate compile( JsonObjectBuilder builder )
+    {
+        return compile( builder.build() );
+    }
+
+    public static PayloadTemplate compile( JsonElement payload )
+    {
+        return compile( GSON.toJson( payload ) );
+    }
+
+    /**
+     * Compiles a serialized payload containing slot placeholders.
+     *
+     * @param json serialized payload
+     * @return PayloadTemplate
+     */
+    public static PayloadTemplate compile( String json )
+    {
+        List<byte[]> segments = new ArrayList<>();
+        List<Integer> segmentSlots = new ArrayList<>();
+        Map<String, SlotType> slots = new LinkedHashMap<>();
+        Map<String, Integer> indexes = new LinkedHashMap<>();
+
+        Matcher matcher = SLOT_PATTERN.matcher( json );
+        int position = 0;
+
+        while ( matcher.find() )
+        {
+            SlotType type = SlotType.fromPrefix( matcher.group( 1 ) );
+            String name = matcher.group( 2 );
+            SlotType existing = slots.putIfAbsent( name, type );
+
+            if ( existing != null && existing != type )
+            {
+                throw new IllegalArgumentException(
+                    String.format( "Slot %s is declared both as %s and %s", name, existing, type ) );
+            }
+
+            segments.add( json.substring( position, matcher.start() ).getBytes( StandardCharsets.UTF_8 ) );
+            indexes.putIfAbsent( name, indexes.size() );
+            segmentSlots.add( indexes.get( name ) );
+            position = matcher.end();
+        }
+
+        segments.add( json.substring( position ).getBytes( StandardCharsets.UTF_8 ) );
+
+        return new PayloadTemplate( segments.toArray( new byte[0][] ),
+            segmentSlots.stream().mapToInt( Integer::intValue ).toArray(), slots );
+    }
+
+    public List<String> getSlotNames()
+    {
+        return Collections.unmodifiableList( Arrays.asList( slotNames ) );
+    }
+
+    public SlotType getSlotType( String name )
+    {
+        return slotTypes[slotIndex( name )];
+    }
+
+    /**
+     * Returns the index of the slot, for use with {@link Renderer#set(int, String)}.
+     *
+     * @param name name of the slot
+     * @return index of the slot
+     */
+    public int slotIndex( String name )
+    {
+        Integer index = slotIndexes.get( name );
+
+        if ( index == null )
+        {
+            throw new IllegalArgumentException( "Template has no slot named " + name );
+        }
+
+        return index;
+    }
+
+    /**
+     * Creates a renderer with its own buffer. Renderers are not thread safe, so
+     * every worker thread should use its own.
+     *
+     * @return Renderer
+     */
+    public Renderer newRenderer()
+    {
+        return new Renderer();
+    }
+
+    private static boolean isValidLiteral( SlotType type, String value )
+    {
+        switch ( type )
+        {
+        case NUMBER:
+            return isJsonNumber( value );
+
+        case BOOLEAN:
+            return value.equals( "true" ) || value.equals( "false" );
+
+        default:
+            return true;
+        }
+    }
+
+    /**
+     * @return whether the value matches the JSON number grammar
+     */
+    static boolean isJsonNumber( String value )
+    {
+        int length = value.length();
+        int i = 0;
+
+        if ( i < length && value.charAt( i ) == '-' )
+        {
+            i++;
+        }
+
+        if ( i < length && value.charAt( i ) == '0' )
+        {
+            i++;
+        }
+        else
+        {
+            int start = i;
+            i = skipDigits( value, i );
+
+            if ( i == start )
+            {
+                return false;
+            }
+        }
+
+        if ( i < length && value.charAt( i ) == '.' )
+        {
+            int start = ++i;
+            i = skipDigits( value, i );
+
+            if ( i == start )
+            {
+                return false;
+            }
+        }
+
+        if ( i < length && (value.charAt( i ) == 'e' || value.charAt( i ) == 'E') )
+        {
+            i++;
+
+            if ( i < length && (value.charAt( i ) == '+' || value.charAt( i ) == '-') )
+            {
+                i++;
+            }
+
+            int start = i;
+            i = skipDigits( value, i );
+
+            if ( i == start )
+            {
+                return false;
+            }
+        }
+
+        return i == length;
+    }
+
+    private static int skipDigits( String value, int i )
+    {
+        while ( i < value.length() && value.charAt( i ) >= '0' && value.charAt( i ) <= '9' )
+        {
+            i++;
+        }
+
+        return i;
+    }
+
+    /**
+     * Fills the slots of the template and renders the payload into a buffer
+     * reused between renders.
+     */
+    public class Renderer
+    {
+        private final String[] values = new String[slotNames.length];
+
+        private byte[] buffer = new byte[staticLength + 64 * slotNames.length];
+
+        private int size;
+
+        private Renderer()
+        {
+        }
+
+        public Renderer set( String name, String value )
+        {
+            return set( slotIndex( name ), value );
+        }
+
+        public Renderer set( String name, long value )
+        {
+            return set( slotIndex( name ), String.valueOf( value ) );
+        }
+
+        public Renderer set( String name, double value )
+        {
+            return set( slotIndex( name ), String.valueOf( value ) );
+        }
+
+        public Renderer set( String name, boolean value )
+        {
+            return set( slotIndex( name ), String.valueOf( value ) );
+        }
+
+        /**
+         * Sets the value of a slot. Values of number and boolean slots are
+         * written as they are, so they have to be a JSON number or true or
+         * false.
+         *
+         * @param slot index of the slot
+         * @param value value of the slot, null is written as JSON null
+         * @return Renderer
+         * @throws IllegalArgumentException if the value is not valid for a
+         *         number or boolean slot
+         */
+        public Renderer set( int slot, String value )
+        {
+            if ( value != null && !isValidLiteral( slotTypes[slot], value ) )
+            {
+                throw new IllegalArgumentException(
+                    String.format( "Invalid value for %s slot %s: %s", slotTypes[slot], slotNames[slot], value ) );
+            }
+
+            values[slot] = value;
+
+            return this;
+        }
+
+        /**
+         * Renders the payload into the internal buffer.
+         *
+         * @return size of the rendered payload in bytes
+         */
+        public int renderToBuffer()
+        {
+            size = 0;
+
+            for ( int i = 0; i < segmentSlots.length; i++ )
+            {
+                append( segments[i] );
+
+                int slot = segmentSlots[i];
+                String value = values[slot];
+
+                if ( value == null )
+                {
+                    appendAscii( "null" );
+                    continue;
+                }
+
+                switch ( slotTypes[slot] )
+                {
+                case UID:
+                case DATE:
+                    appendQuotedAscii( slot, value );
+                    break;
+
+                case TEXT:
+                    appendQuotedText( value );
+                    break;
+
+                default:
+                    appendAscii( value );
+                    break;
+                }
+            }
+
+            append( segments[segments.length - 1] );
+
+            return size;
+        }
+
+        /**
+         * Renders the payload, for use as request body.
+         *
+         * @return a copy of the rendered payload
+         */
+        public byte[] render()
+        {
+            renderToBuffer();
+
+            return Arrays.copyOf( buffer, size );
+        }
+
+        /**
+         * Renders the payload directly into the output stream.
+         *
+         * @param outputStream stream to write to
+         * @throws IOException if writing fails
+         */
+        public void writeTo( OutputStream outputStream )
+            throws IOException
+        {
+            renderToBuffer();
+            outputStream.write( buffer, 0, size );
+        }
+
+        private void append( byte[] bytes )
+        {
+            ensureCapacity( bytes.length );
+            System.arraycopy( bytes, 0, buffer, size, bytes.length );
+            size += bytes.length;
+        }
+
+        private void appendAscii( String value )
+        {
+            ensureCapacity( value.length() );
+
+            for ( int i = 0; i < value.length(); i++ )
+            {
+                buffer[size++] = (byte) value.charAt( i );
+            }
+        }
+
+        private void appendQuotedAscii( int slot, String value )
+        {
+            ensureCapacity( value.length() + 2 );
+            buffer[size++] = '"';
+
+            for ( int i = 0; i < value.length(); i++ )
+            {
+                char c = value.charAt( i );
+
+                if ( c < 0x20 || c >= 0x80 || c == '"' || c == '\\' ||
+                    (slotTypes[slot] == SlotType.UID && !Character.isLetterOrDigit( c )) )
+                {
+                    throw new IllegalArgumentException(
+                        String.format( "Invalid value for %s slot %s: %s", slotTypes[slot], slotNames[slot], value ) );
+                }
+
+                buffer[size++] = (byte) c;
+            }
+
+            buffer[size++] = '"';
+        }
+
+        private void appendQuotedText( String value )
+        {
+            // worst case: every char is escaped as \\uXXXX
+            ensureCapacity( value.length() * 6 + 2 );
+            buffer[size++] = '"';
+
+            for ( int i = 0; i < value.length(); i++ )
+            {
+                char c = value.charAt( i );
+
+                if ( c == '"' || c == '\\' )
+                {
+                    buffer[size++] = '\\';
+                    buffer[size++] = (byte) c;
+                }
+                else if ( c < 0x20 )
+                {
+                    appendEscapedControl( c );
+                }
+                else if ( c < 0x80 )
+                {
+                    buffer[size++] = (byte) c;
+                }
+                else if ( c < 0x800 )
+                {
+                    buffer[size++] = (byte) (0xC0 | (c >> 6));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+                else if ( Character.isHighSurrogate( c ) && i + 1 < value.length() &&
+                    Character.isLowSurrogate( value.charAt( i + 1 ) ) )
+                {
+                    int codePoint = Character.toCodePoint( c, value.charAt( ++i ) );
+                    buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                }
+                else
+                {
+                    buffer[size++] = (byte) (0xE0 | (c >> 12));
+                    buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+
+            buffer[size++] = '"';
+        }
+
+        private void appendEscapedControl( char c )
+        {
+            buffer[size++] = '\\';
+
+            switch ( c )
+            {
+            case '\n':
+                buffer[size++] = 'n';
+                break;
+
+            case '\r':
+                buffer[size++] = 'r';
+                break;
+
+            case '\t':
+                buffer[size++] = 't';
+                break;
+
+            default:
+                buffer[size++] = 'u';
+                buffer[size++] = '0';
+                buffer[size++] = '0';
+                buffer[size++] = (byte) Character.forDigit( c >> 4, 16 );
+                buffer[size++] = (byte) Character.forDigit( c & 0xF, 16 );
+                break;
+            }
+        }
+
+        private void ensureCapacity( int additional )
+        {
+            if ( size + additional > buffer.length )
+            {
+                buffer = Arrays.copyOf( buffer, Math.max( buffer.length * 2, size + additional ) );
+            }
+        }
+    }
+}
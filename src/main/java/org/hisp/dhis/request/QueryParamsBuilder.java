@@ -3,7 +3,9 @@ package org.hisp.dhis.request;
 import org.apache.commons.lang3.tuple.MutablePair;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
 * @author Gintare Vilkelyte
@@ -12,9 +14,16 @@ public class QueryParamsBuilder
 {
     private List<MutablePair<String, String>> queryParams;
 
+    private Map<String, MutablePair<String, String>> paramsByKey;
+
+    private String built;
+
+    private String builtEncoded;
+
     public QueryParamsBuilder()
     {
         queryParams = new ArrayList<>();
+        paramsByKey = new HashMap<>();
     }
 
     /**
@@ -26,7 +35,7 @@ public class QueryParamsBuilder
      */
     public QueryParamsBuilder addOrUpdate( String param )
     {
-        String[] split= param.split( "=" );
+        String[] split = split( param );
 
         return this.addOrUpdate( split[0], split[1] );
     }
@@ -41,17 +50,16 @@ public class QueryParamsBuilder
 
     public QueryParamsBuilder addOrUpdate( String key, String value )
     {
-        MutablePair<String, String> pair = getByKey( key );
+        MutablePair<String, String> pair = paramsByKey.get( key );
 
         if ( pair != null )
         {
             pair.setRight( value );
+            invalidate();
             return this;
         }
 
-        queryParams.add( MutablePair.of( key, value ) );
-
-        return this;
+        return add( key, value );
     }
 
     /**
@@ -63,7 +71,7 @@ public class QueryParamsBuilder
      */
     public QueryParamsBuilder add( String param )
     {
-        String[] split= param.split( "=" );
+        String[] split = split( param );
 
         return this.add( split[0], split[1] );
     }
@@ -78,7 +86,11 @@ public class QueryParamsBuilder
 
     public QueryParamsBuilder add( String key, String value )
     {
-        queryParams.add( MutablePair.of( key, value ) );
+        MutablePair<String, String> pair = MutablePair.of( key, value );
+
+        queryParams.add( pair );
+        paramsByKey.putIfAbsent( key, pair );
+        invalidate();
 
         return this;
     }
@@ -113,19 +125,81 @@ public class QueryParamsBuilder
         return this;
     }
 
-    private MutablePair<String, String> getByKey( String key )
+    /**
+     * Returns the query params built as part of URL query. Only %, &amp;, #
+     * and + are escaped in keys and values, the rest is encoded when the
+     * request is sent, see {@link UrlEncoding}.
+     * The result is cached until the params change.
+     *
+     * @return built query parameters. Starts with ?.
+     */
+    public String build()
     {
-        return queryParams.stream()
-            .filter( p -> p.getLeft().equals( key ) )
-            .findFirst()
-            .orElse( null );
+        if ( built == null )
+        {
+            built = build( false );
+        }
+
+        return built;
     }
 
     /**
-     * Returns the query params built as part of URL query.
-     * @return built query parameters. Starts with ?.
+     * Returns the query params built as part of URL query, with keys and values
+     * URL encoded. It is sent unchanged by
+     * {@link org.hisp.dhis.actions.RestApiActions}, see {@link UrlEncoding}.
+     * The result is cached until the params change.
+     *
+     * @return built and encoded query parameters. Starts with ?.
      */
-    public String build()
+    public String buildEncoded()
+    {
+        if ( builtEncoded == null )
+        {
+            builtEncoded = build( true );
+        }
+
+        return builtEncoded;
+    }
+
+    /**
+     * Returns an independent copy of the params, so params can be added or
+     * updated for one request without changing this builder.
+     *
+     * @return QueryParamsBuilder
+     */
+    public QueryParamsBuilder copy()
+    {
+        QueryParamsBuilder copy = new QueryParamsBuilder();
+        queryParams.forEach( pair -> copy.add( pair.getLeft(), pair.getRight() ) );
+
+        return copy;
+    }
+
+    /**
+     * Compiles the params into a template where the values of the given keys
+     * can be replaced per request, without rebuilding or re-encoding the rest
+     * of the params. Keys not added yet are appended to the end of the
+     * template. The builder is not changed.
+     *
+     * @param varyingKeys keys of the params which change between requests
+     * @return QueryParamsTemplate
+     */
+    public QueryParamsTemplate template( String... varyingKeys )
+    {
+        List<MutablePair<String, String>> params = new ArrayList<>( queryParams );
+
+        for ( String key : varyingKeys )
+        {
+            if ( !paramsByKey.containsKey( key ) )
+            {
+                params.add( MutablePair.of( key, "" ) );
+            }
+        }
+
+        return new QueryParamsTemplate( params, varyingKeys );
+    }
+
+    private String build( boolean encode )
     {
         if ( queryParams.size() == 0 )
         {
@@ -137,7 +211,11 @@ public class QueryParamsBuilder
 
         for ( int i = 0; i < queryParams.size(); i++ )
         {
-            builder.append( String.format( "%s=%s", queryParams.get( i ).getLeft(), queryParams.get( i ).getRight() ) );
+            MutablePair<String, String> pair = queryParams.get( i );
+
+            builder.append( encode( pair.getLeft(), encode ) )
+                .append( '=' )
+                .append( encode( pair.getRight(), encode ) );
 
             if ( i != queryParams.size() - 1 )
             {
@@ -147,4 +225,27 @@ public class QueryParamsBuilder
 
         return builder.toString();
     }
+
+    private void invalidate()
+    {
+        built = null;
+        builtEncoded = null;
+    }
+
+    static String encode( String value, boolean encode )
+    {
+        return encode ? UrlEncoding.encodeQueryComponent( value ) : UrlEncoding.escapeQueryComponent( value );
+    }
+
+    private static String[] split( String param )
+    {
+        int separator = param.indexOf( '=' );
+
+        if ( separator < 0 )
+        {
+            return new String[] { param, "" };
+        }
+
+        return new String[] { param.substring( 0, separator ), param.substring( separator + 1 ) };
+    }
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.request;
+
+import org.apache.commons.lang3.tuple.MutablePair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Query params compiled by {@link QueryParamsBuilder#template(String...)}.
+ * The static part of the query is built and encoded once, only the values of
+ * the varying params are appended per request. Instances are immutable and
+ * can be shared between threads.
+ */
+public class QueryParamsTemplate
+{
+    private final String[] varyingKeys;
+
+    private final String[] segments;
+
+    private final String[] encodedSegments;
+
+    private final int[] slots;
+
+    QueryParamsTemplate( List<MutablePair<String, String>> queryParams, String... varyingKeys )
+    {
+        this.varyingKeys = varyingKeys.clone();
+
+        List<String> segments = new ArrayList<>();
+        List<String> encodedSegments = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+
+        StringBuilder segment = new StringBuilder( "?" );
+        StringBuilder encodedSegment = new StringBuilder( "?" );
+
+        for ( int i = 0; i < queryParams.size(); i++ )
+        {
+            String key = queryParams.get( i ).getLeft();
+            int slot = Arrays.asList( varyingKeys ).indexOf( key );
+
+            if ( i > 0 )
+            {
+                segment.append( '&' );
+                encodedSegment.append( '&' );
+            }
+
+            segment.append( QueryParamsBuilder.encode( key, false ) ).append( '=' );
+            encodedSegment.append( QueryParamsBuilder.encode( key, true ) ).append( '=' );
+
+            if ( slot < 0 )
+            {
+                segment.append( QueryParamsBuilder.encode( queryParams.get( i ).getRight(), false ) );
+                encodedSegment.append( QueryParamsBuilder.encode( queryParams.get( i ).getRight(), true ) );
+                continue;
+            }
+
+            segments.add( segment.toString() );
+            encodedSegments.add( encodedSegment.toString() );
+            slots.add( slot );
+            segment.setLength( 0 );
+            encodedSegment.setLength( 0 );
+        }
+
+        segments.add( segment.toString() );
+        encodedSegments.add( encodedSegment.toString() );
+
+        this.segments = segments.toArray( new String[0] );
+        this.encodedSegments = encodedSegments.toArray( new String[0] );
+        this.slots = slots.stream().mapToInt( Integer::intValue ).toArray();
+    }
+
+    /**
+     * Builds the query with the given values, escaped like
+     * {@link QueryParamsBuilder#build()}.
+     *
+     * @param values values of the varying params, in the order the keys were
+     *        passed to {@link QueryParamsBuilder#template(String...)}
+     * @return built query parameters. Starts with ?.
+     */
+    public String build( String... values )
+    {
+        return build( segments, false, values );
+    }
+
+    /**
+     * Builds the query with the given values. Only the values are encoded, the
+     * static part is encoded when the template is compiled.
+     *
+     * @param values values of the varying params, in the order the keys were
+     *        passed to {@link QueryParamsBuilder#template(String...)}
+     * @return built and encoded query parameters. Starts with ?.
+     */
+    public String buildEncoded( String... values )
+    {
+        return build( encodedSegments, true, values );
+    }
+
+    public List<String> getVaryingKeys()
+    {
+        return Arrays.asList( varyingKeys.clone() );
+    }
+
+    private String build( String[] segments, boolean encode, String... values )
+    {
+        if ( values.length != varyingKeys.length )
+        {
+            throw new IllegalArgumentException(
+                String.format( "Expected %d values for %s, got %d", varyingKeys.length, Arrays.toString( varyingKeys ),
+                    values.length ) );
+        }
+
+        StringBuilder builder = new StringBuilder( segments[0] );
+
+        for ( int i = 0; i < slots.length; i++ )
+        {
+            String value = values[slots[i]];
+
+            builder.append( QueryParamsBuilder.encode( value, encode ) )
+                .append( segments[i + 1] );
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hisp.dhis.request;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * URL encoding of the paths and queries sent by
+ * {@link org.hisp.dhis.actions.RestApiActions}, through Rest-Assured or an
+ * {@link org.hisp.dhis.transport.HttpTransport}. Paths and queries are passed
+ * around in one form: {@code %XX} is an escape, characters that are allowed
+ * in a URI stand for themselves, and all other characters are encoded by
+ * {@link #encodeUri(String)} when the request is sent. A {@code +} in a query
+ * is read as a space by DHIS2.
+ * <p>
+ * {@link QueryParamsBuilder#build()} escapes only {@code %}, {@code &},
+ * {@code #} and {@code +} in keys and values, so the query stays readable
+ * and every value reaches the server unchanged.
+ * {@link QueryParamsBuilder#buildEncoded()} encodes all but the unreserved
+ * characters. Both are sent as they are.
+ */
+public final class UrlEncoding
+{
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private UrlEncoding()
+    {
+    }
+
+    /**
+     * Percent encodes the path and query of the URI as UTF-8. Unreserved
+     * characters, the path and query delimiters, + and valid percent escapes
+     * are kept, so an encoded URI is not changed. All other characters are
+     * encoded, including brackets and a % that does not start an escape.
+     *
+     * @param uri absolute or relative URI with an encoded, partly encoded or
+     *        not encoded path and query
+     * @return the encoded URI
+     */
+    public static String encodeUri( String uri )
+    {
+        int scheme = uri.indexOf( "://" );
+        int start = scheme < 0 ? 0 : uri.indexOf( '/', scheme + 3 );
+
+        if ( start < 0 )
+        {
+            return uri;
+        }
+
+        StringBuilder encoded = null;
+
+        for ( int i = start; i < uri.length(); i++ )
+        {
+            char c = uri.charAt( i );
+
+            if ( isAllowed( c ) || isEscape( uri, i ) )
+            {
+                if ( encoded != null )
+                {
+                    encoded.append( c );
+                }
+
+                continue;
+            }
+
+            if ( encoded == null )
+            {
+                encoded = new StringBuilder( uri.length() + 16 ).append( uri, 0, i );
+            }
+
+            int end = Character.isHighSurrogate( c ) && i + 1 < uri.length() ? i + 2 : i + 1;
+
+            for ( byte b : uri.substring( i, end ).getBytes( StandardCharsets.UTF_8 ) )
+            {
+                appendEscape( encoded, b );
+            }
+
+            i = end - 1;
+        }
+
+        return encoded == null ? uri : encoded.toString();
+    }
+
+    /**
+     * Escapes the characters of a query key or value that would otherwise
+     * change the meaning of the query: %, &amp;, # and +.
+     *
+     * @param value key or value, may be null
+     * @return the escaped value
+     */
+    public static String escapeQueryComponent( String value )
+    {
+        String string = String.valueOf( value );
+        StringBuilder escaped = null;
+
+        for ( int i = 0; i < string.length(); i++ )
+        {
+            char c = string.charAt( i );
+
+            if ( c != '%' && c != '&' && c != '#' && c != '+' )
+            {
+                if ( escaped != null )
+                {
+                    escaped.append( c );
+                }
+
+                continue;
+            }
+
+            if ( escaped == null )
+            {
+                escaped = new StringBuilder( string.length() + 8 ).append( string, 0, i );
+            }
+
+            appendEscape( escaped, (byte) c );
+        }
+
+        return escaped == null ? string : escaped.toString();
+    }
+
+    /**
+     * Encodes a query key or value as application/x-www-form-urlencoded
+     * UTF-8.
+     *
+     * @param value key or value, may be null
+     * @return the encoded value
+     */
+    public static String encodeQueryComponent( String value )
+    {
+        try
+        {
+            return URLEncoder.encode( String.valueOf( value ), "UTF-8" );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static boolean isAllowed( char c )
+    {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || "-._~/?&=:,;@!$'()*+".indexOf( c ) >= 0;
+    }
+
+    private static boolean isEscape( String uri, int i )
+    {
+        return uri.charAt( i ) == '%' && i + 2 < uri.length() && isHex( uri.charAt( i + 1 ) )
+            && isHex( uri.charAt( i + 2 ) );
+    }
+
+    private static boolean isHex( char c )
+    {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static void appendEscape( StringBuilder builder, byte b )
+    {
+        builder.append( '%' ).append( HEX[(b >> 4) & 0xF] ).append( HEX[b & 0xF] );
+    }
+}
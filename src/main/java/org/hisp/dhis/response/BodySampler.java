@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.response;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which responses of a body-discarding request keep their body, so
+ * a sample of them can be checked.
+ */
+@FunctionalInterface
+public interface BodySampler
+{
+    /**
+     * @return true if the body of the next response should be kept
+     */
+    boolean shouldSample();
+
+    static BodySampler never()
+    {
+        return () -> false;
+    }
+
+    static BodySampler always()
+    {
+        return () -> true;
+    }
+
+    /**
+     * Keeps the body of every n-th response, starting with the first.
+     *
+     * @param n sampling interval
+     */
+    static BodySampler everyNth( int n )
+    {
+        if ( n < 1 )
+        {
+            throw new IllegalArgumentException( "Sampling interval has to be positive, got " + n );
+        }
+
+        AtomicLong counter = new AtomicLong();
+
+        return () -> counter.getAndIncrement() % n == 0;
+    }
+
+    /**
+     * Keeps the body of each response with the given probability.
+     *
+     * @param rate probability between 0 and 1
+     */
+    static BodySampler rate( double rate )
+    {
+        return () -> ThreadLocalRandom.current().nextDouble() < rate;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.response.dto;
+
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Status, headers, size and timing of a response whose body was drained and
+ * discarded. Rest-Assured keeps the body as a stream until it is first read,
+ * {@link ApiResponse} then holds it in memory. A summary reads the stream
+ * into a shared buffer instead, unless the body was sampled.
+ */
+public class ResponseSummary
+{
+    private static final ThreadLocal<byte[]> DRAIN_BUFFER = ThreadLocal.withInitial( () -> new byte[8192] );
+
+    private final int statusCode;
+
+    private final Headers headers;
+
+    private final long bodySize;
+
+    private final long responseTimeMillis;
+
+    private final long totalTimeNanos;
+
+    private final byte[] body;
+
+    private final String charset;
+
+    private ResponseSummary( Response response, long bodySize, long totalTimeNanos, byte[] body )
+    {
+        this.statusCode = response.statusCode();
+        this.headers = response.headers();
+        this.bodySize = bodySize;
+        this.responseTimeMillis = response.time();
+        this.totalTimeNanos = totalTimeNanos;
+        this.body = body;
+        this.charset = charset( response.getContentType() );
+    }
+
+    /**
+     * Reads the body of the response and summarizes it.
+     *
+     * @param response the response, its body not read yet
+     * @param startNanos {@link System#nanoTime()} before the request was sent
+     * @param keepBody true to keep the body
+     * @return the summary
+     */
+    public static ResponseSummary of( Response response, long startNanos, boolean keepBody )
+    {
+        ByteArrayOutputStream out = keepBody ? new ByteArrayOutputStream() : null;
+        long size = 0;
+
+        try ( InputStream in = response.asInputStream() )
+        {
+            if ( in != null )
+            {
+                byte[] buffer = DRAIN_BUFFER.get();
+                int read;
+
+                while ( (read = in.read( buffer )) != -1 )
+                {
+                    size += read;
+
+                    if ( out != null )
+                    {
+                        out.write( buffer, 0, read );
+                    }
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return new ResponseSummary( response, size, System.nanoTime() - startNanos,
+            out == null ? null : out.toByteArray() );
+    }
+
+    public int getStatusCode()
+    {
+        return statusCode;
+    }
+
+    public Headers getHeaders()
+    {
+        return headers;
+    }
+
+    public String getHeader( String name )
+    {
+        return headers.getValue( name );
+    }
+
+    /**
+     * @return number of bytes of the decoded body
+     */
+    public long getBodySize()
+    {
+        return bodySize;
+    }
+
+    /**
+     * @return time until the response was received, as measured by
+     *         Rest-Assured
+     */
+    public long getResponseTimeMillis()
+    {
+        return responseTimeMillis;
+    }
+
+    /**
+     * @return time from sending the request until the body was read
+     */
+    public long getTotalTimeNanos()
+    {
+        return totalTimeNanos;
+    }
+
+    public long getTotalTimeMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( totalTimeNanos );
+    }
+
+    public boolean isSampled()
+    {
+        return body != null;
+    }
+
+    /**
+     * @return the body if it was sampled, otherwise null
+     */
+    public String getBody()
+    {
+        if ( body == null )
+        {
+            return null;
+        }
+
+        return new String( body, charset == null ? StandardCharsets.UTF_8 : Charset.forName( charset ) );
+    }
+
+    private static String charset( String contentType )
+    {
+        int index = contentType == null ? -1 : contentType.toLowerCase().indexOf( "charset=" );
+
+        if ( index < 0 )
+        {
+            return null;
+        }
+
+        String charset = contentType.substring( index + "charset=".length() ).split( ";" )[0].trim();
+
+        return charset.isEmpty() ? null : charset.replace( "\"", "" );
+    }
+}
@@ -1,90 +1,140 @@
 package org.hisp.dhis.response.dto;
 
 import io.restassured.response.ValidatableResponse;
-import org.hamcrest.Matchers;
-
+import org.hisp.dhis.response.dto.tracker.TrackerImportReport;
+import org.hisp.dhis.response.dto.tracker.TrackerTypeReport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
 
 /**
+ * Validations and extractions read the typed {@link TrackerImportReport},
+ * which is parsed once on first use.
+ *
 * @author Gintare Vilkelyte
  */
 public class TrackerApiResponse
     extends ApiResponse
 {
+    private TrackerImportReport importReport;
 
     public TrackerApiResponse( ApiResponse response )
     {
         super( response.raw );
     }
 
+    /**
+     * Returns the import report, reading the response body on first call.
+     *
+     * @return the typed import report
+     */
+    public TrackerImportReport getImportReport()
+    {
+        if ( importReport == null )
+        {
+            try ( Reader reader = new InputStreamReader( new ByteArrayInputStream( raw.asByteArray() ),
+                StandardCharsets.UTF_8 ) )
+            {
+                importReport = TrackerImportReport.parse( reader );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        return importReport;
+    }
+
     public List<String> extractImportedTeis()
     {
-        return this.extractList( "bundleReport.typeReportMap.TRACKED_ENTITY.objectReports.uid" );
+        return extractImported( TrackerImportReport.TRACKED_ENTITY );
     }
 
     public List<String> extractImportedEnrollments()
     {
-        return this.extractList( "bundleReport.typeReportMap.ENROLLMENT.objectReports.uid" );
+        return extractImported( TrackerImportReport.ENROLLMENT );
     }
 
     public List<String> extractImportedEvents()
     {
-        return this.extractList( "bundleReport.typeReportMap.EVENT.objectReports.uid" );
+        return extractImported( TrackerImportReport.EVENT );
     }
 
     public List<String> extractImportedRelationships()
     {
-        return this.extractList( "bundleReport.typeReportMap.RELATIONSHIP.objectReports.uid" );
+        return extractImported( TrackerImportReport.RELATIONSHIP );
     }
 
     public TrackerApiResponse validateSuccessfulImport()
     {
-        validate()
-            .statusCode( 200 )
-            .body( "status", equalTo( "OK" ) )
-            .body( "stats.created", greaterThanOrEqualTo( 1 ) )
-            .body( "stats.ignored", equalTo( 0 ) )
-            .body( "stats.total", greaterThanOrEqualTo( 1 ) )
-            .body( "bundleReport.typeReportMap", notNullValue() );
+        assertThat( "status code", statusCode(), equalTo( 200 ) );
+
+        TrackerImportReport report = getImportReport();
+
+        assertThat( "status", report.getStatus(), equalTo( "OK" ) );
+        assertThat( "stats.created", report.getStats().getCreated(), greaterThanOrEqualTo( 1 ) );
+        assertThat( "stats.ignored", report.getStats().getIgnored(), equalTo( 0 ) );
+        assertThat( "stats.total", report.getStats().getTotal(), greaterThanOrEqualTo( 1 ) );
+        assertThat( "bundleReport.typeReportMap", report.getTypeReports(), notNullValue() );
 
         return this;
     }
 
     public ValidatableResponse validateErrorReport()
     {
-        return validate().statusCode( 200 )
-            .body( "stats.ignored", greaterThanOrEqualTo( 1 ) )
-            .body( "validationReport.errorReports", Matchers.notNullValue() )
-            .rootPath( "validationReport.errorReports" );
+        assertThat( "status code", statusCode(), equalTo( 200 ) );
+        assertThat( "stats.ignored", getImportReport().getStats().getIgnored(), greaterThanOrEqualTo( 1 ) );
+        assertThat( "validationReport.errorReports", getImportReport().getErrorReports(), notNullValue() );
+
+        return validate().rootPath( "validationReport.errorReports" );
     }
 
-    public ValidatableResponse validateWarningReport() {
-        return validate().statusCode( 200 )
-            .body( "validationReport.warningReports", Matchers.notNullValue())
-            .rootPath( "validationReport.warningReports");
+    public ValidatableResponse validateWarningReport()
+    {
+        assertThat( "status code", statusCode(), equalTo( 200 ) );
+        assertThat( "validationReport.warningReports", getImportReport().getWarningReports(), notNullValue() );
+
+        return validate().rootPath( "validationReport.warningReports" );
     }
 
-    public ValidatableResponse validateTeis() {
-        return validate()
-            .body( "bundleReport.typeReportMap.TRACKED_ENTITY", notNullValue() )
-            .rootPath( "bundleReport.typeReportMap.TRACKED_ENTITY" );
+    public ValidatableResponse validateTeis()
+    {
+        return validateTypeReport( TrackerImportReport.TRACKED_ENTITY );
     }
 
-    public ValidatableResponse validateEvents() {
-        return validate()
-            .body( "bundleReport.typeReportMap.EVENT", notNullValue() )
-            .rootPath( "bundleReport.typeReportMap.EVENT" );
+    public ValidatableResponse validateEvents()
+    {
+        return validateTypeReport( TrackerImportReport.EVENT );
     }
 
     public ValidatableResponse validateEnrollments()
     {
-        return validate()
-            .body( "bundleReport.typeReportMap.ENROLLMENT", notNullValue() )
-            .rootPath( "bundleReport.typeReportMap.ENROLLMENT" );
+        return validateTypeReport( TrackerImportReport.ENROLLMENT );
     }
 
+    private ValidatableResponse validateTypeReport( String trackerType )
+    {
+        assertThat( "bundleReport.typeReportMap." + trackerType, getImportReport().getTypeReport( trackerType ),
+            notNullValue() );
+
+        return validate().rootPath( "bundleReport.typeReportMap." + trackerType );
+    }
+
+    private List<String> extractImported( String trackerType )
+    {
+        TrackerTypeReport typeReport = getImportReport().getTypeReport( trackerType );
+
+        return typeReport == null ? null : typeReport.getUids();
+    }
 }
@@ -29,13 +29,20 @@
 package org.hisp.dhis.response.dto.schemas;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
 /**
 * @author Gintare Vilkelyte
  */
+@JsonAdapter( PropertyType.GsonAdapter.class )
 public enum PropertyType
 {
     NUMBER( "INTEGER", "NUMBER" ),
@@ -68,4 +75,54 @@ public enum PropertyType
         }
         return UNKNOWN;
     }
+
+    /**
+     * Reads the property types of DHIS2 schemas with Gson the way
+     * {@link #getPropertyTypeFromValue(String)} does for Jackson. Unknown
+     * values read as {@link #UNKNOWN}. Types are written by name, and names
+     * are read back as well.
+     */
+    public static class GsonAdapter
+        extends TypeAdapter<PropertyType>
+    {
+        @Override
+        public void write( JsonWriter out, PropertyType value )
+            throws IOException
+        {
+            if ( value == null )
+            {
+                out.nullValue();
+                return;
+            }
+
+            out.value( value.name() );
+        }
+
+        @Override
+        public PropertyType read( JsonReader in )
+            throws IOException
+        {
+            if ( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+                return null;
+            }
+
+            String value = in.nextString();
+            PropertyType type = getPropertyTypeFromValue( value );
+
+            if ( type == UNKNOWN )
+            {
+                for ( PropertyType candidate : PropertyType.values() )
+                {
+                    if ( candidate.name().equals( value ) )
+                    {
+                        return candidate;
+                    }
+                }
+            }
+
+            return type;
+        }
+    }
 }
@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.response.dto.tracker;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed import report of the tracker importer. The report is read in a
+ * single streaming pass, without building a json tree, and unknown fields
+ * are skipped.
+ */
+public class TrackerImportReport
+{
+    public static final String TRACKED_ENTITY = "TRACKED_ENTITY";
+
+    public static final String ENROLLMENT = "ENROLLMENT";
+
+    public static final String EVENT = "EVENT";
+
+    public static final String RELATIONSHIP = "RELATIONSHIP";
+
+    private String status;
+
+    private String message;
+
+    private final TrackerStats stats = new TrackerStats();
+
+    private List<TrackerErrorReport> errorReports;
+
+    private List<TrackerErrorReport> warningReports;
+
+    private Map<String, TrackerTypeReport> typeReports;
+
+    private TrackerImportReport()
+    {
+    }
+
+    /**
+     * Reads the report. The reader is not closed.
+     *
+     * @param reader reader of the report json
+     * @return the report
+     */
+    public static TrackerImportReport parse( Reader reader )
+    {
+        TrackerImportReport report = new TrackerImportReport();
+        JsonReader json = new JsonReader( reader );
+
+        try
+        {
+            json.beginObject();
+
+            while ( json.hasNext() )
+            {
+                switch ( json.nextName() )
+                {
+                case "status":
+                    report.status = nextString( json );
+                    break;
+                case "message":
+                    report.message = nextString( json );
+                    break;
+                case "stats":
+                    readStats( json, report.stats );
+                    break;
+                case "validationReport":
+                    report.readValidationReport( json );
+                    break;
+                case "bundleReport":
+                    report.readBundleReport( json );
+                    break;
+                default:
+                    json.skipValue();
+                }
+            }
+
+            json.endObject();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+        catch ( IllegalStateException | NumberFormatException e )
+        {
+            throw new IllegalArgumentException( "Not a tracker import report", e );
+        }
+
+        return report;
+    }
+
+    public String getStatus()
+    {
+        return status;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public TrackerStats getStats()
+    {
+        return stats;
+    }
+
+    /**
+     * @return errors of {@code validationReport.errorReports}, null when the
+     *         report has none
+     */
+    public List<TrackerErrorReport> getErrorReports()
+    {
+        return errorReports;
+    }
+
+    /**
+     * @return warnings of {@code validationReport.warningReports}, null when
+     *         the report has none
+     */
+    public List<TrackerErrorReport> getWarningReports()
+    {
+        return warningReports;
+    }
+
+    /**
+     * @return reports per tracker type, null when the report has no
+     *         {@code bundleReport.typeReportMap}
+     */
+    public Map<String, TrackerTypeReport> getTypeReports()
+    {
+        return typeReports == null ? null : Collections.unmodifiableMap( typeReports );
+    }
+
+    /**
+     * @param trackerType tracker type, for example {@link #EVENT}
+     * @return report of the type, null when the type is not in the report
+     */
+    public TrackerTypeReport getTypeReport( String trackerType )
+    {
+        return typeReports == null ? null : typeReports.get( trackerType );
+    }
+
+    private void readValidationReport( JsonReader json )
+        throws IOException
+    {
+        if ( json.peek() == JsonToken.NULL )
+        {
+            json.nextNull();
+            return;
+        }
+
+        json.beginObject();
+
+        while ( json.hasNext() )
+        {
+            switch ( json.nextName() )
+            {
+            case "errorReports":
+                errorReports = readErrorReports( json, new ArrayList<>() );
+                break;
+            case "warningReports":
+                warningReports = readErrorReports( json, new ArrayList<>() );
+                break;
+            default:
+                json.skipValue();
+            }
+        }
+
+        json.endObject();
+    }
+
+    private void readBundleReport( JsonReader json )
+        throws IOException
+    {
+        if ( json.peek() == JsonToken.NULL )
+        {
+            json.nextNull();
+            return;
+        }
+
+        json.beginObject();
+
+        while ( json.hasNext() )
+        {
+            if ( !"typeReportMap".equals( json.nextName() ) || json.peek() == JsonToken.NULL )
+            {
+                json.skipValue();
+                continue;
+            }
+
+            typeReports = new LinkedHashMap<>();
+            json.beginObject();
+
+            while ( json.hasNext() )
+            {
+                TrackerTypeReport typeReport = new TrackerTypeReport();
+                typeReport.trackerType = json.nextName();
+                readTypeReport( json, typeReport );
+                typeReports.put( typeReport.trackerType, typeReport );
+            }
+
+            json.endObject();
+        }
+
+        json.endObject();
+    }
+
+    private static void readTypeReport( JsonReader json, TrackerTypeReport typeReport )
+        throws IOException
+    {
+        json.beginObject();
+
+        while ( json.hasNext() )
+        {
+            switch ( json.nextName() )
+            {
+            case "stats":
+                readStats( json, typeReport.stats );
+                break;
+            case "objectReports":
+                readObjectReports( json, typeReport.objectReports );
+                break;
+            default:
+                json.skipValue();
+            }
+        }
+
+        json.endObject();
+    }
+
+    private static void readObjectReports( JsonReader json, List<TrackerObjectReport> objectReports )
+        throws IOException
+    {
+        if ( json.peek() == JsonToken.NULL )
+        {
+            json.nextNull();
+            return;
+        }
+
+        json.beginArray();
+
+        while ( json.hasNext() )
+        {
+            TrackerObjectReport objectReport = new TrackerObjectReport();
+            json.beginObject();
+
+            while ( json.hasNext() )
+            {
+                switch ( json.nextName() )
+                {
+                case "trackerType":
+                    objectReport.trackerType = nextString( json );
+                    break;
+                case "uid":
+                    objectReport.uid = nextString( json );
+                    break;
+                case "index":
+                    objectReport.index = json.nextInt();
+                    break;
+                case "errorReports":
+                    readErrorReports( json, objectReport.errorReports );
+                    break;
+                default:
+                    json.skipValue();
+                }
+            }
+
+            json.endObject();
+            objectReports.add( objectReport );
+        }
+
+        json.endArray();
+    }
+
+    private static List<TrackerErrorReport> readErrorReports( JsonReader json, List<TrackerErrorReport> reports )
+        throws IOException
+    {
+        if ( json.peek() == JsonToken.NULL )
+        {
+            json.nextNull();
+            return null;
+        }
+
+        json.beginArray();
+
+        while ( json.hasNext() )
+        {
+            TrackerErrorReport report = new TrackerErrorReport();
+            json.beginObject();
+
+            while ( json.hasNext() )
+            {
+                switch ( json.nextName() )
+                {
+                case "message":
+                    report.message = nextString( json );
+                    break;
+                case "errorCode":
+                    report.errorCode = nextString( json );
+                    break;
+                case "trackerType":
+                    report.trackerType = nextString( json );
+                    break;
+                case "uid":
+                    report.uid = nextString( json );
+                    break;
+                default:
+                    json.skipValue();
+                }
+            }
+
+            json.endObject();
+            reports.add( report );
+        }
+
+        json.endArray();
+
+        return reports;
+    }
+
+    private static void readStats( JsonReader json, TrackerStats stats )
+        throws IOException
+    {
+        if ( json.peek() == JsonToken.NULL )
+        {
+            json.nextNull();
+            return;
+        }
+
+        json.beginObject();
+
+        while ( json.hasNext() )
+        {
+            switch ( json.nextName() )
+            {
+            case "created":
+                stats.created = json.nextInt();
+                break;
+            case "updated":
+                stats.updated = json.nextInt();
+                break;
+            case "deleted":
+                stats.deleted = json.nextInt();
+                break;
+            case "ignored":
+                stats.ignored = json.nextInt();
+                break;
+            case "total":
+                stats.total = json.nextInt();
+                break;
+            default:
+                json.skipValue();
+            }
+        }
+
+        json.endObject();
+    }
+
+    private static String nextString( JsonReader json )
+        throws IOException
+    {
+        if ( json.peek() == JsonToken.NULL )
+        {
+            json.nextNull();
+            return null;
+        }
+
+        return json.nextString();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.response.dto.tracker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of importing the objects of one tracker type, an entry of
+ * {@code bundleReport.typeReportMap}.
+ */
+public class TrackerTypeReport
+{
+    String trackerType;
+
+    final TrackerStats stats = new TrackerStats();
+
+    final List<TrackerObjectReport> objectReports = new ArrayList<>();
+
+    public String getTrackerType()
+    {
+        return trackerType;
+    }
+
+    public TrackerStats getStats()
+    {
+        return stats;
+    }
+
+    public List<TrackerObjectReport> getObjectReports()
+    {
+        return objectReports;
+    }
+
+    /**
+     * @return uids of the object reports, in report order
+     */
+    public List<String> getUids()
+    {
+        List<String> uids = new ArrayList<>( objectReports.size() );
+
+        for ( TrackerObjectReport objectReport : objectReports )
+        {
+            uids.add( objectReport.uid );
+        }
+
+        return uids;
+    }
+}
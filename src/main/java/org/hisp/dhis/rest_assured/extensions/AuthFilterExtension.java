@@ -3,18 +3,40 @@ package org.hisp.dhis.rest_assured.extensions;
 import io.restassured.authentication.NoAuthScheme;
 import io.restassured.authentication.PreemptiveBasicAuthScheme;
 import io.restassured.filter.FilterContext;
+import io.restassured.http.Cookie;
 import io.restassured.response.Response;
 import io.restassured.specification.FilterableRequestSpecification;
 import io.restassured.specification.FilterableResponseSpecification;
 
 /**
 * @author Gintare Vilkelyte
+ * Reuses DHIS2 sessions between requests of the same user. The session cookie
+ * is sent together with the basic auth credentials: the server skips password
+ * hashing while the session is valid, and authenticates with the credentials
+ * and issues a new session when it is not. New session cookies are cached,
+ * and a 401 response drops the cached session of the user. Requests of a
+ * {@link VirtualUser} bypass this filter and use the user's own cookie jar.
  */
 public class AuthFilterExtension
     implements
     io.restassured.spi.AuthFilter
 {
-    private String lastLoggedInUser = "";
+    private final SessionCache sessionCache;
+
+    public AuthFilterExtension()
+    {
+        this( new SessionCache() );
+    }
+
+    public AuthFilterExtension( SessionCache sessionCache )
+    {
+        this.sessionCache = sessionCache;
+    }
+
+    public SessionCache getSessionCache()
+    {
+        return sessionCache;
+    }
 
     @Override
     public Response filter( FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
@@ -22,31 +44,54 @@ public class AuthFilterExtension
     {
         if ( requestSpec.getAuthenticationScheme() instanceof NoAuthScheme )
         {
-            if ( hasSessionCookie( requestSpec ) )
-            {
-                requestSpec.removeCookies();
-            }
+            removeSessionCookies( requestSpec );
+        }
 
-            lastLoggedInUser = "";
+        if ( !(requestSpec.getAuthenticationScheme() instanceof PreemptiveBasicAuthScheme) )
+        {
+            return ctx.next( requestSpec, responseSpec );
         }
 
-        if ( requestSpec.getAuthenticationScheme() instanceof PreemptiveBasicAuthScheme &&
-            ((PreemptiveBasicAuthScheme) requestSpec.getAuthenticationScheme()).getUserName() != lastLoggedInUser )
+        PreemptiveBasicAuthScheme scheme = (PreemptiveBasicAuthScheme) requestSpec.getAuthenticationScheme();
+
+        removeSessionCookies( requestSpec );
+
+        SessionCache.Session session = sessionCache.get( scheme.getUserName(), scheme.getPassword() );
+
+        if ( session != null )
+        {
+            requestSpec.cookie( session.getCookieName(), session.getCookieValue() );
+        }
+
+        Response response = ctx.next( requestSpec, responseSpec );
+
+        if ( response.statusCode() == 401 )
+        {
+            sessionCache.invalidate( scheme.getUserName() );
+            return response;
+        }
+
+        for ( String cookieName : SessionCache.SESSION_COOKIE_NAMES )
         {
-            if ( hasSessionCookie( requestSpec ) )
+            Cookie cookie = response.getDetailedCookie( cookieName );
+
+            if ( cookie != null && cookie.getValue() != null && !cookie.getValue().isEmpty() )
             {
-                requestSpec.removeCookies();
+                sessionCache.put( scheme.getUserName(), scheme.getPassword(), cookieName, cookie.getValue() );
             }
-
-            lastLoggedInUser = ((PreemptiveBasicAuthScheme) requestSpec.getAuthenticationScheme()).getUserName();
         }
 
-        return ctx.next( requestSpec, responseSpec );
+        return response;
     }
 
-    private boolean hasSessionCookie( FilterableRequestSpecification requestSpec )
+    private void removeSessionCookies( FilterableRequestSpecification requestSpec )
     {
-        return requestSpec.getCookies().hasCookieWithName( "JSESSIONID" ) ||
-            requestSpec.getCookies().hasCookieWithName( "SESSION" );
+        for ( String cookieName : SessionCache.SESSION_COOKIE_NAMES )
+        {
+            if ( requestSpec.getCookies().hasCookieWithName( cookieName ) )
+            {
+                requestSpec.removeCookie( cookieName );
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.rest_assured.extensions;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Obtains OAuth2 bearer tokens with the password grant of a registered
+ * client, and refreshes them with the refresh token grant. The token
+ * endpoint is resolved against the server root, i.e. the base uri without a
+ * trailing /api.
+ */
+public class OAuth2TokenProvider
+    implements TokenProvider
+{
+    private final String clientId;
+
+    private final String clientSecret;
+
+    private final String tokenPath;
+
+    public OAuth2TokenProvider( String clientId, String clientSecret )
+    {
+        this( clientId, clientSecret, "/uaa/oauth/token" );
+    }
+
+    public OAuth2TokenProvider( String clientId, String clientSecret, String tokenPath )
+    {
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.tokenPath = tokenPath;
+    }
+
+    @Override
+    public Token fetch( String baseUri, String username, String password )
+    {
+        Map<String, String> params = new HashMap<>();
+        params.put( "grant_type", "password" );
+        params.put( "username", username );
+        params.put( "password", password );
+
+        Response response = request( baseUri, params );
+
+        if ( response.statusCode() != 200 )
+        {
+            throw new IllegalStateException(
+                String.format( "OAuth2 token request for %s failed with status %d: %s", username, response.statusCode(),
+                    response.asString() ) );
+        }
+
+        return toToken( response );
+    }
+
+    /**
+     * Uses the refresh token, and falls back to the password grant when there
+     * is none or the server rejects it.
+     */
+    @Override
+    public Token refresh( String baseUri, String username, String password, Token token )
+    {
+        if ( token.getRefreshToken() == null )
+        {
+            return fetch( baseUri, username, password );
+        }
+
+        Map<String, String> params = new HashMap<>();
+        params.put( "grant_type", "refresh_token" );
+        params.put( "refresh_token", token.getRefreshToken() );
+
+        Response response = request( baseUri, params );
+
+        if ( response.statusCode() != 200 )
+        {
+            return fetch( baseUri, username, password );
+        }
+
+        return toToken( response );
+    }
+
+    private Response request( String baseUri, Map<String, String> params )
+    {
+        return RestAssured.given()
+            .baseUri( serverRoot( baseUri ) )
+            .auth().preemptive().basic( clientId, clientSecret )
+            .contentType( ContentType.URLENC )
+            .accept( ContentType.JSON )
+            .formParams( params )
+            .post( tokenPath );
+    }
+
+    private Token toToken( Response response )
+    {
+        Number expiresIn = response.path( "expires_in" );
+        long expiresAt = expiresIn == null ? 0 : System.currentTimeMillis() + expiresIn.longValue() * 1000;
+
+        return new Token( "Bearer", response.path( "access_token" ), response.path( "refresh_token" ), expiresAt );
+    }
+
+    static String serverRoot( String baseUri )
+    {
+        String root = baseUri.endsWith( "/" ) ? baseUri.substring( 0, baseUri.length() - 1 ) : baseUri;
+
+        return root.endsWith( "/api" ) ? root.substring( 0, root.length() - "/api".length() ) : root;
+    }
+}
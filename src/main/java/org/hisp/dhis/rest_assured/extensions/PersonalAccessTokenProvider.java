@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.rest_assured.extensions;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates DHIS2 personal access tokens through /apiToken. The base uri of
+ * the request has to point to the api, as for {@link org.hisp.dhis.actions.RestApiActions}.
+ * Every fetch creates a new token on the server, they are not deleted.
+ */
+public class PersonalAccessTokenProvider
+    implements TokenProvider
+{
+    private final long lifetimeMillis;
+
+    public PersonalAccessTokenProvider()
+    {
+        this( TimeUnit.DAYS.toMillis( 1 ) );
+    }
+
+    /**
+     * @param lifetimeMillis time until created tokens expire
+     */
+    public PersonalAccessTokenProvider( long lifetimeMillis )
+    {
+        this.lifetimeMillis = lifetimeMillis;
+    }
+
+    @Override
+    public Token fetch( String baseUri, String username, String password )
+    {
+        long expiresAt = System.currentTimeMillis() + lifetimeMillis;
+
+        JsonObject body = new JsonObject();
+        body.addProperty( "expire", expiresAt );
+        body.add( "attributes", new JsonArray() );
+
+        Response response = RestAssured.given()
+            .baseUri( baseUri )
+            .auth().preemptive().basic( username, password )
+            .contentType( ContentType.JSON )
+            .body( body.toString() )
+            .post( "/apiToken" );
+
+        if ( response.statusCode() != 200 && response.statusCode() != 201 )
+        {
+            throw new IllegalStateException(
+                String.format( "Creating api token for %s failed with status %d: %s", username, response.statusCode(),
+                    response.asString() ) );
+        }
+
+        return new Token( "ApiToken", response.jsonPath().getString( "response.key" ), expiresAt );
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.rest_assured.extensions;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.hisp.dhis.recording.Exchange;
+import org.hisp.dhis.recording.RecordingWriter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Records every exchange into a recording file, to be replayed with
+ * {@link org.hisp.dhis.recording.Replayer} or served by
+ * {@link org.hisp.dhis.recording.ReplayStubServer}. Register it globally with
+ * RestAssured.filters(..) to capture the traffic of all actions. Response
+ * bodies are read into memory to be recorded.
+ */
+public class RecordingFilter
+    implements Filter, Closeable
+{
+    private final RecordingWriter writer;
+
+    public RecordingFilter( Path recording )
+    {
+        this( new RecordingWriter( recording ) );
+    }
+
+    public RecordingFilter( RecordingWriter writer )
+    {
+        this.writer = writer;
+    }
+
+    @Override
+    public Response filter( FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
+        FilterContext ctx )
+    {
+        long startedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+
+        Response response = ctx.next( requestSpec, responseSpec );
+
+        long durationNanos = System.nanoTime() - start;
+
+        String uri = requestSpec.getURI();
+        int queryStart = uri.indexOf( '?' );
+        String path = queryStart < 0 ? uri : uri.substring( 0, queryStart );
+        String query = queryStart < 0 ? null : uri.substring( queryStart + 1 );
+
+        writer.write( new Exchange( startedAt, durationNanos, requestSpec.getMethod(),
+            relativePath( path, requestSpec.getBaseUri() ), query, requestSpec.getContentType(),
+            body( requestSpec.getBody() ), response.statusCode(), response.getContentType(), response.asByteArray() ) );
+
+        return response;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        writer.close();
+    }
+
+    private static String relativePath( String uri, String baseUri )
+    {
+        String path = URI.create( uri ).getRawPath();
+        String basePath = baseUri == null ? null : URI.create( baseUri ).getRawPath();
+
+        if ( basePath != null && basePath.length() > 1 && path.startsWith( basePath ) )
+        {
+            path = path.substring( basePath.endsWith( "/" ) ? basePath.length() - 1 : basePath.length() );
+        }
+
+        return path;
+    }
+
+    private static byte[] body( Object body )
+    {
+        if ( body instanceof byte[] )
+        {
+            return (byte[]) body;
+        }
+
+        if ( body instanceof String )
+        {
+            return ((String) body).getBytes( StandardCharsets.UTF_8 );
+        }
+
+        if ( body instanceof File )
+        {
+            try
+            {
+                return Files.readAllBytes( ((File) body).toPath() );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        return null;
+    }
+}
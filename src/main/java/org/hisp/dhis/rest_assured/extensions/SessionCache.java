@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.rest_assured.extensions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread safe cache of DHIS2 session cookies keyed by username. A session is
+ * only returned for the password it was created with, so requests sent with
+ * wrong credentials are still authenticated by the server.
+ */
+public class SessionCache
+{
+    /**
+     * Names of the cookies DHIS2 uses to identify a session.
+     */
+    public static final List<String> SESSION_COOKIE_NAMES = Collections
+        .unmodifiableList( Arrays.asList( "JSESSIONID", "SESSION" ) );
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private final long maxAgeMillis;
+
+    /**
+     * Creates a cache keeping sessions until the server rejects them.
+     */
+    public SessionCache()
+    {
+        this( 0 );
+    }
+
+    /**
+     * Creates a cache dropping sessions older than the given age.
+     *
+     * @param maxAgeMillis maximum age of a session, 0 for no limit
+     */
+    public SessionCache( long maxAgeMillis )
+    {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Returns the session of the user, if one was cached with the same password
+     * and did not expire.
+     *
+     * @param username name of the user
+     * @param password password of the user
+     * @return the session or null
+     */
+    public Session get( String username, String password )
+    {
+        Session session = sessions.get( username );
+
+        if ( session == null )
+        {
+            return null;
+        }
+
+        if ( !Objects.equals( session.password, password ) || isExpired( session ) )
+        {
+            sessions.remove( username, session );
+            return null;
+        }
+
+        return session;
+    }
+
+    public void put( String username, String password, String cookieName, String cookieValue )
+    {
+        sessions.put( username, new Session( password, cookieName, cookieValue, System.currentTimeMillis() ) );
+    }
+
+    public void invalidate( String username )
+    {
+        sessions.remove( username );
+    }
+
+    public void invalidateAll()
+    {
+        sessions.clear();
+    }
+
+    public int size()
+    {
+        return sessions.size();
+    }
+
+    private boolean isExpired( Session session )
+    {
+        return maxAgeMillis > 0 && System.currentTimeMillis() - session.createdAt > maxAgeMillis;
+    }
+
+    public static class Session
+    {
+        private final String password;
+
+        private final String cookieName;
+
+        private final String cookieValue;
+
+        private final long createdAt;
+
+        private Session( String password, String cookieName, String cookieValue, long createdAt )
+        {
+            this.password = password;
+            this.cookieName = cookieName;
+            this.cookieValue = cookieValue;
+            this.createdAt = createdAt;
+        }
+
+        public String getCookieName()
+        {
+            return cookieName;
+        }
+
+        public String getCookieValue()
+        {
+            return cookieValue;
+        }
+
+        public long getCreatedAt()
+        {
+            return createdAt;
+        }
+    }
+}
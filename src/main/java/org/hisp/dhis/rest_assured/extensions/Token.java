@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.rest_assured.extensions;
+
+/**
+ * Access token sent in the Authorization header, for example a DHIS2
+ * personal access token or an OAuth2 bearer token.
+ */
+public class Token
+{
+    private final String type;
+
+    private final String value;
+
+    private final String refreshToken;
+
+    private final long expiresAt;
+
+    /**
+     * @param type authorization scheme of the token, e.g. ApiToken or Bearer
+     * @param value the token
+     * @param expiresAt expiry in epoch millis, 0 if the token does not expire
+     */
+    public Token( String type, String value, long expiresAt )
+    {
+        this( type, value, null, expiresAt );
+    }
+
+    public Token( String type, String value, String refreshToken, long expiresAt )
+    {
+        this.type = type;
+        this.value = value;
+        this.refreshToken = refreshToken;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Checks if the token expires within the given time.
+     *
+     * @param millis time from now
+     * @return true if the token expires before then
+     */
+    public boolean expiresWithin( long millis )
+    {
+        return expiresAt > 0 && System.currentTimeMillis() + millis >= expiresAt;
+    }
+
+    public String toHeaderValue()
+    {
+        return type + " " + value;
+    }
+
+    public String getType()
+    {
+        return type;
+    }
+
+    public String getValue()
+    {
+        return value;
+    }
+
+    public String getRefreshToken()
+    {
+        return refreshToken;
+    }
+
+    public long getExpiresAt()
+    {
+        return expiresAt;
+    }
+}
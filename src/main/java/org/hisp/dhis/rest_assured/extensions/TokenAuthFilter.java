@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.rest_assured.extensions;
+
+import io.restassured.authentication.ExplicitNoAuthScheme;
+import io.restassured.authentication.PreemptiveBasicAuthScheme;
+import io.restassured.filter.FilterContext;
+import io.restassured.internal.RequestSpecificationImpl;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Authenticates requests with access tokens instead of basic auth. Use it
+ * in place of {@link AuthFilterExtension}: the credentials of the preemptive
+ * basic auth configured in Rest-Assured are exchanged for a token once, and
+ * the token is sent in the Authorization header of every request of that
+ * user. No session is needed, so requests can be spread over several DHIS2
+ * nodes.
+ * <p>
+ * Tokens are cached per base uri and user. A token that expires within the
+ * refresh window is refreshed by one thread while the others keep using it.
+ * A 401 response drops the token, the next request fetches a new one.
+ */
+public class TokenAuthFilter
+    implements
+    io.restassured.spi.AuthFilter
+{
+    private final TokenProvider tokenProvider;
+
+    private final long refreshWindowMillis;
+
+    private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+
+    public TokenAuthFilter( TokenProvider tokenProvider )
+    {
+        this( tokenProvider, TimeUnit.MINUTES.toMillis( 1 ) );
+    }
+
+    /**
+     * @param tokenProvider provider of the tokens
+     * @param refreshWindowMillis time before expiry when a token is refreshed
+     */
+    public TokenAuthFilter( TokenProvider tokenProvider, long refreshWindowMillis )
+    {
+        this.tokenProvider = tokenProvider;
+        this.refreshWindowMillis = refreshWindowMillis;
+    }
+
+    @Override
+    public Response filter( FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
+        FilterContext ctx )
+    {
+        if ( !(requestSpec.getAuthenticationScheme() instanceof PreemptiveBasicAuthScheme) )
+        {
+            return ctx.next( requestSpec, responseSpec );
+        }
+
+        PreemptiveBasicAuthScheme scheme = (PreemptiveBasicAuthScheme) requestSpec.getAuthenticationScheme();
+        CachedToken cachedToken = cachedToken( requestSpec.getBaseUri(), scheme.getUserName(), scheme.getPassword() );
+        Token token = cachedToken.get();
+
+        clearAuthenticationScheme( requestSpec );
+        requestSpec.replaceHeader( "Authorization", token.toHeaderValue() );
+
+        Response response = ctx.next( requestSpec, responseSpec );
+
+        if ( response.statusCode() == 401 )
+        {
+            cachedToken.invalidate( token );
+        }
+
+        return response;
+    }
+
+    /**
+     * Returns a valid token of the user, fetching or refreshing it if needed.
+     *
+     * @param baseUri base uri the token is used for
+     * @param username name of the user
+     * @param password password of the user
+     * @return the token
+     */
+    public Token getToken( String baseUri, String username, String password )
+    {
+        return cachedToken( baseUri, username, password ).get();
+    }
+
+    public void invalidateAll()
+    {
+        tokens.clear();
+    }
+
+    public int size()
+    {
+        return tokens.size();
+    }
+
+    /**
+     * Clears the authentication scheme of the request, the preemptive scheme
+     * would overwrite the Authorization header, and a challenged scheme would
+     * retry a 401 with basic auth. The public API can not do this from a
+     * filter: auth().none() removes the auth filters from the list being
+     * iterated, and auth().oauth2(..) only sends Bearer tokens. This relies on
+     * the Rest-Assured implementation, which is why the pom pins Rest-Assured
+     * to the version this was tested with.
+     */
+    private static void clearAuthenticationScheme( FilterableRequestSpecification requestSpec )
+    {
+        if ( !(requestSpec instanceof RequestSpecificationImpl) )
+        {
+            throw new IllegalStateException(
+                "TokenAuthFilter does not support request specifications of type " + requestSpec.getClass() );
+        }
+
+        ((RequestSpecificationImpl) requestSpec).setAuthenticationScheme( new ExplicitNoAuthScheme() );
+    }
+
+    private CachedToken cachedToken( String baseUri, String username, String password )
+    {
+        String key = baseUri + '\u0000' + username + '\u0000' + password;
+
+        return tokens.computeIfAbsent( key, k -> new CachedToken( baseUri, username, password ) );
+    }
+
+    private class CachedToken
+    {
+        private final String baseUri;
+
+        private final String username;
+
+        private final String password;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private volatile Token token;
+
+        private CachedToken( String baseUri, String username, String password )
+        {
+            this.baseUri = baseUri;
+            this.username = username;
+            this.password = password;
+        }
+
+        private Token get()
+        {
+            Token current = token;
+
+            if ( current != null && !current.expiresWithin( refreshWindowMillis ) )
+            {
+                return current;
+            }
+
+            if ( current != null && !current.expiresWithin( 0 ) )
+            {
+                if ( !lock.tryLock() )
+                {
+                    return current;
+                }
+            }
+            else
+            {
+                lock.lock();
+            }
+
+            try
+            {
+                current = token;
+
+                if ( current != null && !current.expiresWithin( refreshWindowMillis ) )
+                {
+                    return current;
+                }
+
+                token = current == null
+                    ? tokenProvider.fetch( baseUri, username, password )
+                    : tokenProvider.refresh( baseUri, username, password, current );
+
+                return token;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        private void invalidate( Token rejected )
+        {
+            lock.lock();
+
+            try
+            {
+                if ( token == rejected )
+                {
+                    token = null;
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+}
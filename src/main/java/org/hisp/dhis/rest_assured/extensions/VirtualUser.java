@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.rest_assured.extensions;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.Cookie;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import io.restassured.specification.RequestSpecification;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A user of a load test with its own credentials, cookie jar and
+ * authentication state. While a virtual user is bound to a thread, requests
+ * sent through {@link org.hisp.dhis.actions.RestApiActions} on that thread
+ * are authenticated as that user, independent of the global Rest-Assured
+ * authentication and of other threads.
+ */
+public class VirtualUser
+{
+    private static final ThreadLocal<VirtualUser> CURRENT = new ThreadLocal<>();
+
+    private final String username;
+
+    private final String password;
+
+    private final int weight;
+
+    private final Map<String, String> cookies = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong authenticationFailures = new AtomicLong();
+
+    private final Filter cookieFilter = new CookieFilter();
+
+    public VirtualUser( String username, String password )
+    {
+        this( username, password, 1 );
+    }
+
+    /**
+     * @param username name of the user
+     * @param password password of the user
+     * @param weight relative share of assignments in a weighted
+     *        {@link VirtualUserPool}
+     */
+    public VirtualUser( String username, String password, int weight )
+    {
+        if ( weight < 1 )
+        {
+            throw new IllegalArgumentException( "Weight has to be positive, got " + weight );
+        }
+
+        this.username = username;
+        this.password = password;
+        this.weight = weight;
+    }
+
+    /**
+     * Returns the virtual user bound to the current thread.
+     *
+     * @return the virtual user or null
+     */
+    public static VirtualUser current()
+    {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds the user to the current thread until {@link #unbind()} is called.
+     */
+    public void bind()
+    {
+        CURRENT.set( this );
+    }
+
+    /**
+     * Unbinds any virtual user from the current thread.
+     */
+    public static void unbind()
+    {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs the action as this user and restores the previously bound user.
+     *
+     * @param action action to run
+     */
+    public void runAs( Runnable action )
+    {
+        callAs( () -> {
+            action.run();
+            return null;
+        } );
+    }
+
+    public <T> T callAs( Supplier<T> action )
+    {
+        VirtualUser previous = CURRENT.get();
+        CURRENT.set( this );
+
+        try
+        {
+            return action.get();
+        }
+        finally
+        {
+            if ( previous == null )
+            {
+                CURRENT.remove();
+            }
+            else
+            {
+                CURRENT.set( previous );
+            }
+        }
+    }
+
+    /**
+     * Authenticates the request as this user and attaches the cookie jar.
+     * Cookies set by the response are stored back into the jar.
+     *
+     * @param requestSpecification request to authenticate
+     * @return the request
+     */
+    public RequestSpecification applyTo( RequestSpecification requestSpecification )
+    {
+        requestSpecification.auth().preemptive().basic( username, password );
+
+        if ( !cookies.isEmpty() )
+        {
+            requestSpecification.cookies( new HashMap<>( cookies ) );
+        }
+
+        return requestSpecification.filter( cookieFilter );
+    }
+
+    /**
+     * Counts the response of a request sent as this user and stores its
+     * cookies. A 401 response drops the session. Called for requests sent
+     * outside of Rest-Assured, which do not pass the cookie filter.
+     *
+     * @param response response to a request of this user
+     */
+    public void updateSession( Response response )
+    {
+        requests.incrementAndGet();
+
+        if ( response.statusCode() == 401 )
+        {
+            authenticationFailures.incrementAndGet();
+            SessionCache.SESSION_COOKIE_NAMES.forEach( cookies::remove );
+
+            return;
+        }
+
+        for ( Cookie cookie : response.getDetailedCookies() )
+        {
+            if ( cookie.getValue() == null || cookie.getValue().isEmpty() || cookie.getMaxAge() == 0 )
+            {
+                cookies.remove( cookie.getName() );
+            }
+            else
+            {
+                cookies.put( cookie.getName(), cookie.getValue() );
+            }
+        }
+    }
+
+    /**
+     * Drops all cookies, so the next request authenticates again.
+     */
+    public void logout()
+    {
+        cookies.clear();
+    }
+
+    public boolean hasSession()
+    {
+        return SessionCache.SESSION_COOKIE_NAMES.stream().anyMatch( cookies::containsKey );
+    }
+
+    public String getUsername()
+    {
+        return username;
+    }
+
+    public String getPassword()
+    {
+        return password;
+    }
+
+    public int getWeight()
+    {
+        return weight;
+    }
+
+    public Map<String, String> getCookies()
+    {
+        return Collections.unmodifiableMap( cookies );
+    }
+
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    public long getAuthenticationFailureCount()
+    {
+        return authenticationFailures.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "VirtualUser(" + username + ")";
+    }
+
+    private class CookieFilter
+        implements Filter
+    {
+        @Override
+        public Response filter( FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
+            FilterContext ctx )
+        {
+            Response response = ctx.next( requestSpec, responseSpec );
+            updateSession( response );
+
+            return response;
+        }
+    }
+}
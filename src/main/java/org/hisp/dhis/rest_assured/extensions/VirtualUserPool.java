@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.rest_assured.extensions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Thread safe pool of {@link VirtualUser}s. Users are handed out round-robin,
+ * or in proportion to their weight, and can be bound to the worker thread
+ * that sends their requests.
+ */
+public class VirtualUserPool
+{
+    private final List<VirtualUser> users;
+
+    private final Set<VirtualUser> members;
+
+    /**
+     * Indexes of the users in the order they are handed out within a cycle,
+     * null if every user is handed out once per cycle.
+     */
+    private final int[] schedule;
+
+    private final int cycleLength;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private VirtualUserPool( List<VirtualUser> users, boolean weighted )
+    {
+        if ( users.isEmpty() )
+        {
+            throw new IllegalArgumentException( "Pool needs at least one user" );
+        }
+
+        this.users = Collections.unmodifiableList( new ArrayList<>( users ) );
+        this.members = new HashSet<>( users );
+
+        int[] weights = new int[users.size()];
+        int total = 0;
+
+        for ( int i = 0; i < users.size(); i++ )
+        {
+            weights[i] = weighted ? users.get( i ).getWeight() : 1;
+            total = Math.addExact( total, weights[i] );
+        }
+
+        this.cycleLength = total;
+        this.schedule = total == users.size() ? null : schedule( weights, total );
+    }
+
+    /**
+     * Creates a pool handing out the users in turn.
+     */
+    public static VirtualUserPool roundRobin( List<VirtualUser> users )
+    {
+        return new VirtualUserPool( users, false );
+    }
+
+    /**
+     * Creates a pool handing out each user in proportion to
+     * {@link VirtualUser#getWeight()}. Assignments are interleaved evenly
+     * over a cycle of the total weight, not drawn randomly. Users A, B and C
+     * of weights 2, 1 and 1 are handed out as A, B, C, A rather than A, A, B,
+     * C. The cycle takes an int per unit of total weight.
+     */
+    public static VirtualUserPool weighted( List<VirtualUser> users )
+    {
+        return new VirtualUserPool( users, true );
+    }
+
+    /**
+     * Creates a round-robin pool of users named prefix1 to prefixN sharing
+     * one password.
+     *
+     * @param usernamePrefix prefix of the usernames
+     * @param password password of all users
+     * @param count number of users
+     */
+    public static VirtualUserPool of( String usernamePrefix, String password, int count )
+    {
+        List<VirtualUser> users = new ArrayList<>( count );
+
+        for ( int i = 1; i <= count; i++ )
+        {
+            users.add( new VirtualUser( usernamePrefix + i, password ) );
+        }
+
+        return roundRobin( users );
+    }
+
+    /**
+     * Returns the next user of the pool.
+     */
+    public VirtualUser next()
+    {
+        int position = (int) Math.floorMod( counter.getAndIncrement(), (long) cycleLength );
+
+        return users.get( schedule == null ? position : schedule[position] );
+    }
+
+    /**
+     * Binds a user to the current thread. A thread that already has a user
+     * keeps it, so a worker acts as the same user for its whole lifetime.
+     *
+     * @return the user bound to the current thread
+     */
+    public VirtualUser assignToCurrentThread()
+    {
+        VirtualUser current = VirtualUser.current();
+
+        if ( current != null && members.contains( current ) )
+        {
+            return current;
+        }
+
+        VirtualUser user = next();
+        user.bind();
+
+        return user;
+    }
+
+    /**
+     * Runs the action as the next user of the pool.
+     */
+    public void runAsNext( Runnable action )
+    {
+        next().runAs( action );
+    }
+
+    public <T> T callAsNext( Supplier<T> action )
+    {
+        return next().callAs( action );
+    }
+
+    /**
+     * Interleaves the users over a cycle of the total weight. The k-th turn
+     * of a user with weight w is due at (k + 1/2) / w of the cycle, and turns
+     * are handed out in order of when they are due, so each user gets its
+     * weight in turns per cycle, spread evenly.
+     */
+    private static int[] schedule( int[] weights, int total )
+    {
+        int[] turns = new int[weights.length];
+
+        // compares (2 * turns + 1) / weight of two users without rounding
+        PriorityQueue<Integer> due = new PriorityQueue<>( weights.length, ( a, b ) -> {
+            int order = Long.compare( (2L * turns[a] + 1) * weights[b], (2L * turns[b] + 1) * weights[a] );
+
+            return order != 0 ? order : Integer.compare( a, b );
+        } );
+
+        for ( int i = 0; i < weights.length; i++ )
+        {
+            due.add( i );
+        }
+
+        int[] schedule = new int[total];
+
+        for ( int position = 0; position < total; position++ )
+        {
+            int user = due.poll();
+            schedule[position] = user;
+            turns[user]++;
+            due.add( user );
+        }
+
+        return schedule;
+    }
+
+    public List<VirtualUser> getUsers()
+    {
+        return users;
+    }
+
+    public int size()
+    {
+        return users.size();
+    }
+}
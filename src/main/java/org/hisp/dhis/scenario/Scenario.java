@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.scenario;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A user journey: named steps run in order, each followed by an optional
+ * think time. Values are passed between the steps through the
+ * {@link ScenarioContext}. Run with a {@link ScenarioRunner}.
+ *
+ * <pre>
+ * Scenario scenario = Scenario.named( "register and review" )
+ *     .step( "create data element", context -&gt; context.put( "dataElement",
+ *         new RestApiActions( "/dataElements" ).create( MetadataRandomizer.generateObjectForEndpoint( "dataElement" ) ) ) )
+ *     .thinkTime( 1, 3, TimeUnit.SECONDS )
+ *     .step( "read data element", context -&gt; new RestApiActions( "/dataElements" )
+ *         .get( context.getString( "dataElement" ) ).validate().statusCode( 200 ) );
+ * </pre>
+ */
+public class Scenario
+{
+    private final String name;
+
+    private final List<StepDefinition> steps = new ArrayList<>();
+
+    private Scenario( String name )
+    {
+        this.name = name;
+    }
+
+    public static Scenario named( String name )
+    {
+        return new Scenario( name );
+    }
+
+    /**
+     * Adds a step. Step names have to be unique, metrics are kept per name.
+     *
+     * @param name name of the step
+     * @param step action of the step
+     * @return Scenario
+     */
+    public Scenario step( String name, Step step )
+    {
+        if ( steps.stream().anyMatch( definition -> definition.name.equals( name ) ) )
+        {
+            throw new IllegalArgumentException( "Duplicate step " + name );
+        }
+
+        steps.add( new StepDefinition( name, step ) );
+
+        return this;
+    }
+
+    /**
+     * Pauses after the last added step for a random time between min and max.
+     *
+     * @param min minimum think time
+     * @param max maximum think time
+     * @param unit unit of min and max
+     * @return Scenario
+     */
+    public Scenario thinkTime( long min, long max, TimeUnit unit )
+    {
+        if ( steps.isEmpty() )
+        {
+            throw new IllegalStateException( "Think time has to follow a step" );
+        }
+
+        StepDefinition last = steps.get( steps.size() - 1 );
+        last.minThinkNanos = unit.toNanos( min );
+        last.maxThinkNanos = unit.toNanos( Math.max( min, max ) );
+
+        return this;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public List<String> getStepNames()
+    {
+        List<String> names = new ArrayList<>();
+        steps.forEach( step -> names.add( step.name ) );
+
+        return Collections.unmodifiableList( names );
+    }
+
+    List<StepDefinition> getSteps()
+    {
+        return steps;
+    }
+
+    static class StepDefinition
+    {
+        final String name;
+
+        final Step step;
+
+        long minThinkNanos;
+
+        long maxThinkNanos;
+
+        private StepDefinition( String name, Step step )
+        {
+            this.name = name;
+            this.step = step;
+        }
+
+        long thinkTimeNanos()
+        {
+            if ( maxThinkNanos <= minThinkNanos )
+            {
+                return minThinkNanos;
+            }
+
+            return ThreadLocalRandom.current().nextLong( minThinkNanos, maxThinkNanos + 1 );
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.scenario;
+
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Values passed between the steps of one iteration of a {@link Scenario}.
+ * Each iteration starts with an empty context and runs on a single thread.
+ */
+public class ScenarioContext
+{
+    private final Map<String, Object> values = new HashMap<>();
+
+    private final VirtualUser virtualUser;
+
+    private final int user;
+
+    private final int iteration;
+
+    ScenarioContext( VirtualUser virtualUser, int user, int iteration )
+    {
+        this.virtualUser = virtualUser;
+        this.user = user;
+        this.iteration = iteration;
+    }
+
+    public ScenarioContext put( String key, Object value )
+    {
+        values.put( key, value );
+
+        return this;
+    }
+
+    /**
+     * @param key key of the value
+     * @param <T> type of the value
+     * @return the value
+     * @throws NoSuchElementException if no earlier step put the value
+     */
+    @SuppressWarnings( "unchecked" )
+    public <T> T get( String key )
+    {
+        if ( !values.containsKey( key ) )
+        {
+            throw new NoSuchElementException( "No value " + key + " in scenario context" );
+        }
+
+        return (T) values.get( key );
+    }
+
+    public String getString( String key )
+    {
+        return String.valueOf( (Object) get( key ) );
+    }
+
+    public boolean has( String key )
+    {
+        return values.containsKey( key );
+    }
+
+    /**
+     * @return the user running the iteration, null if the runner has no
+     *         {@link org.hisp.dhis.rest_assured.extensions.VirtualUserPool}
+     */
+    public VirtualUser getVirtualUser()
+    {
+        return virtualUser;
+    }
+
+    /**
+     * @return number of the simulated user, from 0
+     */
+    public int getUser()
+    {
+        return user;
+    }
+
+    /**
+     * @return number of the iteration of the simulated user, from 0
+     */
+    public int getIteration()
+    {
+        return iteration;
+    }
+}
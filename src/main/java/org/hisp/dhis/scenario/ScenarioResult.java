@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.scenario;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a {@link ScenarioRunner#run(Scenario)}: iteration counts and the
+ * metrics of each step, in step order.
+ */
+public class ScenarioResult
+{
+    private final String scenario;
+
+    private final Map<String, StepMetrics> steps;
+
+    private final long iterations;
+
+    private final long failedIterations;
+
+    private final long elapsedNanos;
+
+    ScenarioResult( String scenario, Map<String, StepMetrics> steps, long iterations, long failedIterations,
+        long elapsedNanos )
+    {
+        this.scenario = scenario;
+        this.steps = Collections.unmodifiableMap( steps );
+        this.iterations = iterations;
+        this.failedIterations = failedIterations;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getScenario()
+    {
+        return scenario;
+    }
+
+    public Map<String, StepMetrics> getSteps()
+    {
+        return steps;
+    }
+
+    public StepMetrics getStep( String name )
+    {
+        StepMetrics metrics = steps.get( name );
+
+        if ( metrics == null )
+        {
+            throw new NoSuchElementException( "No step " + name + " in scenario " + scenario );
+        }
+
+        return metrics;
+    }
+
+    /**
+     * @return number of started iterations, including failed iterations
+     */
+    public long getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * @return number of iterations ended by a failing step
+     */
+    public long getFailedIterations()
+    {
+        return failedIterations;
+    }
+
+    public long getElapsed( TimeUnit unit )
+    {
+        return unit.convert( elapsedNanos, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * @return completed iterations per second
+     */
+    public double getThroughput()
+    {
+        return (iterations - failedIterations) * (double) TimeUnit.SECONDS.toNanos( 1 ) / Math.max( 1, elapsedNanos );
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder( String.format(
+            "%s: iterations=%d, failed=%d, elapsed=%dms, %.1f/s", scenario, iterations, failedIterations,
+            getElapsed( TimeUnit.MILLISECONDS ), getThroughput() ) );
+
+        steps.values().forEach( step -> builder.append( System.lineSeparator() ).append( "  " ).append( step ) );
+
+        return builder.toString();
+    }
+}
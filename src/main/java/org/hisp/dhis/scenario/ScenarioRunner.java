@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.scenario;
+
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+import org.hisp.dhis.rest_assured.extensions.VirtualUserPool;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a {@link Scenario} as a number of concurrent simulated users, each
+ * running its iterations one after another, and collects {@link StepMetrics}
+ * per step. A failing step ends its iteration, the user continues with the
+ * next one.
+ * <p>
+ * Users run on virtual threads when the JVM provides them (Java 21+), so
+ * thousands of users with think times can be simulated by one agent. On older
+ * JVMs every user needs a platform thread, which limits the practical number
+ * of users to a few hundred.
+ */
+public class ScenarioRunner
+{
+    private static final Logger LOGGER = Logger.getLogger( ScenarioRunner.class.getName() );
+
+    private int users = 1;
+
+    private int iterations = 1;
+
+    private long durationNanos;
+
+    private long rampUpNanos;
+
+    private boolean virtualThreads = true;
+
+    private VirtualUserPool virtualUserPool;
+
+    public ScenarioRunner setUsers( int users )
+    {
+        if ( users < 1 )
+        {
+            throw new IllegalArgumentException( "Users have to be positive, got " + users );
+        }
+
+        this.users = users;
+        return this;
+    }
+
+    /**
+     * @param iterations iterations per user, 0 to run until the duration
+     *        passed
+     * @return ScenarioRunner
+     */
+    public ScenarioRunner setIterations( int iterations )
+    {
+        this.iterations = Math.max( 0, iterations );
+        return this;
+    }
+
+    /**
+     * Stops starting new iterations once the duration passed. Iterations in
+     * progress are completed.
+     *
+     * @param duration duration of the run, 0 for no limit
+     * @param unit unit of the duration
+     * @return ScenarioRunner
+     */
+    public ScenarioRunner setDuration( long duration, TimeUnit unit )
+    {
+        this.durationNanos = unit.toNanos( duration );
+        return this;
+    }
+
+    /**
+     * Spreads the start of the users evenly over the given time.
+     *
+     * @param rampUp time until the last user starts
+     * @param unit unit of the ramp up
+     * @return ScenarioRunner
+     */
+    public ScenarioRunner setRampUp( long rampUp, TimeUnit unit )
+    {
+        this.rampUpNanos = unit.toNanos( rampUp );
+        return this;
+    }
+
+    /**
+     * @param virtualThreads false to run users on platform threads even when
+     *        virtual threads are available
+     * @return ScenarioRunner
+     */
+    public ScenarioRunner setVirtualThreads( boolean virtualThreads )
+    {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * Runs every simulated user as the next user of the pool. Without a pool,
+     * requests are sent as the user bound to the calling thread, if any.
+     *
+     * @param virtualUserPool pool of users to run the scenario as
+     * @return ScenarioRunner
+     */
+    public ScenarioRunner setVirtualUserPool( VirtualUserPool virtualUserPool )
+    {
+        this.virtualUserPool = virtualUserPool;
+        return this;
+    }
+
+    /**
+     * Runs the scenario and waits until all users completed.
+     *
+     * @param scenario scenario to run
+     * @return metrics of the run
+     */
+    public ScenarioResult run( Scenario scenario )
+    {
+        if ( scenario.getSteps().isEmpty() )
+        {
+            throw new IllegalArgumentException( "Scenario " + scenario.getName() + " has no steps" );
+        }
+
+        if ( iterations == 0 && durationNanos == 0 )
+        {
+            throw new IllegalStateException( "Either iterations or duration has to be set" );
+        }
+
+        long start = System.nanoTime();
+        Map<String, StepMetrics> metrics = new LinkedHashMap<>();
+        scenario.getSteps().forEach( step -> metrics.put( step.name, new StepMetrics( step.name, start ) ) );
+
+        LongAdder started = new LongAdder();
+        LongAdder failed = new LongAdder();
+        VirtualUser currentUser = VirtualUser.current();
+        ExecutorService executor = newExecutor( scenario.getName() );
+
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+
+            for ( int user = 0; user < users; user++ )
+            {
+                VirtualUser virtualUser = virtualUserPool == null ? currentUser : virtualUserPool.next();
+                long startAt = start + (users == 1 ? 0 : rampUpNanos * user / (users - 1));
+                int number = user;
+
+                futures.add( executor.submit( () -> {
+                    Runnable run = () -> runUser( scenario, metrics, virtualUser, number, start, startAt, started,
+                        failed );
+
+                    if ( virtualUser == null )
+                    {
+                        run.run();
+                    }
+                    else
+                    {
+                        virtualUser.runAs( run );
+                    }
+                } ) );
+            }
+
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while running scenario " + scenario.getName(), e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause();
+            }
+
+            if ( e.getCause() instanceof Error )
+            {
+                throw (Error) e.getCause();
+            }
+
+            throw new IllegalStateException( e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        long end = System.nanoTime();
+        metrics.values().forEach( step -> step.finish( end ) );
+
+        return new ScenarioResult( scenario.getName(), metrics, started.sum(), failed.sum(), end - start );
+    }
+
+    private void runUser( Scenario scenario, Map<String, StepMetrics> metrics, VirtualUser virtualUser, int user,
+        long start, long startAt, LongAdder started, LongAdder failed )
+    {
+        if ( !pauseUntil( startAt ) )
+        {
+            return;
+        }
+
+        for ( int iteration = 0; iterations == 0 || iteration < iterations; iteration++ )
+        {
+            if ( durationNanos > 0 && System.nanoTime() - start >= durationNanos )
+            {
+                return;
+            }
+
+            started.increment();
+            ScenarioContext context = new ScenarioContext( virtualUser, user, iteration );
+
+            for ( Scenario.StepDefinition step : scenario.getSteps() )
+            {
+                if ( !runStep( step, context, metrics.get( step.name ) ) )
+                {
+                    failed.increment();
+                    break;
+                }
+
+                if ( !pauseUntil( System.nanoTime() + step.thinkTimeNanos() ) )
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean runStep( Scenario.StepDefinition step, ScenarioContext context, StepMetrics metrics )
+    {
+        long stepStart = System.nanoTime();
+
+        try
+        {
+            step.step.run( context );
+            metrics.record( System.nanoTime() - stepStart, false );
+
+            return true;
+        }
+        catch ( RuntimeException | AssertionError e )
+        {
+            metrics.record( System.nanoTime() - stepStart, true );
+            LOGGER.log( Level.FINE, "Step " + step.name + " of user " + context.getUser() + " failed", e );
+
+            return false;
+        }
+    }
+
+    /**
+     * @return false if the thread was interrupted, the user stops then
+     */
+    private boolean pauseUntil( long nanoTime )
+    {
+        long pause = nanoTime - System.nanoTime();
+
+        if ( pause <= 0 )
+        {
+            return true;
+        }
+
+        try
+        {
+            TimeUnit.NANOSECONDS.sleep( pause );
+
+            return true;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+
+    private ExecutorService newExecutor( String scenario )
+    {
+        if ( virtualThreads )
+        {
+            try
+            {
+                return (ExecutorService) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+            }
+            catch ( ReflectiveOperationException e )
+            {
+                LOGGER.fine( "Virtual threads are not available, running users on platform threads" );
+            }
+        }
+
+        return Executors.newFixedThreadPool( users, runnable -> {
+            Thread thread = new Thread( runnable, "scenario-" + scenario );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+}
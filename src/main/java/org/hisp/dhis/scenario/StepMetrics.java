@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.scenario;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and throughput of one step of a {@link Scenario}, updated
+ * concurrently by all simulated users. Latencies are counted in a log-linear
+ * histogram of microseconds with 16 buckets per power of two, so percentiles
+ * are within about 3% of the recorded values and recording does not
+ * allocate.
+ */
+public class StepMetrics
+{
+    private static final int SUB_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private final String name;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( (64 - SUB_BUCKET_BITS) * SUB_BUCKETS );
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder totalMicros = new LongAdder();
+
+    private final long startNanos;
+
+    private volatile long endNanos;
+
+    StepMetrics( String name, long startNanos )
+    {
+        this.name = name;
+        this.startNanos = startNanos;
+    }
+
+    void record( long nanos, boolean failed )
+    {
+        long micros = TimeUnit.NANOSECONDS.toMicros( nanos );
+
+        buckets.incrementAndGet( bucket( micros ) );
+        totalMicros.add( micros );
+        count.increment();
+
+        if ( failed )
+        {
+            failures.increment();
+        }
+    }
+
+    void finish( long endNanos )
+    {
+        this.endNanos = endNanos;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return number of runs of the step, including failed runs
+     */
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    public long getFailureCount()
+    {
+        return failures.sum();
+    }
+
+    public double getMean( TimeUnit unit )
+    {
+        long count = getCount();
+
+        return count == 0 ? 0 : (double) unit.convert( totalMicros.sum(), TimeUnit.MICROSECONDS ) / count;
+    }
+
+    public long getMax( TimeUnit unit )
+    {
+        for ( int i = buckets.length() - 1; i >= 0; i-- )
+        {
+            if ( buckets.get( i ) > 0 )
+            {
+                return unit.convert( lowerBound( i + 1 ) - 1, TimeUnit.MICROSECONDS );
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @param unit unit of the result
+     * @return latency below which the given share of the runs completed
+     */
+    public long getPercentile( double percentile, TimeUnit unit )
+    {
+        if ( percentile < 0 || percentile > 100 )
+        {
+            throw new IllegalArgumentException( "Percentile has to be between 0 and 100, got " + percentile );
+        }
+
+        long count = getCount();
+
+        if ( count == 0 )
+        {
+            return 0;
+        }
+
+        long rank = Math.max( 1, (long) Math.ceil( percentile / 100 * count ) );
+        long seen = 0;
+
+        for ( int i = 0; i < buckets.length(); i++ )
+        {
+            seen += buckets.get( i );
+
+            if ( seen >= rank )
+            {
+                return unit.convert( (lowerBound( i ) + lowerBound( i + 1 ) - 1) / 2, TimeUnit.MICROSECONDS );
+            }
+        }
+
+        return getMax( unit );
+    }
+
+    /**
+     * @return runs of the step per second since the scenario run started
+     */
+    public double getThroughput()
+    {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        long elapsed = Math.max( 1, end - startNanos );
+
+        return getCount() * (double) TimeUnit.SECONDS.toNanos( 1 ) / elapsed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "%s: count=%d, failures=%d, mean=%.1fms, p50=%dms, p95=%dms, p99=%dms, max=%dms, %.1f/s",
+            name, getCount(), getFailureCount(), getMean( TimeUnit.MICROSECONDS ) / 1000,
+            getPercentile( 50, TimeUnit.MILLISECONDS ), getPercentile( 95, TimeUnit.MILLISECONDS ),
+            getPercentile( 99, TimeUnit.MILLISECONDS ), getMax( TimeUnit.MILLISECONDS ), getThroughput() );
+    }
+
+    static int bucket( long micros )
+    {
+        if ( micros < SUB_BUCKETS )
+        {
+            return (int) Math.max( 0, micros );
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros( micros );
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound( int bucket )
+    {
+        if ( bucket < SUB_BUCKETS )
+        {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,929 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.stub;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.hisp.dhis.utils.JsonObjectBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process http server emulating the DHIS2 endpoints this library uses,
+ * to measure client overhead without a DHIS2 instance. The api is served
+ * under /api, point RestAssured.baseURI or
+ * {@link org.hisp.dhis.actions.RestApiActions#setBaseUri(String)} to
+ * {@link #getBaseUri()}.
+ * <p>
+ * Emulated endpoints:
+ * <ul>
+ * <li>/system/id: generated uids</li>
+ * <li>/schemas and /schemas/{name}: registered schemas, see
+ * {@link #addSchema(String, JsonObject)}</li>
+ * <li>/periodTypes</li>
+ * <li>/tracker: sync import reports with an object report per imported
+ * object, async imports as completed jobs</li>
+ * <li>/tracker/jobs/{id} and /tracker/jobs/{id}/report</li>
+ * <li>/tracker/{resource}: paged exports of the collection</li>
+ * <li>/metadata: imports of collections, deletes with
+ * importStrategy=DELETE</li>
+ * <li>any other resource: in-memory CRUD with paged collections</li>
+ * </ul>
+ * Successful GET responses carry an ETag of their body and requests sending
+ * the same ETag in If-None-Match are answered with 304.
+ */
+public class Dhis2StubServer
+    implements Closeable
+{
+    private static final String API_PATH = "/api";
+
+    private static final char[] UID_LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private static final char[] UID_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
+        .toCharArray();
+
+    private static final String[] PERIOD_TYPES = { "Daily", "Weekly", "Monthly", "BiMonthly", "Quarterly",
+        "SixMonthly", "Yearly", "FinancialApril" };
+
+    private final Gson gson = new Gson();
+
+    private final Map<String, JsonObject> schemas = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<String, JsonObject>> objects = new ConcurrentHashMap<>();
+
+    private final Map<String, JsonObject> jobReports = new ConcurrentHashMap<>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private long latencyNanos;
+
+    private long latencyJitterNanos;
+
+    private int collectionSize;
+
+    private int paddingLength;
+
+    private int threads = 32;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    public Dhis2StubServer()
+    {
+        addDefaultSchemas();
+    }
+
+    /**
+     * Delays every response.
+     *
+     * @param latencyMillis fixed delay
+     * @param jitterMillis maximum random delay added to the fixed delay
+     * @return Dhis2StubServer
+     */
+    public Dhis2StubServer setLatency( long latencyMillis, long jitterMillis )
+    {
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos( latencyMillis );
+        this.latencyJitterNanos = TimeUnit.MILLISECONDS.toNanos( jitterMillis );
+
+        return this;
+    }
+
+    /**
+     * Fills collections of generic resources with generated objects up to
+     * the given size.
+     *
+     * @param collectionSize minimum number of objects in a collection response
+     * @return Dhis2StubServer
+     */
+    public Dhis2StubServer setCollectionSize( int collectionSize )
+    {
+        this.collectionSize = collectionSize;
+
+        return this;
+    }
+
+    /**
+     * Adds a description of the given length to generated objects and to
+     * the object reports of tracker imports, to control payload sizes.
+     *
+     * @param paddingLength length of the description
+     * @return Dhis2StubServer
+     */
+    public Dhis2StubServer setPaddingLength( int paddingLength )
+    {
+        this.paddingLength = paddingLength;
+
+        return this;
+    }
+
+    public Dhis2StubServer setThreads( int threads )
+    {
+        this.threads = threads;
+
+        return this;
+    }
+
+    /**
+     * Registers a schema served by /schemas/{name}.
+     *
+     * @param name name of the schema, e.g. dataElement
+     * @param schema schema with plural and properties
+     * @return Dhis2StubServer
+     */
+    public Dhis2StubServer addSchema( String name, JsonObject schema )
+    {
+        schemas.put( name, schema );
+
+        return this;
+    }
+
+    /**
+     * Starts the server on a free local port.
+     *
+     * @return Dhis2StubServer
+     */
+    public Dhis2StubServer start()
+    {
+        try
+        {
+            server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        executor = Executors.newFixedThreadPool( threads );
+        server.createContext( API_PATH, this::handle );
+        server.setExecutor( executor );
+        server.start();
+
+        return this;
+    }
+
+    /**
+     * @return uri of the api, e.g. http://127.0.0.1:41234/api
+     */
+    public String getBaseUri()
+    {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + API_PATH;
+    }
+
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    @Override
+    public void close()
+    {
+        if ( server != null )
+        {
+            server.stop( 0 );
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle( HttpExchange http )
+        throws IOException
+    {
+        requestCount.incrementAndGet();
+
+        try
+        {
+            byte[] requestBody = readBody( http.getRequestBody() );
+            String path = http.getRequestURI().getPath().substring( API_PATH.length() );
+            String[] segments = Arrays.stream( path.split( "/" ) )
+                .filter( segment -> !segment.isEmpty() )
+                .map( segment -> segment.endsWith( ".json" ) ? segment.substring( 0, segment.length() - 5 ) : segment )
+                .toArray( String[]::new );
+            Response response;
+
+            try
+            {
+                Map<String, String> params = queryParams( http.getRequestURI().getRawQuery() );
+
+                delay();
+
+                response = route( http.getRequestMethod(), segments, params, requestBody );
+            }
+            catch ( IllegalArgumentException | IllegalStateException | JsonParseException e )
+            {
+                // malformed params or bodies, including NumberFormatException
+                // and Gson type mismatches
+                response = error( 400, "Bad Request", String.valueOf( e.getMessage() ) );
+            }
+            catch ( RuntimeException e )
+            {
+                response = error( 500, "Internal Server Error", e.toString() );
+            }
+
+            http.getResponseHeaders().set( "Content-Type", "application/json;charset=UTF-8" );
+            byte[] body = response.body == null
+                ? new byte[0]
+                : gson.toJson( response.body ).getBytes( StandardCharsets.UTF_8 );
+
+            if ( http.getRequestMethod().equals( "GET" ) && response.status == 200 )
+            {
+                String etag = "\"" + Integer.toHexString( Arrays.hashCode( body ) ) + "\"";
+                http.getResponseHeaders().set( "ETag", etag );
+
+                if ( etag.equals( http.getRequestHeaders().getFirst( "If-None-Match" ) ) )
+                {
+                    http.sendResponseHeaders( 304, -1 );
+                    return;
+                }
+            }
+
+            http.sendResponseHeaders( response.status, body.length == 0 ? -1 : body.length );
+
+            try ( OutputStream out = http.getResponseBody() )
+            {
+                out.write( body );
+            }
+        }
+        finally
+        {
+            http.close();
+        }
+    }
+
+    private Response route( String method, String[] segments, Map<String, String> params, byte[] requestBody )
+    {
+        if ( segments.length == 0 )
+        {
+            return notFound( "/" );
+        }
+
+        switch ( segments[0] )
+        {
+        case "system":
+            if ( segments.length == 2 && segments[1].equals( "id" ) )
+            {
+                return systemIds( Integer.parseInt( params.getOrDefault( "limit", "1" ) ) );
+            }
+
+            return notFound( String.join( "/", segments ) );
+
+        case "schemas":
+            return schemas( segments );
+
+        case "periodTypes":
+            return periodTypes();
+
+        case "tracker":
+            return tracker( method, segments, params, requestBody );
+
+        case "metadata":
+            if ( segments.length == 1 && method.equals( "POST" ) )
+            {
+                return metadata( params, requestBody );
+            }
+
+            return notFound( String.join( "/", segments ) );
+
+        default:
+            return crud( method, segments, params, requestBody );
+        }
+    }
+
+    private Response systemIds( int limit )
+    {
+        JsonArray codes = new JsonArray();
+
+        for ( int i = 0; i < limit; i++ )
+        {
+            codes.add( uid() );
+        }
+
+        JsonObject body = new JsonObject();
+        body.add( "codes", codes );
+
+        return new Response( 200, body );
+    }
+
+    private Response schemas( String[] segments )
+    {
+        if ( segments.length == 1 )
+        {
+            JsonArray list = new JsonArray();
+            schemas.values().forEach( list::add );
+
+            JsonObject body = new JsonObject();
+            body.add( "schemas", list );
+
+            return new Response( 200, body );
+        }
+
+        JsonObject schema = schemas.get( segments[1] );
+
+        return schema == null ? notFound( "schemas/" + segments[1] ) : new Response( 200, schema );
+    }
+
+    private Response periodTypes()
+    {
+        JsonArray periodTypes = new JsonArray();
+
+        for ( int i = 0; i < PERIOD_TYPES.length; i++ )
+        {
+            periodTypes.add( new JsonObjectBuilder()
+                .addProperty( "name", PERIOD_TYPES[i] )
+                .addProperty( "isoFormat", PERIOD_TYPES[i].substring( 0, 1 ) )
+                .build() );
+            periodTypes.get( i ).getAsJsonObject().addProperty( "frequencyOrder", i + 1 );
+        }
+
+        JsonObject body = new JsonObject();
+        body.add( "periodTypes", periodTypes );
+
+        return new Response( 200, body );
+    }
+
+    private Response tracker( String method, String[] segments, Map<String, String> params, byte[] requestBody )
+    {
+        if ( segments.length == 1 && method.equals( "POST" ) )
+        {
+            JsonObject report = importReport( "DELETE".equals( params.get( "importStrategy" ) ), requestBody );
+
+            if ( "false".equals( params.get( "async" ) ) )
+            {
+                return new Response( 200, report );
+            }
+
+            String jobId = uid();
+            jobReports.put( jobId, report );
+
+            JsonObject response = new JsonObjectBuilder()
+                .addProperty( "id", jobId )
+                .addProperty( "location", getBaseUri() + "/tracker/jobs/" + jobId )
+                .build();
+
+            JsonObject body = new JsonObjectBuilder()
+                .addProperty( "httpStatus", "OK" )
+                .addProperty( "status", "OK" )
+                .addProperty( "message", "Tracker job added" )
+                .addObject( "response", new JsonObjectBuilder( response ) )
+                .build();
+            body.addProperty( "httpStatusCode", 200 );
+
+            return new Response( 200, body );
+        }
+
+        if ( segments.length >= 3 && segments[1].equals( "jobs" ) && method.equals( "GET" ) )
+        {
+            JsonObject report = jobReports.get( segments[2] );
+
+            if ( report == null )
+            {
+                return notFound( "tracker/jobs/" + segments[2] );
+            }
+
+            if ( segments.length == 4 && segments[3].equals( "report" ) )
+            {
+                return new Response( 200, report );
+            }
+
+            JsonObject notification = new JsonObjectBuilder()
+                .addProperty( "id", segments[2] )
+                .addProperty( "level", "INFO" )
+                .addProperty( "category", "TRACKER_IMPORT_JOB" )
+                .addProperty( "message", "Import complete" )
+                .build();
+            notification.addProperty( "completed", true );
+
+            JsonArray notifications = new JsonArray();
+            notifications.add( notification );
+
+            return new Response( 200, notifications );
+        }
+
+        if ( segments.length == 2 && method.equals( "GET" ) )
+        {
+            return collection( segments[1], objects.getOrDefault( segments[1], Collections.emptyMap() ), params );
+        }
+
+        return crud( method, segments, params, requestBody );
+    }
+
+    private JsonObject importReport( boolean delete, byte[] requestBody )
+    {
+        Map<String, JsonArray> objectReports = new LinkedHashMap<>();
+        objectReports.put( "TRACKED_ENTITY", new JsonArray() );
+        objectReports.put( "ENROLLMENT", new JsonArray() );
+        objectReports.put( "EVENT", new JsonArray() );
+        objectReports.put( "RELATIONSHIP", new JsonArray() );
+
+        JsonElement payload = requestBody.length == 0 ? null
+            : new JsonParser().parse( new String( requestBody, StandardCharsets.UTF_8 ) );
+
+        if ( payload != null && payload.isJsonObject() )
+        {
+            collect( payload.getAsJsonObject(), objectReports );
+        }
+
+        JsonObject typeReportMap = new JsonObject();
+        int total = 0;
+
+        for ( Map.Entry<String, JsonArray> entry : objectReports.entrySet() )
+        {
+            int count = entry.getValue().size();
+            total += count;
+
+            JsonObject typeReport = new JsonObject();
+            typeReport.addProperty( "trackerType", entry.getKey() );
+            typeReport.add( "stats", stats( delete ? "deleted" : "created", count ) );
+            typeReport.add( "objectReports", entry.getValue() );
+            typeReportMap.add( entry.getKey(), typeReport );
+        }
+
+        JsonObject bundleReport = new JsonObject();
+        bundleReport.addProperty( "status", "OK" );
+        bundleReport.add( "typeReportMap", typeReportMap );
+        bundleReport.add( "stats", stats( delete ? "deleted" : "created", total ) );
+
+        JsonObject validationReport = new JsonObject();
+        validationReport.add( "errorReports", new JsonArray() );
+        validationReport.add( "warningReports", new JsonArray() );
+
+        JsonObject report = new JsonObject();
+        report.addProperty( "status", "OK" );
+        report.add( "validationReport", validationReport );
+        report.add( "stats", stats( delete ? "deleted" : "created", total ) );
+        report.add( "bundleReport", bundleReport );
+
+        return report;
+    }
+
+    private void collect( JsonObject parent, Map<String, JsonArray> objectReports )
+    {
+        collect( parent, "trackedEntities", "trackedEntity", "TRACKED_ENTITY", objectReports );
+        collect( parent, "enrollments", "enrollment", "ENROLLMENT", objectReports );
+        collect( parent, "events", "event", "EVENT", objectReports );
+        collect( parent, "relationships", "relationship", "RELATIONSHIP", objectReports );
+    }
+
+    private void collect( JsonObject parent, String arrayName, String uidProperty, String trackerType,
+        Map<String, JsonArray> objectReports )
+    {
+        if ( !parent.has( arrayName ) || !parent.get( arrayName ).isJsonArray() )
+        {
+            return;
+        }
+
+        for ( JsonElement element : parent.getAsJsonArray( arrayName ) )
+        {
+            if ( !element.isJsonObject() )
+            {
+                continue;
+            }
+
+            JsonObject object = element.getAsJsonObject();
+            JsonElement uid = object.get( uidProperty );
+
+            JsonObject objectReport = new JsonObject();
+            objectReport.addProperty( "trackerType", trackerType );
+            objectReport.addProperty( "uid", uid == null || uid.isJsonNull() ? uid() : uid.getAsString() );
+            objectReport.addProperty( "index", objectReports.get( trackerType ).size() );
+            objectReport.add( "errorReports", new JsonArray() );
+
+            if ( paddingLength > 0 )
+            {
+                objectReport.addProperty( "description", padding() );
+            }
+
+            objectReports.get( trackerType ).add( objectReport );
+
+            collect( object, objectReports );
+        }
+    }
+
+    /**
+     * Stores or, with importStrategy=DELETE, removes the objects of every
+     * collection in the payload.
+     */
+    private Response metadata( Map<String, String> params, byte[] requestBody )
+    {
+        boolean delete = "DELETE".equals( params.get( "importStrategy" ) );
+        JsonObject payload = requestBody.length == 0 ? new JsonObject()
+            : new JsonParser().parse( new String( requestBody, StandardCharsets.UTF_8 ) ).getAsJsonObject();
+        int count = 0;
+        int ignored = 0;
+        JsonArray typeReports = new JsonArray();
+
+        for ( Map.Entry<String, JsonElement> collection : payload.entrySet() )
+        {
+            if ( !collection.getValue().isJsonArray() )
+            {
+                continue;
+            }
+
+            Map<String, JsonObject> stored = objects.computeIfAbsent( collection.getKey(),
+                r -> new ConcurrentHashMap<>() );
+            JsonArray objectReports = new JsonArray();
+            int index = 0;
+
+            for ( JsonElement element : collection.getValue().getAsJsonArray() )
+            {
+                JsonObject object = element.getAsJsonObject();
+                String uid = object.has( "id" ) ? object.get( "id" ).getAsString() : uid();
+                object.addProperty( "id", uid );
+
+                if ( delete ? stored.remove( uid ) != null : stored.put( uid, object ) == null )
+                {
+                    count++;
+                }
+                else if ( delete )
+                {
+                    ignored++;
+                    objectReports.add( notFoundReport( collection.getKey(), uid, index ) );
+                }
+
+                index++;
+            }
+
+            JsonObject typeReport = new JsonObject();
+            typeReport.addProperty( "klass", collection.getKey() );
+            typeReport.add( "objectReports", objectReports );
+            typeReports.add( typeReport );
+        }
+
+        JsonObject stats = new JsonObject();
+        stats.addProperty( delete ? "deleted" : "created", count );
+        stats.addProperty( "ignored", ignored );
+
+        JsonObject body = new JsonObjectBuilder()
+            .addProperty( "status", ignored > 0 ? "WARNING" : "OK" )
+            .build();
+        body.add( "stats", stats );
+        body.add( "typeReports", typeReports );
+
+        return new Response( 200, body );
+    }
+
+    private JsonObject notFoundReport( String collection, String uid, int index )
+    {
+        JsonObject errorReport = new JsonObjectBuilder()
+            .addProperty( "errorCode", "E5001" )
+            .addProperty( "message", "No " + collection + " with uid " + uid + " found" )
+            .build();
+        JsonArray errorReports = new JsonArray();
+        errorReports.add( errorReport );
+
+        JsonObject objectReport = new JsonObjectBuilder()
+            .addProperty( "klass", collection )
+            .addProperty( "uid", uid )
+            .build();
+        objectReport.addProperty( "index", index );
+        objectReport.add( "errorReports", errorReports );
+
+        return objectReport;
+    }
+
+    private Response crud( String method, String[] segments, Map<String, String> params, byte[] requestBody )
+    {
+        String resource = segments[0];
+        String id = segments.length > 1 ? segments[1] : null;
+        Map<String, JsonObject> stored = objects.computeIfAbsent( resource, r -> new ConcurrentHashMap<>() );
+
+        switch ( method )
+        {
+        case "GET":
+            if ( id == null )
+            {
+                return collection( resource, stored, params );
+            }
+
+            JsonObject object = stored.get( id );
+
+            return object == null ? notFound( resource + "/" + id ) : new Response( 200, object );
+
+        case "POST":
+        case "PUT":
+            JsonObject body = requestBody.length == 0 ? new JsonObject()
+                : new JsonParser().parse( new String( requestBody, StandardCharsets.UTF_8 ) ).getAsJsonObject();
+            String uid = id != null ? id : body.has( "id" ) ? body.get( "id" ).getAsString() : uid();
+            body.addProperty( "id", uid );
+            boolean created = stored.put( uid, body ) == null;
+
+            return webMessage( created ? 201 : 200, created ? "Created" : "OK", uid );
+
+        case "DELETE":
+            if ( id == null || stored.remove( id ) == null )
+            {
+                return notFound( resource + "/" + id );
+            }
+
+            return webMessage( 200, "OK", id );
+
+        default:
+            return new Response( 405, null );
+        }
+    }
+
+    /**
+     * Returns a page of the stored objects followed by generated ones. Pages
+     * follow the DHIS2 defaults: page 1 of 50 objects, unless paging=false.
+     */
+    private Response collection( String resource, Map<String, JsonObject> stored, Map<String, String> params )
+    {
+        List<JsonObject> storedList = new ArrayList<>( stored.values() );
+        int total = Math.max( storedList.size(), collectionSize );
+        boolean paging = !"false".equals( params.get( "paging" ) );
+        int pageSize = paging ? Integer.parseInt( params.getOrDefault( "pageSize", "50" ) ) : Math.max( total, 1 );
+        int page = paging ? Integer.parseInt( params.getOrDefault( "page", "1" ) ) : 1;
+
+        if ( pageSize < 1 || page < 1 )
+        {
+            throw new IllegalArgumentException( "page and pageSize have to be positive" );
+        }
+
+        JsonArray list = new JsonArray();
+
+        for ( int i = (page - 1) * pageSize; i < Math.min( page * pageSize, total ); i++ )
+        {
+            list.add( i < storedList.size() ? storedList.get( i ) : generated( resource, i ) );
+        }
+
+        JsonObject pager = new JsonObject();
+        pager.addProperty( "page", page );
+        pager.addProperty( "pageCount", (total + pageSize - 1) / pageSize );
+        pager.addProperty( "total", total );
+        pager.addProperty( "pageSize", pageSize );
+
+        JsonObject body = new JsonObject();
+
+        if ( paging )
+        {
+            body.add( "pager", pager );
+        }
+
+        body.add( resource, list );
+
+        return new Response( 200, body );
+    }
+
+    /**
+     * Generates the object at the index of a collection. The uid depends on
+     * the index only, so pages of a collection are stable between requests.
+     */
+    private JsonObject generated( String resource, int index )
+    {
+        JsonObject generated = new JsonObjectBuilder()
+            .addProperty( "id", String.format( "g%010d", index ) )
+            .addProperty( "name", resource + " " + index )
+            .build();
+
+        if ( paddingLength > 0 )
+        {
+            generated.addProperty( "description", padding() );
+        }
+
+        return generated;
+    }
+
+    private Response webMessage( int status, String httpStatus, String uid )
+    {
+        JsonObject body = new JsonObjectBuilder()
+            .addProperty( "httpStatus", httpStatus )
+            .addProperty( "status", "OK" )
+            .addObject( "response", new JsonObjectBuilder().addProperty( "uid", uid ) )
+            .build();
+        body.addProperty( "httpStatusCode", status );
+
+        return new Response( status, body );
+    }
+
+    private Response notFound( String path )
+    {
+        return error( 404, "Not Found", "Not found: " + path );
+    }
+
+    private Response error( int status, String httpStatus, String message )
+    {
+        JsonObject body = new JsonObjectBuilder()
+            .addProperty( "httpStatus", httpStatus )
+            .addProperty( "status", "ERROR" )
+            .addProperty( "message", message )
+            .build();
+        body.addProperty( "httpStatusCode", status );
+
+        return new Response( status, body );
+    }
+
+    private JsonObject stats( String counted, int count )
+    {
+        JsonObject stats = new JsonObject();
+        stats.addProperty( "created", 0 );
+        stats.addProperty( "updated", 0 );
+        stats.addProperty( "deleted", 0 );
+        stats.addProperty( "ignored", 0 );
+        stats.addProperty( counted, count );
+        stats.addProperty( "total", count );
+
+        return stats;
+    }
+
+    private void delay()
+    {
+        long nanos = latencyNanos;
+
+        if ( latencyJitterNanos > 0 )
+        {
+            nanos += ThreadLocalRandom.current().nextLong( latencyJitterNanos + 1 );
+        }
+
+        if ( nanos > 0 )
+        {
+            LockSupport.parkNanos( nanos );
+        }
+    }
+
+    private String padding()
+    {
+        char[] chars = new char[paddingLength];
+        Arrays.fill( chars, 'x' );
+
+        return new String( chars );
+    }
+
+    private static String uid()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] uid = new char[11];
+        uid[0] = UID_LETTERS[random.nextInt( UID_LETTERS.length )];
+
+        for ( int i = 1; i < uid.length; i++ )
+        {
+            uid[i] = UID_CHARS[random.nextInt( UID_CHARS.length )];
+        }
+
+        return new String( uid );
+    }
+
+    private static byte[] readBody( InputStream in )
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+
+        while ( (read = in.read( buffer )) != -1 )
+        {
+            out.write( buffer, 0, read );
+        }
+
+        return out.toByteArray();
+    }
+
+    private static Map<String, String> queryParams( String rawQuery )
+    {
+        Map<String, String> params = new HashMap<>();
+
+        if ( rawQuery == null )
+        {
+            return params;
+        }
+
+        try
+        {
+            for ( String param : rawQuery.split( "&" ) )
+            {
+                int separator = param.indexOf( '=' );
+                String key = separator < 0 ? param : param.substring( 0, separator );
+                String value = separator < 0 ? "" : param.substring( separator + 1 );
+                params.putIfAbsent( URLDecoder.decode( key, "UTF-8" ), URLDecoder.decode( value, "UTF-8" ) );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return params;
+    }
+
+    private void addDefaultSchemas()
+    {
+        addSchema( "dataElement", schema( "dataElements",
+            property( "name", "TEXT", 1, 230 ),
+            property( "shortName", "TEXT", 1, 50 ),
+            constant( "valueType", "TEXT", "NUMBER", "INTEGER", "BOOLEAN", "DATE" ),
+            constant( "aggregationType", "SUM", "AVERAGE", "COUNT", "NONE" ),
+            constant( "domainType", "AGGREGATE", "TRACKER" ) ) );
+
+        addSchema( "organisationUnit", schema( "organisationUnits",
+            property( "name", "TEXT", 1, 230 ),
+            property( "shortName", "TEXT", 1, 50 ),
+            property( "openingDate", "DATE", 0, 0 ) ) );
+
+        addSchema( "dataSet", schema( "dataSets",
+            property( "name", "TEXT", 1, 230 ),
+            property( "shortName", "TEXT", 1, 50 ),
+            property( "periodType", "TEXT", 1, 50 ) ) );
+    }
+
+    private JsonObject schema( String plural, JsonObject... properties )
+    {
+        JsonArray list = new JsonArray();
+        Arrays.stream( properties ).forEach( list::add );
+
+        JsonObject schema = new JsonObject();
+        schema.addProperty( "plural", plural );
+        schema.addProperty( "relativeApiEndpoint", "/" + plural );
+        schema.add( "properties", list );
+
+        return schema;
+    }
+
+    private JsonObject property( String name, String propertyType, int min, int max )
+    {
+        JsonObject property = new JsonObject();
+        property.addProperty( "name", name );
+        property.addProperty( "fieldName", name );
+        property.addProperty( "propertyType", propertyType );
+        property.addProperty( "required", true );
+        property.addProperty( "min", min );
+        property.addProperty( "max", max );
+        property.addProperty( "length", max );
+
+        return property;
+    }
+
+    private JsonObject constant( String name, String... constants )
+    {
+        JsonObject property = property( name, "CONSTANT", 0, 0 );
+        JsonArray values = new JsonArray();
+        Arrays.stream( constants ).forEach( values::add );
+        property.add( "constants", values );
+
+        return property;
+    }
+
+    private static class Response
+    {
+        private final int status;
+
+        private final JsonElement body;
+
+        private Response( int status, JsonElement body )
+        {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
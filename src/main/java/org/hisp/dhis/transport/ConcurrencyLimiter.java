@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.transport;
+
+import io.restassured.response.Response;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Adaptive client side cap of the requests in flight, per base uri and per
+ * endpoint. Each cap follows AIMD: it grows by one per round trip while
+ * requests succeed and the cap is in use, and shrinks by the backoff ratio
+ * when a request fails, is answered with 429 or 5xx, or takes longer than the
+ * latency limit. Requests over the cap wait, so a load holds the throughput
+ * the server sustains instead of overloading it. Thread safe, share one
+ * instance between all actions that send to the same server.
+ */
+public class ConcurrencyLimiter
+{
+    private final ConcurrentMap<String, Limit> limits = new ConcurrentHashMap<>();
+
+    private int initialLimit = 20;
+
+    private int minLimit = 1;
+
+    private int maxLimit = 500;
+
+    private double backoffRatio = 0.9;
+
+    private long latencyLimitNanos = TimeUnit.SECONDS.toNanos( 5 );
+
+    /**
+     * @param initialLimit cap of a base uri or endpoint before its first
+     *        response
+     * @return ConcurrencyLimiter
+     */
+    public ConcurrencyLimiter setInitialLimit( int initialLimit )
+    {
+        this.initialLimit = initialLimit;
+
+        return this;
+    }
+
+    public ConcurrencyLimiter setMinLimit( int minLimit )
+    {
+        this.minLimit = minLimit;
+
+        return this;
+    }
+
+    public ConcurrencyLimiter setMaxLimit( int maxLimit )
+    {
+        this.maxLimit = maxLimit;
+
+        return this;
+    }
+
+    /**
+     * @param backoffRatio factor applied to the cap on failure, between 0 and 1
+     * @return ConcurrencyLimiter
+     */
+    public ConcurrencyLimiter setBackoffRatio( double backoffRatio )
+    {
+        if ( backoffRatio <= 0 || backoffRatio >= 1 )
+        {
+            throw new IllegalArgumentException( "Backoff ratio has to be between 0 and 1, got " + backoffRatio );
+        }
+
+        this.backoffRatio = backoffRatio;
+
+        return this;
+    }
+
+    /**
+     * @param latencyLimit responses slower than this count as failures
+     * @param unit unit of the latency limit
+     * @return ConcurrencyLimiter
+     */
+    public ConcurrencyLimiter setLatencyLimit( long latencyLimit, TimeUnit unit )
+    {
+        this.latencyLimitNanos = unit.toNanos( latencyLimit );
+
+        return this;
+    }
+
+    /**
+     * Sends the request once both the endpoint and its base uri are under
+     * their cap, and adjusts both caps to the outcome.
+     *
+     * @param baseUri base uri of the request
+     * @param endpoint endpoint of the request, e.g. /dataElements
+     * @param request request to send
+     * @param sender sends the request
+     * @return the response
+     */
+    public Response send( String baseUri, String endpoint, TransportRequest request,
+        Function<TransportRequest, Response> sender )
+    {
+        Limit endpointLimit = limit( baseUri + " " + endpoint );
+        Limit baseUriLimit = limit( baseUri );
+
+        // the endpoint is acquired first, so requests waiting for their base
+        // uri never hold back other endpoints
+        int endpointInFlight = endpointLimit.acquire();
+        int baseUriInFlight;
+
+        try
+        {
+            baseUriInFlight = baseUriLimit.acquire();
+        }
+        catch ( RuntimeException e )
+        {
+            endpointLimit.release( endpointInFlight, false );
+            throw e;
+        }
+
+        long start = System.nanoTime();
+        boolean dropped = true;
+
+        try
+        {
+            Response response = sender.apply( request );
+            dropped = response.statusCode() == 429 || response.statusCode() >= 500
+                || System.nanoTime() - start > latencyLimitNanos;
+
+            return response;
+        }
+        finally
+        {
+            baseUriLimit.release( baseUriInFlight, dropped );
+            endpointLimit.release( endpointInFlight, dropped );
+        }
+    }
+
+    /**
+     * @param baseUri base uri of the requests
+     * @return current cap of the base uri, the initial limit if unused
+     */
+    public int getLimit( String baseUri )
+    {
+        Limit limit = limits.get( baseUri );
+
+        return limit == null ? initialLimit : limit.getLimit();
+    }
+
+    /**
+     * @param baseUri base uri of the requests
+     * @param endpoint endpoint of the requests
+     * @return current cap of the endpoint, the initial limit if unused
+     */
+    public int getLimit( String baseUri, String endpoint )
+    {
+        return getLimit( baseUri + " " + endpoint );
+    }
+
+    /**
+     * @param baseUri base uri of the requests
+     * @return number of requests to the base uri in flight
+     */
+    public int getInFlight( String baseUri )
+    {
+        Limit limit = limits.get( baseUri );
+
+        return limit == null ? 0 : limit.getInFlight();
+    }
+
+    private Limit limit( String key )
+    {
+        return limits.computeIfAbsent( key, k -> new Limit( initialLimit, minLimit, maxLimit, backoffRatio ) );
+    }
+
+    private static class Limit
+    {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition available = lock.newCondition();
+
+        private final int minLimit;
+
+        private final int maxLimit;
+
+        private final double backoffRatio;
+
+        private double limit;
+
+        private int inFlight;
+
+        private Limit( int initialLimit, int minLimit, int maxLimit, double backoffRatio )
+        {
+            this.limit = Math.max( minLimit, Math.min( maxLimit, initialLimit ) );
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.backoffRatio = backoffRatio;
+        }
+
+        /**
+         * @return requests in flight including this one
+         */
+        private int acquire()
+        {
+            lock.lock();
+
+            try
+            {
+                while ( inFlight >= (int) limit )
+                {
+                    available.await();
+                }
+
+                return ++inFlight;
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException( "Interrupted while waiting for a request slot", e );
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        private void release( int inFlightAtStart, boolean dropped )
+        {
+            lock.lock();
+
+            try
+            {
+                inFlight--;
+
+                if ( dropped )
+                {
+                    limit = Math.max( minLimit, limit * backoffRatio );
+                }
+                else if ( inFlightAtStart * 2 >= limit )
+                {
+                    limit = Math.min( maxLimit, limit + 1 / limit );
+                }
+
+                available.signalAll();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        private int getLimit()
+        {
+            lock.lock();
+
+            try
+            {
+                return (int) limit;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        private int getInFlight()
+        {
+            lock.lock();
+
+            try
+            {
+                return inFlight;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+}
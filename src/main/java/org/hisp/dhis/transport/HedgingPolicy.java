@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.transport;
+
+import io.restassured.response.Response;
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Hedges idempotent reads: a request that is not answered within a
+ * percentile of the recent latency of its endpoint is sent a second time, and
+ * whichever response arrives first is used. The body of the other response is
+ * read and dropped once it arrives, releasing its connection. Hedges are
+ * limited to a share of all requests, so a slow server is not pushed over by
+ * duplicates. Requests are sent as the {@link VirtualUser} bound to the
+ * calling thread. Thread safe.
+ */
+public class HedgingPolicy
+{
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool( runnable -> {
+        Thread thread = new Thread( runnable, "hedged-request" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private final ConcurrentMap<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong hedges = new AtomicLong();
+
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    private double percentile = 0.95;
+
+    private double budget = 0.05;
+
+    private int windowSize = 1_000;
+
+    private int minSamples = 20;
+
+    /**
+     * @param percentile percentile of the recent latency after which a hedge
+     *        is sent, between 0 and 1
+     * @return HedgingPolicy
+     */
+    public HedgingPolicy setPercentile( double percentile )
+    {
+        if ( percentile <= 0 || percentile >= 1 )
+        {
+            throw new IllegalArgumentException( "Percentile has to be between 0 and 1, got " + percentile );
+        }
+
+        this.percentile = percentile;
+
+        return this;
+    }
+
+    /**
+     * @param budget maximum share of requests that are hedged, e.g. 0.05 for
+     *        at most 5% extra requests
+     * @return HedgingPolicy
+     */
+    public HedgingPolicy setBudget( double budget )
+    {
+        this.budget = budget;
+
+        return this;
+    }
+
+    /**
+     * @param windowSize number of recent latencies per endpoint the percentile
+     *        is taken from
+     * @return HedgingPolicy
+     */
+    public HedgingPolicy setWindowSize( int windowSize )
+    {
+        this.windowSize = windowSize;
+
+        return this;
+    }
+
+    /**
+     * @param minSamples latencies of an endpoint needed before its requests
+     *        are hedged
+     * @return HedgingPolicy
+     */
+    public HedgingPolicy setMinSamples( int minSamples )
+    {
+        this.minSamples = minSamples;
+
+        return this;
+    }
+
+    /**
+     * Sends the request and hedges it if it is not answered in time.
+     *
+     * @param endpoint endpoint of the request, latencies are kept per endpoint
+     * @param request idempotent request to send
+     * @param sender sends the request, called concurrently when hedging
+     * @return the first successful response
+     */
+    public Response send( String endpoint, TransportRequest request, Function<TransportRequest, Response> sender )
+    {
+        LatencyWindow window = windows.computeIfAbsent( endpoint, e -> new LatencyWindow( windowSize ) );
+        VirtualUser virtualUser = VirtualUser.current();
+        requests.incrementAndGet();
+
+        CompletableFuture<Response> primary = sendAsync( virtualUser, window, request, sender );
+        long delayNanos = window.percentile( percentile, minSamples );
+
+        if ( delayNanos < 0 )
+        {
+            return await( primary );
+        }
+
+        try
+        {
+            return primary.get( delayNanos, TimeUnit.NANOSECONDS );
+        }
+        catch ( TimeoutException e )
+        {
+            // not answered in time, hedged below
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while waiting for " + endpoint, e );
+        }
+        catch ( ExecutionException e )
+        {
+            return await( primary );
+        }
+
+        if ( hedges.get() + 1 > budget * requests.get() )
+        {
+            return await( primary );
+        }
+
+        hedges.incrementAndGet();
+        CompletableFuture<Response> hedge = sendAsync( virtualUser, window, request, sender );
+        Response response = await( first( primary, hedge ) );
+
+        if ( hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.join() == response )
+        {
+            hedgesWon.incrementAndGet();
+        }
+
+        return response;
+    }
+
+    /**
+     * @return number of requests sent through the policy, without hedges
+     */
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * @return number of hedges sent
+     */
+    public long getHedgeCount()
+    {
+        return hedges.get();
+    }
+
+    /**
+     * @return number of hedges answered before the request they duplicated
+     */
+    public long getHedgeWonCount()
+    {
+        return hedgesWon.get();
+    }
+
+    /**
+     * @param endpoint endpoint of the requests
+     * @param unit unit of the returned delay
+     * @return latency after which requests to the endpoint are hedged, -1
+     *         while there are too few samples
+     */
+    public long getHedgeDelay( String endpoint, TimeUnit unit )
+    {
+        LatencyWindow window = windows.get( endpoint );
+        long delayNanos = window == null ? -1 : window.percentile( percentile, minSamples );
+
+        return delayNanos < 0 ? -1 : unit.convert( delayNanos, TimeUnit.NANOSECONDS );
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "HedgingPolicy(requests=%d, hedges=%d, won=%d)", getRequestCount(), getHedgeCount(),
+            getHedgeWonCount() );
+    }
+
+    private static CompletableFuture<Response> sendAsync( VirtualUser virtualUser, LatencyWindow window,
+        TransportRequest request, Function<TransportRequest, Response> sender )
+    {
+        return CompletableFuture.supplyAsync( () -> {
+            long start = System.nanoTime();
+            Response response = virtualUser == null ? sender.apply( request )
+                : virtualUser.callAs( () -> sender.apply( request ) );
+            window.add( System.nanoTime() - start );
+
+            return response;
+        }, EXECUTOR );
+    }
+
+    /**
+     * Completes with the first successful response, or with the failure of
+     * the primary request if both fail.
+     */
+    private static CompletableFuture<Response> first( CompletableFuture<Response> primary,
+        CompletableFuture<Response> hedge )
+    {
+        CompletableFuture<Response> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        primary.whenComplete( ( response, failure ) -> {
+            if ( failure == null )
+            {
+                completeOrDiscard( first, response );
+            }
+            else if ( failures.incrementAndGet() == 2 )
+            {
+                first.completeExceptionally( failure );
+            }
+        } );
+
+        hedge.whenComplete( ( response, failure ) -> {
+            if ( failure == null )
+            {
+                completeOrDiscard( first, response );
+            }
+            else if ( failures.incrementAndGet() == 2 )
+            {
+                primary.whenComplete( ( r, primaryFailure ) -> first.completeExceptionally( primaryFailure ) );
+            }
+        } );
+
+        return first;
+    }
+
+    /**
+     * Completes with the response, or reads and drops the body of the
+     * response that lost the race, so its connection is released instead of
+     * being held until the response is garbage collected.
+     */
+    private static void completeOrDiscard( CompletableFuture<Response> first, Response response )
+    {
+        if ( first.complete( response ) )
+        {
+            return;
+        }
+
+        try
+        {
+            response.asByteArray();
+        }
+        catch ( RuntimeException e )
+        {
+            // the connection is closed by the failure, nothing to release
+        }
+    }
+
+    private static Response await( CompletableFuture<Response> response )
+    {
+        try
+        {
+            return response.join();
+        }
+        catch ( CompletionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause();
+            }
+
+            if ( e.getCause() instanceof Error )
+            {
+                throw (Error) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Ring of the recent latencies of an endpoint. The ring is sorted again
+     * for the percentile once a tenth of its samples are new.
+     */
+    private static class LatencyWindow
+    {
+        private final long[] latencies;
+
+        private int count;
+
+        private int next;
+
+        private int addedSinceSort;
+
+        private long[] sorted = new long[0];
+
+        private LatencyWindow( int size )
+        {
+            this.latencies = new long[size];
+        }
+
+        private synchronized void add( long latencyNanos )
+        {
+            latencies[next] = latencyNanos;
+            next = (next + 1) % latencies.length;
+            count = Math.min( count + 1, latencies.length );
+            addedSinceSort++;
+        }
+
+        private synchronized long percentile( double percentile, int minSamples )
+        {
+            if ( count < Math.max( minSamples, 1 ) )
+            {
+                return -1;
+            }
+
+            if ( sorted.length == 0 || addedSinceSort >= Math.max( 1, count / 10 ) )
+            {
+                sorted = Arrays.copyOf( latencies, count );
+                Arrays.sort( sorted );
+                addedSinceSort = 0;
+            }
+
+            return sorted[Math.min( sorted.length - 1, (int) Math.ceil( percentile * sorted.length ) - 1 )];
+        }
+    }
+}
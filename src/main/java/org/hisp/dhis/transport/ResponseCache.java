@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.transport;
+
+import io.restassured.response.Response;
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Size bounded LRU cache of GET responses, revalidated with conditional
+ * requests. Responses carrying an ETag or Last-Modified header are stored,
+ * later requests to the same uri send If-None-Match or If-Modified-Since and
+ * a 304 response is answered with the stored response. Entries are kept per
+ * {@link VirtualUser}, as the content of a response depends on the user.
+ * Thread safe.
+ */
+public class ResponseCache
+{
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries number of responses kept before the least recently
+     *        used one is evicted
+     */
+    public ResponseCache( int maxEntries )
+    {
+        if ( maxEntries < 1 )
+        {
+            throw new IllegalArgumentException( "Cache size has to be positive, got " + maxEntries );
+        }
+
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest )
+            {
+                if ( size() > ResponseCache.this.maxEntries )
+                {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Sends the GET request, conditionally if a response to the uri is cached.
+     *
+     * @param uri resolved uri of the request
+     * @param request request to send
+     * @param sender sends the request
+     * @return the stored response if the server answered 304, the response of
+     *         the server otherwise
+     */
+    public Response send( String uri, TransportRequest request, Function<TransportRequest, Response> sender )
+    {
+        String key = StoredResponse.key( uri );
+        Entry entry;
+
+        synchronized ( entries )
+        {
+            entry = entries.get( key );
+        }
+
+        if ( entry != null && entry.etag != null )
+        {
+            request.setHeader( "If-None-Match", entry.etag );
+        }
+        else if ( entry != null )
+        {
+            request.setHeader( "If-Modified-Since", entry.lastModified );
+        }
+
+        Response response = sender.apply( request );
+
+        if ( entry != null && response.statusCode() == 304 )
+        {
+            hits.incrementAndGet();
+
+            return entry.response.toResponse( response.time() );
+        }
+
+        misses.incrementAndGet();
+
+        String etag = response.getHeader( "ETag" );
+        String lastModified = response.getHeader( "Last-Modified" );
+
+        if ( response.statusCode() == 200 && (etag != null || lastModified != null) )
+        {
+            Entry updated = new Entry( etag, lastModified, StoredResponse.of( response ) );
+
+            synchronized ( entries )
+            {
+                entries.put( key, updated );
+            }
+        }
+
+        return response;
+    }
+
+    public void clear()
+    {
+        synchronized ( entries )
+        {
+            entries.clear();
+        }
+    }
+
+    public int size()
+    {
+        synchronized ( entries )
+        {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return number of requests answered from the cache after a 304
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return number of requests answered with a full response
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * @return share of requests answered from the cache, 0 before the first
+     *         request
+     */
+    public double getHitRatio()
+    {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "ResponseCache(size=%d, hits=%d, misses=%d, evictions=%d)", size(), getHitCount(),
+            getMissCount(), getEvictionCount() );
+    }
+
+    private static class Entry
+    {
+        private final String etag;
+
+        private final String lastModified;
+
+        private final StoredResponse response;
+
+        private Entry( String etag, String lastModified, StoredResponse response )
+        {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.response = response;
+        }
+    }
+}
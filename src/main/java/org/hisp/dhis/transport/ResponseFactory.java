@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.transport;
+
+import io.restassured.RestAssured;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.time.TimingFilter;
+import io.restassured.http.Cookie;
+import io.restassured.http.Cookies;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.internal.ResponseParserRegistrar;
+import io.restassured.internal.RestAssuredResponseOptionsImpl;
+import io.restassured.response.Response;
+
+import java.net.HttpCookie;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Creates Rest-Assured responses from responses read by other clients.
+ * Responses built by {@link ResponseBuilder} alone have no configuration, so
+ * json path extraction and body access fail on them. The responses created
+ * here use the global Rest-Assured configuration and can be extracted and
+ * validated like responses sent through Rest-Assured.
+ */
+public class ResponseFactory
+{
+    private ResponseFactory()
+    {
+    }
+
+    /**
+     * @param statusCode status code of the response
+     * @param statusLine status line, null for a generated one
+     * @param headers response headers, in the order they were received
+     * @param body decoded body of the response
+     * @param timeMillis response time reported by {@link Response#time()}
+     * @return the response
+     */
+    public static Response create( int statusCode, String statusLine, List<Header> headers, String body,
+        long timeMillis )
+    {
+        return create( statusCode, statusLine, headers, new ResponseBuilder().setBody( body == null ? "" : body ),
+            timeMillis );
+    }
+
+    /**
+     * @param statusCode status code of the response
+     * @param statusLine status line, null for a generated one
+     * @param headers response headers, in the order they were received
+     * @param body body of the response as received. It is decoded by
+     *        Rest-Assured with the charset of the content type.
+     * @param timeMillis response time reported by {@link Response#time()}
+     * @return the response
+     */
+    public static Response create( int statusCode, String statusLine, List<Header> headers, byte[] body,
+        long timeMillis )
+    {
+        return create( statusCode, statusLine, headers,
+            new ResponseBuilder().setBody( body == null ? new byte[0] : body ), timeMillis );
+    }
+
+    private static Response create( int statusCode, String statusLine, List<Header> headers, ResponseBuilder builder,
+        long timeMillis )
+    {
+        Headers responseHeaders = new Headers( headers );
+
+        builder.setStatusCode( statusCode )
+            .setStatusLine( statusLine == null ? "HTTP/1.1 " + statusCode : statusLine )
+            .setHeaders( responseHeaders )
+            .setCookies( cookies( headers ) );
+
+        if ( responseHeaders.hasHeaderWithName( "Content-Type" ) )
+        {
+            builder.setContentType( responseHeaders.getValue( "Content-Type" ) );
+        }
+
+        Response response = builder.build();
+
+        RestAssuredResponseOptionsImpl<?> options = (RestAssuredResponseOptionsImpl<?>) response;
+        options.setConfig( RestAssured.config() );
+        options.setRpr( new ResponseParserRegistrar() );
+        options.setFilterContextProperties(
+            Collections.singletonMap( TimingFilter.RESPONSE_TIME_MILLISECONDS, timeMillis ) );
+
+        return response;
+    }
+
+    private static Cookies cookies( List<Header> headers )
+    {
+        List<Cookie> cookies = new ArrayList<>();
+
+        for ( Header header : headers )
+        {
+            if ( !"Set-Cookie".equalsIgnoreCase( header.getName() ) )
+            {
+                continue;
+            }
+
+            for ( HttpCookie cookie : HttpCookie.parse( header.getValue() ) )
+            {
+                cookies.add( new Cookie.Builder( cookie.getName(), cookie.getValue() )
+                    .setPath( cookie.getPath() )
+                    .setMaxAge( (int) cookie.getMaxAge() )
+                    .build() );
+            }
+        }
+
+        return new Cookies( cookies );
+    }
+}
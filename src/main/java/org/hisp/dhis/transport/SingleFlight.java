@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.transport;
+
+import io.restassured.response.Response;
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent identical GET requests. The first request to a uri is
+ * sent, requests to the same uri arriving while it is in flight wait for it
+ * and receive a copy of its response, or its failure. Requests are only
+ * identical if they are sent as the same {@link VirtualUser}. Nothing is kept
+ * once the request completes, see {@link ResponseCache} for that.
+ */
+public class SingleFlight
+{
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong sent = new AtomicLong();
+
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * Sends the GET request, or waits for an identical request in flight.
+     *
+     * @param uri resolved uri of the request
+     * @param request request to send
+     * @param sender sends the request
+     * @return the response of the request or a copy of the response of the
+     *         identical request in flight
+     */
+    public Response send( String uri, TransportRequest request, Function<TransportRequest, Response> sender )
+    {
+        String key = StoredResponse.key( uri );
+        CompletableFuture<StoredResponse> call = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> leader = inFlight.putIfAbsent( key, call );
+
+        if ( leader != null )
+        {
+            return await( leader );
+        }
+
+        sent.incrementAndGet();
+
+        try
+        {
+            Response response = sender.apply( request );
+            call.complete( StoredResponse.of( response ) );
+
+            return response;
+        }
+        catch ( RuntimeException | Error e )
+        {
+            call.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            inFlight.remove( key, call );
+        }
+    }
+
+    /**
+     * @return number of requests sent to the server
+     */
+    public long getSentCount()
+    {
+        return sent.get();
+    }
+
+    /**
+     * @return number of requests answered with the response of another request
+     */
+    public long getSharedCount()
+    {
+        return shared.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "SingleFlight(sent=%d, shared=%d)", getSentCount(), getSharedCount() );
+    }
+
+    private Response await( CompletableFuture<StoredResponse> leader )
+    {
+        long start = System.nanoTime();
+        StoredResponse response;
+
+        try
+        {
+            response = leader.join();
+        }
+        catch ( CompletionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause();
+            }
+
+            if ( e.getCause() instanceof Error )
+            {
+                throw (Error) e.getCause();
+            }
+
+            throw e;
+        }
+
+        shared.incrementAndGet();
+
+        return response.toResponse( (System.nanoTime() - start) / 1_000_000 );
+    }
+}
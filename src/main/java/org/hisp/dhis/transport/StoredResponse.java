@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.transport;
+
+import io.restassured.http.Header;
+import io.restassured.response.Response;
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Status, headers and body of a response, kept to answer later or concurrent
+ * requests with a copy. The body is kept as bytes, so copies of responses
+ * that are binary or not in the default charset are not altered. Cookies are not kept, they belong to the session of
+ * the request that received them.
+ */
+class StoredResponse
+{
+    private final int statusCode;
+
+    private final String statusLine;
+
+    private final List<Header> headers;
+
+    private final byte[] body;
+
+    private StoredResponse( int statusCode, String statusLine, List<Header> headers, byte[] body )
+    {
+        this.statusCode = statusCode;
+        this.statusLine = statusLine;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    static StoredResponse of( Response response )
+    {
+        List<Header> headers = new ArrayList<>();
+
+        for ( Header header : response.getHeaders() )
+        {
+            if ( !"Set-Cookie".equalsIgnoreCase( header.getName() ) )
+            {
+                headers.add( header );
+            }
+        }
+
+        return new StoredResponse( response.statusCode(), response.getStatusLine(), headers, response.asByteArray() );
+    }
+
+    /**
+     * Key of a response to the uri, requested as the {@link VirtualUser}
+     * bound to the current thread.
+     */
+    static String key( String uri )
+    {
+        VirtualUser virtualUser = VirtualUser.current();
+
+        return virtualUser == null ? uri : virtualUser.getUsername() + " " + uri;
+    }
+
+    Response toResponse( long timeMillis )
+    {
+        return ResponseFactory.create( statusCode, statusLine, headers, body, timeMillis );
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.transport;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Method, path, headers and body of a request sent by
+ * {@link org.hisp.dhis.actions.RestApiActions}. The path is relative to the
+ * endpoint of the actions instance.
+ */
+public class TransportRequest
+{
+    private final String method;
+
+    private final String path;
+
+    private String contentType;
+
+    private Object body;
+
+    private Map<String, String> headers = Collections.emptyMap();
+
+    public TransportRequest( String method, String path )
+    {
+        this.method = method;
+        this.path = path == null ? "" : path;
+    }
+
+    public TransportRequest setContentType( String contentType )
+    {
+        this.contentType = contentType;
+
+        return this;
+    }
+
+    /**
+     * @param body String, byte[], File or an object serialized to json
+     * @return TransportRequest
+     */
+    public TransportRequest setBody( Object body )
+    {
+        this.body = body;
+
+        return this;
+    }
+
+    public TransportRequest setHeader( String name, String value )
+    {
+        if ( headers.isEmpty() )
+        {
+            headers = new LinkedHashMap<>();
+        }
+
+        headers.put( name, value );
+
+        return this;
+    }
+
+    public String getMethod()
+    {
+        return method;
+    }
+
+    public String getPath()
+    {
+        return path;
+    }
+
+    public String getContentType()
+    {
+        return contentType;
+    }
+
+    public Object getBody()
+    {
+        return body;
+    }
+
+    public Map<String, String> getHeaders()
+    {
+        return Collections.unmodifiableMap( headers );
+    }
+}
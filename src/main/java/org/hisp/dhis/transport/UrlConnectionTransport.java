@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.transport;
+
+import com.google.gson.Gson;
+import io.restassured.RestAssured;
+import io.restassured.authentication.AuthenticationScheme;
+import io.restassured.authentication.BasicAuthScheme;
+import io.restassured.authentication.PreemptiveBasicAuthScheme;
+import io.restassured.config.EncoderConfig;
+import io.restassured.http.Header;
+import io.restassured.response.Response;
+import io.restassured.http.Cookie;
+import org.hisp.dhis.request.UrlEncoding;
+import org.hisp.dhis.rest_assured.extensions.SessionCache;
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Lean transport on top of {@link HttpURLConnection}. Connections are kept
+ * alive and pooled by the JDK, and no filters, logging or response
+ * specifications are involved. Requests are authenticated as the
+ * {@link VirtualUser} bound to the thread, or with the global Rest-Assured
+ * basic authentication. Sessions are reused like in
+ * {@link org.hisp.dhis.rest_assured.extensions.AuthFilterExtension}: the
+ * session cookie is sent with the credentials, from the virtual user's
+ * cookie jar or from a {@link SessionCache} for the global authentication,
+ * and updated from the response. Rest-Assured filters are not applied.
+ * Paths and queries are encoded as described in {@link UrlEncoding}.
+ * Request and response bodies are passed on as bytes.
+ */
+public class UrlConnectionTransport
+    implements HttpTransport
+{
+    private static final Gson GSON = new Gson();
+
+    private final SessionCache sessionCache;
+
+    private int connectTimeoutMillis = 10_000;
+
+    private int readTimeoutMillis = 60_000;
+
+    public UrlConnectionTransport()
+    {
+        this( new SessionCache() );
+    }
+
+    /**
+     * @param sessionCache cache of the sessions of the global authentication,
+     *        for example the one of the
+     *        {@link org.hisp.dhis.rest_assured.extensions.AuthFilterExtension}
+     *        used for requests sent through Rest-Assured
+     */
+    public UrlConnectionTransport( SessionCache sessionCache )
+    {
+        this.sessionCache = sessionCache;
+    }
+
+    public UrlConnectionTransport setConnectTimeout( int connectTimeoutMillis )
+    {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+
+        return this;
+    }
+
+    public UrlConnectionTransport setReadTimeout( int readTimeoutMillis )
+    {
+        this.readTimeoutMillis = readTimeoutMillis;
+
+        return this;
+    }
+
+    @Override
+    public Response send( String uri, TransportRequest request )
+    {
+        long start = System.nanoTime();
+
+        try
+        {
+            HttpURLConnection connection = (HttpURLConnection) new URL( UrlEncoding.encodeUri( uri ) ).openConnection();
+            connection.setRequestMethod( request.getMethod() );
+            connection.setConnectTimeout( connectTimeoutMillis );
+            connection.setReadTimeout( readTimeoutMillis );
+            connection.setInstanceFollowRedirects( false );
+            connection.setRequestProperty( "Accept", "*/*" );
+            request.getHeaders().forEach( connection::setRequestProperty );
+
+            VirtualUser virtualUser = VirtualUser.current();
+            Credentials credentials = virtualUser == null ? globalCredentials() : null;
+            authenticate( connection, virtualUser, credentials );
+            writeBody( connection, request );
+
+            int statusCode = connection.getResponseCode();
+            List<Header> headers = headers( connection );
+            byte[] body = readBody( connection, statusCode );
+
+            Response response = ResponseFactory.create( statusCode, connection.getHeaderField( 0 ), headers, body,
+                (System.nanoTime() - start) / 1_000_000 );
+
+            if ( virtualUser != null )
+            {
+                virtualUser.updateSession( response );
+            }
+            else if ( credentials != null )
+            {
+                updateSession( credentials, response );
+            }
+
+            return response;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( request.getMethod() + " " + uri + " failed", e );
+        }
+    }
+
+    private void authenticate( HttpURLConnection connection, VirtualUser virtualUser, Credentials credentials )
+    {
+        if ( virtualUser != null )
+        {
+            connection.setRequestProperty( "Authorization",
+                basic( virtualUser.getUsername(), virtualUser.getPassword() ) );
+
+            if ( !virtualUser.getCookies().isEmpty() )
+            {
+                connection.setRequestProperty( "Cookie", virtualUser.getCookies().entrySet().stream()
+                    .map( cookie -> cookie.getKey() + "=" + cookie.getValue() )
+                    .collect( Collectors.joining( "; " ) ) );
+            }
+
+            return;
+        }
+
+        if ( credentials == null )
+        {
+            return;
+        }
+
+        connection.setRequestProperty( "Authorization", basic( credentials.username, credentials.password ) );
+
+        SessionCache.Session session = sessionCache.get( credentials.username, credentials.password );
+
+        if ( session != null )
+        {
+            connection.setRequestProperty( "Cookie", session.getCookieName() + "=" + session.getCookieValue() );
+        }
+    }
+
+    private Credentials globalCredentials()
+    {
+        AuthenticationScheme scheme = RestAssured.authentication;
+
+        if ( scheme instanceof PreemptiveBasicAuthScheme )
+        {
+            PreemptiveBasicAuthScheme basicScheme = (PreemptiveBasicAuthScheme) scheme;
+
+            return new Credentials( basicScheme.getUserName(), basicScheme.getPassword() );
+        }
+
+        if ( scheme instanceof BasicAuthScheme )
+        {
+            BasicAuthScheme basicScheme = (BasicAuthScheme) scheme;
+
+            return new Credentials( basicScheme.getUserName(), basicScheme.getPassword() );
+        }
+
+        return null;
+    }
+
+    private void updateSession( Credentials credentials, Response response )
+    {
+        if ( response.statusCode() == 401 )
+        {
+            sessionCache.invalidate( credentials.username );
+            return;
+        }
+
+        for ( String cookieName : SessionCache.SESSION_COOKIE_NAMES )
+        {
+            Cookie cookie = response.getDetailedCookie( cookieName );
+
+            if ( cookie != null && cookie.getValue() != null && !cookie.getValue().isEmpty() )
+            {
+                sessionCache.put( credentials.username, credentials.password, cookieName, cookie.getValue() );
+            }
+        }
+    }
+
+    private void writeBody( HttpURLConnection connection, TransportRequest request )
+        throws IOException
+    {
+        Object body = request.getBody();
+        String contentType = request.getContentType();
+
+        if ( body == null )
+        {
+            if ( contentType != null )
+            {
+                connection.setRequestProperty( "Content-Type", contentType );
+            }
+
+            return;
+        }
+
+        byte[] bytes;
+
+        if ( body instanceof byte[] )
+        {
+            bytes = (byte[]) body;
+        }
+        else if ( body instanceof File )
+        {
+            bytes = Files.readAllBytes( ((File) body).toPath() );
+        }
+        else if ( body instanceof String )
+        {
+            EncoderConfig encoderConfig = RestAssured.config().getEncoderConfig();
+
+            if ( contentType == null )
+            {
+                contentType = "text/plain; charset=" + encoderConfig.defaultContentCharset();
+            }
+
+            bytes = ((String) body).getBytes(
+                charset( contentType, encoderConfig.defaultCharsetForContentType( mimeType( contentType ) ) ) );
+        }
+        else
+        {
+            bytes = GSON.toJson( body ).getBytes( StandardCharsets.UTF_8 );
+            contentType = contentType == null ? "application/json" : contentType;
+        }
+
+        connection.setRequestProperty( "Content-Type", contentType == null ? "application/octet-stream" : contentType );
+        connection.setDoOutput( true );
+        connection.setFixedLengthStreamingMode( bytes.length );
+
+        try ( OutputStream out = connection.getOutputStream() )
+        {
+            out.write( bytes );
+        }
+    }
+
+    private List<Header> headers( HttpURLConnection connection )
+    {
+        List<Header> headers = new ArrayList<>();
+
+        for ( Map.Entry<String, List<String>> field : connection.getHeaderFields().entrySet() )
+        {
+            if ( field.getKey() == null )
+            {
+                continue;
+            }
+
+            for ( String value : field.getValue() )
+            {
+                headers.add( new Header( field.getKey(), value ) );
+            }
+        }
+
+        return headers;
+    }
+
+    /**
+     * Reads the whole body, also of error responses, so the connection can be
+     * reused.
+     */
+    private byte[] readBody( HttpURLConnection connection, int statusCode )
+        throws IOException
+    {
+        InputStream in = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+
+        if ( in == null )
+        {
+            return new byte[0];
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+
+        try ( InputStream stream = in )
+        {
+            int read;
+
+            while ( (read = stream.read( buffer )) != -1 )
+            {
+                out.write( buffer, 0, read );
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    private static String mimeType( String contentType )
+    {
+        int separator = contentType.indexOf( ';' );
+
+        return (separator < 0 ? contentType : contentType.substring( 0, separator )).trim();
+    }
+
+    private static Charset charset( String contentType, String defaultCharset )
+    {
+        for ( String parameter : contentType.split( ";" ) )
+        {
+            String trimmed = parameter.trim();
+
+            if ( trimmed.regionMatches( true, 0, "charset=", 0, 8 ) )
+            {
+                defaultCharset = trimmed.substring( 8 ).replace( "\"", "" );
+                break;
+            }
+        }
+
+        try
+        {
+            return Charset.forName( defaultCharset );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    private static String basic( String username, String password )
+    {
+        return "Basic " + Base64.getEncoder()
+            .encodeToString( (username + ":" + password).getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private static class Credentials
+    {
+        private final String username;
+
+        private final String password;
+
+        private Credentials( String username, String password )
+        {
+            this.username = username;
+            this.password = password;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package org.hisp.dhis.utils;
 
 import com.github.javafaker.Faker;
 import com.vividsolutions.jts.geom.Coordinate;
-import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.Point;
 import org.apache.commons.lang3.RandomStringUtils;
 
@@ -43,9 +42,8 @@ public class DataRandomizer
     {
         double latitude = (Math.random() * 180.0) - 90.0;
         double longitude = (Math.random() * 360.0) - 180.0;
-        GeometryFactory geometryFactory = new GeometryFactory();
         /* Longitude (= x coord) first ! */
-        return geometryFactory.createPoint( new Coordinate( longitude, latitude ) );
+        return GeometryRandomizer.geometryFactory().createPoint( new Coordinate( longitude, latitude ) );
     }
 
     /**
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes JTS geometries as GeoJSON, either straight into a streaming
+ * {@link JsonWriter} or into a Gson {@link JsonObject} for use with
+ * {@link JsonObjectBuilder}.
+ */
+public class GeoJsonWriter
+{
+    private GeoJsonWriter()
+    {
+    }
+
+    /**
+     * Writes a GeoJSON point without creating any intermediate geometry.
+     *
+     * @param writer writer positioned where a value is expected
+     * @param longitude x coordinate
+     * @param latitude y coordinate
+     * @throws IOException if writing fails
+     */
+    public static void writePoint( JsonWriter writer, double longitude, double latitude )
+        throws IOException
+    {
+        writer.beginObject();
+        writer.name( "type" ).value( "Point" );
+        writer.name( "coordinates" );
+        writePosition( writer, longitude, latitude );
+        writer.endObject();
+    }
+
+    /**
+     * Writes the geometry as GeoJSON. Supports Point, LineString, Polygon and
+     * MultiPolygon.
+     *
+     * @param writer writer positioned where a value is expected
+     * @param geometry geometry to write
+     * @throws IOException if writing fails
+     */
+    public static void write( JsonWriter writer, Geometry geometry )
+        throws IOException
+    {
+        if ( geometry instanceof Point )
+        {
+            Coordinate coordinate = geometry.getCoordinate();
+            writePoint( writer, coordinate.x, coordinate.y );
+            return;
+        }
+
+        writer.beginObject();
+        writer.name( "type" ).value( geometry.getGeometryType() );
+        writer.name( "coordinates" );
+
+        if ( geometry instanceof LineString )
+        {
+            writePositions( writer, geometry.getCoordinates() );
+        }
+        else if ( geometry instanceof Polygon )
+        {
+            writePolygonRings( writer, (Polygon) geometry );
+        }
+        else if ( geometry instanceof MultiPolygon )
+        {
+            writer.beginArray();
+
+            for ( int i = 0; i < geometry.getNumGeometries(); i++ )
+            {
+                writePolygonRings( writer, (Polygon) geometry.getGeometryN( i ) );
+            }
+
+            writer.endArray();
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unsupported geometry type: " + geometry.getGeometryType() );
+        }
+
+        writer.endObject();
+    }
+
+    /**
+     * Converts the geometry to a GeoJSON {@link JsonObject}.
+     *
+     * @param geometry geometry to convert
+     * @return a {@link JsonObject}
+     */
+    public static JsonObject toJsonObject( Geometry geometry )
+    {
+        JsonObject object = new JsonObject();
+        object.addProperty( "type", geometry.getGeometryType() );
+
+        if ( geometry instanceof Point )
+        {
+            object.add( "coordinates", toPosition( geometry.getCoordinate() ) );
+        }
+        else if ( geometry instanceof LineString )
+        {
+            object.add( "coordinates", toPositions( geometry.getCoordinates() ) );
+        }
+        else if ( geometry instanceof Polygon )
+        {
+            object.add( "coordinates", toPolygonRings( (Polygon) geometry ) );
+        }
+        else if ( geometry instanceof MultiPolygon )
+        {
+            JsonArray polygons = new JsonArray();
+
+            for ( int i = 0; i < geometry.getNumGeometries(); i++ )
+            {
+                polygons.add( toPolygonRings( (Polygon) geometry.getGeometryN( i ) ) );
+            }
+
+            object.add( "coordinates", polygons );
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unsupported geometry type: " + geometry.getGeometryType() );
+        }
+
+        return object;
+    }
+
+    /**
+     * Converts the geometry to a GeoJSON string.
+     *
+     * @param geometry geometry to convert
+     * @return GeoJSON
+     */
+    public static String toJson( Geometry geometry )
+    {
+        StringWriter stringWriter = new StringWriter();
+
+        try
+        {
+            write( new JsonWriter( stringWriter ), geometry );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return stringWriter.toString();
+    }
+
+    private static void writePolygonRings( JsonWriter writer, Polygon polygon )
+        throws IOException
+    {
+        writer.beginArray();
+        writePositions( writer, polygon.getExteriorRing().getCoordinates() );
+
+        for ( int i = 0; i < polygon.getNumInteriorRing(); i++ )
+        {
+            writePositions( writer, polygon.getInteriorRingN( i ).getCoordinates() );
+        }
+
+        writer.endArray();
+    }
+
+    private static void writePositions( JsonWriter writer, Coordinate[] coordinates )
+        throws IOException
+    {
+        writer.beginArray();
+
+        for ( Coordinate coordinate : coordinates )
+        {
+            writePosition( writer, coordinate.x, coordinate.y );
+        }
+
+        writer.endArray();
+    }
+
+    private static void writePosition( JsonWriter writer, double x, double y )
+        throws IOException
+    {
+        writer.beginArray();
+        writer.value( x );
+        writer.value( y );
+        writer.endArray();
+    }
+
+    private static JsonArray toPolygonRings( Polygon polygon )
+    {
+        JsonArray rings = new JsonArray();
+        rings.add( toPositions( polygon.getExteriorRing().getCoordinates() ) );
+
+        for ( int i = 0; i < polygon.getNumInteriorRing(); i++ )
+        {
+            rings.add( toPositions( polygon.getInteriorRingN( i ).getCoordinates() ) );
+        }
+
+        return rings;
+    }
+
+    private static JsonArray toPositions( Coordinate[] coordinates )
+    {
+        JsonArray positions = new JsonArray();
+
+        for ( Coordinate coordinate : coordinates )
+        {
+            positions.add( toPosition( coordinate ) );
+        }
+
+        return positions;
+    }
+
+    private static JsonArray toPosition( Coordinate coordinate )
+    {
+        JsonArray position = new JsonArray();
+        position.add( coordinate.x );
+        position.add( coordinate.y );
+
+        return position;
+    }
+}
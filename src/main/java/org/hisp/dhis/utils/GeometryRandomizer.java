@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.utils;
+
+import com.vividsolutions.jts.algorithm.locate.IndexedPointInAreaLocator;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Location;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates random points and polygons for org unit and event coordinates.
+ * All geometries are created by one shared {@link GeometryFactory}. When no
+ * {@link Random} is given, {@link ThreadLocalRandom} is used, so a single
+ * instance can be shared between generator threads.
+ */
+public class GeometryRandomizer
+{
+    /**
+     * Longitude/latitude bounds of the whole globe.
+     */
+    public static final Envelope WORLD = new Envelope( -180.0, 180.0, -90.0, 90.0 );
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private static final int MAX_SAMPLING_ATTEMPTS = 10_000;
+
+    private final Random random;
+
+    public GeometryRandomizer()
+    {
+        this.random = null;
+    }
+
+    public GeometryRandomizer( Random random )
+    {
+        this.random = random;
+    }
+
+    public GeometryRandomizer( Randomizer randomizer )
+    {
+        this( randomizer.getRandom() );
+    }
+
+    /**
+     * Returns the factory shared by all generated geometries.
+     *
+     * @return a {@link GeometryFactory}
+     */
+    public static GeometryFactory geometryFactory()
+    {
+        return GEOMETRY_FACTORY;
+    }
+
+    /**
+     * Generates a random coordinate uniformly distributed inside the bounding box.
+     * Longitude is x, latitude is y.
+     *
+     * @param bbox bounding box
+     * @return a {@link Coordinate}
+     */
+    public Coordinate randomCoordinate( Envelope bbox )
+    {
+        Random rnd = random();
+
+        return new Coordinate( bbox.getMinX() + rnd.nextDouble() * bbox.getWidth(),
+            bbox.getMinY() + rnd.nextDouble() * bbox.getHeight() );
+    }
+
+    /**
+     * Generates a random point anywhere on the globe.
+     *
+     * @return a {@link Point}
+     */
+    public Point randomPoint()
+    {
+        return randomPoint( WORLD );
+    }
+
+    /**
+     * Generates a random point inside the bounding box.
+     *
+     * @param bbox bounding box
+     * @return a {@link Point}
+     */
+    public Point randomPoint( Envelope bbox )
+    {
+        return GEOMETRY_FACTORY.createPoint( randomCoordinate( bbox ) );
+    }
+
+    /**
+     * Generates a random point inside the polygon. When many points are needed
+     * for the same polygon, use {@link #sampler(Polygon)} instead, so the polygon
+     * index is only built once.
+     *
+     * @param polygon polygon to generate the point in
+     * @return a {@link Point}
+     */
+    public Point randomPoint( Polygon polygon )
+    {
+        return sampler( polygon ).randomPoint();
+    }
+
+    /**
+     * Creates a reusable sampler generating points inside the polygon.
+     *
+     * @param polygon polygon to generate points in
+     * @return a {@link PolygonSampler}
+     */
+    public PolygonSampler sampler( Polygon polygon )
+    {
+        return new PolygonSampler( polygon );
+    }
+
+    /**
+     * Generates a random simple polygon fitting into the bounding box. The
+     * polygon is star-shaped around the centre of the box, which makes it
+     * valid by construction.
+     *
+     * @param bbox bounding box
+     * @param vertices number of distinct vertices, at least 3
+     * @return a {@link Polygon}
+     */
+    public Polygon randomPolygon( Envelope bbox, int vertices )
+    {
+        if ( vertices < 3 )
+        {
+            throw new IllegalArgumentException( "Polygon needs at least 3 vertices, got " + vertices );
+        }
+
+        Random rnd = random();
+        double[] angles = new double[vertices];
+
+        for ( int i = 0; i < vertices; i++ )
+        {
+            angles[i] = rnd.nextDouble() * 2 * Math.PI;
+        }
+
+        Arrays.sort( angles );
+
+        double centreX = bbox.centre().x;
+        double centreY = bbox.centre().y;
+        double radiusX = bbox.getWidth() / 2;
+        double radiusY = bbox.getHeight() / 2;
+
+        Coordinate[] ring = new Coordinate[vertices + 1];
+
+        for ( int i = 0; i < vertices; i++ )
+        {
+            double scale = 0.5 + rnd.nextDouble() * 0.5;
+            ring[i] = new Coordinate( centreX + Math.cos( angles[i] ) * radiusX * scale,
+                centreY + Math.sin( angles[i] ) * radiusY * scale );
+        }
+
+        ring[vertices] = new Coordinate( ring[0] );
+
+        return GEOMETRY_FACTORY.createPolygon( GEOMETRY_FACTORY.createLinearRing( ring ), null );
+    }
+
+    /**
+     * Generates a random polygon with the given number of vertices around the
+     * centre, with every vertex at most radius degrees away from it.
+     *
+     * @param centre centre of the polygon
+     * @param radius maximum distance of the vertices from the centre
+     * @param vertices number of distinct vertices, at least 3
+     * @return a {@link Polygon}
+     */
+    public Polygon randomPolygon( Coordinate centre, double radius, int vertices )
+    {
+        return randomPolygon(
+            new Envelope( centre.x - radius, centre.x + radius, centre.y - radius, centre.y + radius ), vertices );
+    }
+
+    private Random random()
+    {
+        return random != null ? random : ThreadLocalRandom.current();
+    }
+
+    /**
+     * Generates points inside a polygon by rejection sampling over its envelope.
+     * The point-in-polygon index is built once per sampler.
+     */
+    public class PolygonSampler
+    {
+        private final Polygon polygon;
+
+        private final Envelope envelope;
+
+        private final IndexedPointInAreaLocator locator;
+
+        private PolygonSampler( Polygon polygon )
+        {
+            if ( polygon.isEmpty() || polygon.getArea() == 0 )
+            {
+                throw new IllegalArgumentException( "Can't sample points in an empty polygon" );
+            }
+
+            this.polygon = polygon;
+            this.envelope = polygon.getEnvelopeInternal();
+            this.locator = new IndexedPointInAreaLocator( polygon );
+        }
+
+        public Polygon getPolygon()
+        {
+            return polygon;
+        }
+
+        public Coordinate randomCoordinate()
+        {
+            for ( int i = 0; i < MAX_SAMPLING_ATTEMPTS; i++ )
+            {
+                Coordinate coordinate = GeometryRandomizer.this.randomCoordinate( envelope );
+
+                if ( locator.locate( coordinate ) == Location.INTERIOR )
+                {
+                    return coordinate;
+                }
+            }
+
+            throw new IllegalStateException(
+                String.format( "No point found inside polygon after %d attempts", MAX_SAMPLING_ATTEMPTS ) );
+        }
+
+        public Point randomPoint()
+        {
+            return GEOMETRY_FACTORY.createPoint( randomCoordinate() );
+        }
+    }
+}
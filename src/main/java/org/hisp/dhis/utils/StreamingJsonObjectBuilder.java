@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import com.vividsolutions.jts.geom.Geometry;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Streaming counterpart of {@link JsonObjectBuilder}. Properties are written to
+ * the underlying {@link Writer} as soon as they are added, so the size of the
+ * payload is not limited by the heap.
+ * <p>
+ * Because nothing is kept in memory, the object can't be changed after a
+ * property is written: {@link #wrapIntoArray(String)} has to be called before
+ * any property is added, and arrays can't be appended to once written.
+ * {@link #build()} must be called to close the object.
+ */
+public class StreamingJsonObjectBuilder
+    implements Closeable
+{
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final JsonWriter writer;
+
+    private final boolean root;
+
+    private String wrappingArray;
+
+    private boolean started;
+
+    private boolean finished;
+
+    public StreamingJsonObjectBuilder( Writer writer )
+    {
+        this( new JsonWriter( writer ), true );
+    }
+
+    public StreamingJsonObjectBuilder( OutputStream outputStream )
+    {
+        this( new BufferedWriter( new OutputStreamWriter( outputStream, StandardCharsets.UTF_8 ) ) );
+    }
+
+    private StreamingJsonObjectBuilder( JsonWriter writer, boolean root )
+    {
+        this.writer = writer;
+        this.root = root;
+    }
+
+    public static StreamingJsonObjectBuilder jsonObject( Writer writer )
+    {
+        return new StreamingJsonObjectBuilder( writer );
+    }
+
+    public static StreamingJsonObjectBuilder jsonObject( OutputStream outputStream )
+    {
+        return new StreamingJsonObjectBuilder( outputStream );
+    }
+
+    /**
+     * Wraps the object into an array property of an enclosing object, the same
+     * way as {@link JsonObjectBuilder#wrapIntoArray(String)}. Has to be called
+     * before any property is added.
+     *
+     * @param arrayName name of the enclosing array property
+     * @return StreamingJsonObjectBuilder
+     */
+    public StreamingJsonObjectBuilder wrapIntoArray( String arrayName )
+    {
+        if ( started || !root )
+        {
+            throw new IllegalStateException( "wrapIntoArray has to be called on the root object before adding properties" );
+        }
+
+        this.wrappingArray = arrayName;
+
+        return this;
+    }
+
+    public StreamingJsonObjectBuilder addProperty( String property, String value )
+    {
+        try
+        {
+            name( property ).value( value );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return this;
+    }
+
+    public StreamingJsonObjectBuilder addProperty( String property, Number value )
+    {
+        try
+        {
+            name( property ).value( value );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return this;
+    }
+
+    public StreamingJsonObjectBuilder addProperty( String property, Boolean value )
+    {
+        try
+        {
+            name( property ).value( value );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes an object built in memory. Useful for small nested objects.
+     *
+     * @param property name of the property
+     * @param obj object to write
+     * @return StreamingJsonObjectBuilder
+     */
+    public StreamingJsonObjectBuilder addObject( String property, JsonObjectBuilder obj )
+    {
+        return addElement( property, obj.build() );
+    }
+
+    /**
+     * Streams a nested object. The consumer receives a builder writing into the
+     * nested object, which is closed when the consumer returns.
+     *
+     * @param property name of the property
+     * @param obj writes the properties of the nested object
+     * @return StreamingJsonObjectBuilder
+     */
+    public StreamingJsonObjectBuilder addObject( String property, Consumer<StreamingJsonObjectBuilder> obj )
+    {
+        try
+        {
+            name( property );
+            writeNested( obj );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return this;
+    }
+
+    public StreamingJsonObjectBuilder addArray( String property, JsonObject... objects )
+    {
+        try
+        {
+            name( property ).beginArray();
+
+            for ( JsonObject object : objects )
+            {
+                GSON.toJson( object, writer );
+            }
+
+            writer.endArray();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes the array element by element, so only the current element has to
+     * be held in memory.
+     *
+     * @param property name of the property
+     * @param elements elements of the array
+     * @return StreamingJsonObjectBuilder
+     */
+    public StreamingJsonObjectBuilder addArray( String property, Iterator<? extends JsonElement> elements )
+    {
+        try
+        {
+            name( property ).beginArray();
+
+            while ( elements.hasNext() )
+            {
+                GSON.toJson( elements.next(), writer );
+            }
+
+            writer.endArray();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return this;
+    }
+
+    /**
+     * Streams an array of objects. The consumer is called once per element with
+     * a builder writing into that element and the index of the element.
+     *
+     * @param property name of the property
+     * @param size number of elements
+     * @param element writes the properties of each element
+     * @return StreamingJsonObjectBuilder
+     */
+    public StreamingJsonObjectBuilder addArray( String property, int size, ObjIntConsumer<StreamingJsonObjectBuilder> element )
+    {
+        try
+        {
+            name( property ).beginArray();
+
+            for ( int i = 0; i < size; i++ )
+            {
+                int index = i;
+                writeNested( builder -> element.accept( builder, index ) );
+            }
+
+            writer.endArray();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes the geometry as GeoJSON.
+     *
+     * @param property name of the property
+     * @param geometry geometry to write
+     * @return StreamingJsonObjectBuilder
+     */
+    public StreamingJsonObjectBuilder addGeometry( String property, Geometry geometry )
+    {
+        try
+        {
+            name( property );
+            GeoJsonWriter.write( writer, geometry );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes a GeoJSON point without creating a geometry.
+     *
+     * @param property name of the property
+     * @param longitude x coordinate
+     * @param latitude y coordinate
+     * @return StreamingJsonObjectBuilder
+     */
+    public StreamingJsonObjectBuilder addPoint( String property, double longitude, double latitude )
+    {
+        try
+        {
+            name( property );
+            GeoJsonWriter.writePoint( writer, longitude, latitude );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return this;
+    }
+
+    /**
+     * Closes the object, and the wrapping array if there is one, and flushes the
+     * underlying writer. The writer itself is left open.
+     */
+    public void build()
+    {
+        if ( finished )
+        {
+            return;
+        }
+
+        try
+        {
+            start();
+            writer.endObject();
+
+            if ( wrappingArray != null )
+            {
+                writer.endArray();
+                writer.endObject();
+            }
+
+            if ( root )
+            {
+                writer.flush();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        finished = true;
+    }
+
+    /**
+     * Finishes the object if {@link #build()} was not called yet, and closes the
+     * underlying writer.
+     *
+     * @throws IOException if closing the writer fails
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        build();
+        writer.close();
+    }
+
+    private StreamingJsonObjectBuilder addElement( String property, JsonElement element )
+    {
+        try
+        {
+            name( property );
+            GSON.toJson( element, writer );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+
+        return this;
+    }
+
+    private void writeNested( Consumer<StreamingJsonObjectBuilder> obj )
+    {
+        StreamingJsonObjectBuilder nested = new StreamingJsonObjectBuilder( writer, false );
+        obj.accept( nested );
+        nested.build();
+    }
+
+    private JsonWriter name( String property )
+        throws IOException
+    {
+        if ( finished )
+        {
+            throw new IllegalStateException( "Object is already built" );
+        }
+
+        start();
+
+        return writer.name( property );
+    }
+
+    private void start()
+        throws IOException
+    {
+        if ( started )
+        {
+            return;
+        }
+
+        if ( wrappingArray != null )
+        {
+            writer.beginObject();
+            writer.name( wrappingArray );
+            writer.beginArray();
+        }
+
+        writer.beginObject();
+        started = true;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.generator;
+
+import org.hisp.dhis.utils.PredictableRandomizer;
+import org.hisp.dhis.utils.Randomizer;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DataItemSpecTest
+{
+    private static final LocalDate REFERENCE_DATE = LocalDate.of( 2024, 1, 1 );
+
+    private final Randomizer randomizer = new PredictableRandomizer( 42 );
+
+    @Test
+    public void shouldGenerateWholePercentages()
+    {
+        DataItemSpec spec = new DataItemSpec( "percentage1", "PERCENTAGE" );
+
+        for ( int i = 0; i < 1000; i++ )
+        {
+            int value = Integer.parseInt( spec.generate( randomizer, REFERENCE_DATE ) );
+            assertTrue( value >= 0 && value <= 100, String.valueOf( value ) );
+        }
+    }
+
+    @Test
+    public void shouldGenerateValuesOfValueType()
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            LocalDateTime.parse( new DataItemSpec( "datetime001", "DATETIME" ).generate( randomizer, REFERENCE_DATE ),
+                DateTimeFormatter.ISO_LOCAL_DATE_TIME );
+            LocalTime.parse( new DataItemSpec( "time0000001", "TIME" ).generate( randomizer, REFERENCE_DATE ) );
+
+            String email = new DataItemSpec( "email000001", "EMAIL" ).generate( randomizer, REFERENCE_DATE );
+            assertTrue( email.matches( "[a-z]+@example\\.org" ), email );
+
+            String coordinate = new DataItemSpec( "coordinate1", "COORDINATE" ).generate( randomizer,
+                REFERENCE_DATE );
+            assertTrue( coordinate.matches( "\\[-?\\d+\\.\\d{6},-?\\d+\\.\\d{6}]" ), coordinate );
+
+            double unitInterval = Double.parseDouble(
+                new DataItemSpec( "interval001", "UNIT_INTERVAL" ).generate( randomizer, REFERENCE_DATE ) );
+            assertTrue( unitInterval >= 0 && unitInterval <= 1 );
+        }
+    }
+
+    @Test
+    public void shouldRequireGeneratorForReferences()
+    {
+        assertThrows( IllegalStateException.class,
+            () -> new DataItemSpec( "orgUnit0001", "ORGANISATION_UNIT" ).generate( randomizer, REFERENCE_DATE ) );
+
+        assertEquals( "DiszpKrYNg8", new DataItemSpec( "orgUnit0001", "ORGANISATION_UNIT" )
+            .setOptions( "DiszpKrYNg8" ).generate( randomizer, REFERENCE_DATE ) );
+    }
+}
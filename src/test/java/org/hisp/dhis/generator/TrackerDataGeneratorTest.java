@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.generator;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.hisp.dhis.actions.TrackerActions;
+import org.hisp.dhis.response.dto.TrackerApiResponse;
+import org.hisp.dhis.stub.Dhis2StubServerExtension;
+import org.hisp.dhis.utils.Randomizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrackerDataGeneratorTest
+{
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension();
+
+    @Test
+    public void shouldGenerateSamePartitionsForSameSeed()
+    {
+        assertEquals( generator( 7 ).generatePartition( 3 ), generator( 7 ).generatePartition( 3 ) );
+        assertEquals( generator( 7 ).generate(), generator( 7 ).generate() );
+        assertNotEquals( generator( 7 ).generatePartition( 3 ), generator( 7 ).generatePartition( 2 ) );
+        assertNotEquals( generator( 7 ).generatePartition( 3 ), generator( 8 ).generatePartition( 3 ) );
+    }
+
+    @Test
+    public void shouldFollowConfiguredProgram()
+    {
+        List<JsonObject> partitions = generator( 1 ).generate();
+        int trackedEntities = 0;
+        int relationships = 0;
+
+        for ( JsonObject partition : partitions )
+        {
+            relationships += partition.getAsJsonArray( "relationships" ).size();
+
+            for ( JsonElement element : partition.getAsJsonArray( "trackedEntities" ) )
+            {
+                JsonObject trackedEntity = element.getAsJsonObject();
+                trackedEntities++;
+
+                assertEquals( "nEenWmSyUEp", trackedEntity.get( "trackedEntityType" ).getAsString() );
+                assertEquals( 2, trackedEntity.getAsJsonArray( "attributes" ).size() );
+                assertEquals( 1, trackedEntity.getAsJsonArray( "enrollments" ).size() );
+
+                JsonObject enrollment = trackedEntity.getAsJsonArray( "enrollments" ).get( 0 ).getAsJsonObject();
+                assertEquals( 2, enrollment.getAsJsonArray( "events" ).size() );
+
+                for ( JsonElement event : enrollment.getAsJsonArray( "events" ) )
+                {
+                    JsonObject dataValue = event.getAsJsonObject().getAsJsonArray( "dataValues" ).get( 0 )
+                        .getAsJsonObject();
+                    int value = Integer.parseInt( dataValue.get( "value" ).getAsString() );
+
+                    assertTrue( value >= 1 && value <= 1_000 );
+                    assertTrue( event.getAsJsonObject().get( "occurredAt" ).getAsString()
+                        .compareTo( enrollment.get( "enrolledAt" ).getAsString() ) >= 0 );
+                }
+            }
+        }
+
+        assertEquals( 4, partitions.size() );
+        assertEquals( 103, trackedEntities );
+        assertEquals( 26, generator( 1 ).getTrackedEntities( 0 ) );
+        assertEquals( 25, generator( 1 ).getTrackedEntities( 3 ) );
+        assertTrue( relationships > 0 );
+    }
+
+    @Test
+    public void shouldImportPartitions()
+    {
+        List<TrackerApiResponse> responses = generator( 1 ).setParallelism( 2 )
+            .importInto( new TrackerActions(), "importStrategy=CREATE" );
+
+        assertEquals( 4, responses.size() );
+        assertEquals( 103, responses.stream().mapToInt( response -> response.extractImportedTeis().size() ).sum() );
+        assertEquals( 206, responses.stream().mapToInt( response -> response.extractImportedEvents().size() ).sum() );
+    }
+
+    private static TrackerDataGenerator generator( long seed )
+    {
+        return new TrackerDataGenerator( "nEenWmSyUEp", "DiszpKrYNg8", "g8upMTyEZGZ" )
+            .setSeed( seed )
+            .setTrackedEntities( 103 )
+            .setPartitions( 4 )
+            .setRelationships( "Mv8R4MPcNcX", Distribution.uniform( 0, 2 ) )
+            .addAttribute( new DataItemSpec( "w75KJ2mc4zz", "TEXT" ).setGenerator( Randomizer::randomFirstName ) )
+            .addProgram( new ProgramSpec( "IpHINAT79UW" )
+                .addAttribute( new DataItemSpec( "cejWyOfXge6", "TEXT" ).setOptions( "Male", "Female" ) )
+                .addStage( new ProgramStageSpec( "A03MvHHogjR" )
+                    .setEvents( Distribution.fixed( 2 ) )
+                    .addDataElement( new DataItemSpec( "UXz7xuGCEhU", "INTEGER_POSITIVE" ) ) ) );
+    }
+}
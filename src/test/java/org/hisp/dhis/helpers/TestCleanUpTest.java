@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.helpers;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.restassured.RestAssured;
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.actions.TrackerActions;
+import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.response.dto.tracker.TrackerImportReport;
+import org.hisp.dhis.stub.Dhis2StubServerExtension;
+import org.hisp.dhis.utils.JsonObjectBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestCleanUpTest
+{
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension();
+
+    @BeforeEach
+    public void enableStorage()
+    {
+        TestRunStorage.removeEntities();
+        TestRunStorage.enable();
+    }
+
+    @AfterEach
+    public void disableStorage()
+    {
+        TestRunStorage.disable();
+        TestRunStorage.removeEntities();
+    }
+
+    @Test
+    public void shouldRecordCreatedEntities()
+    {
+        RestApiActions dataElements = new RestApiActions( "/dataElements" );
+        String first = dataElements.create( new JsonObjectBuilder().addProperty( "name", "first" ).build() );
+        String second = dataElements.post( new JsonObjectBuilder().addProperty( "name", "second" ).build() )
+            .extractUid();
+        String program = new RestApiActions( "programs" ).create( new JsonObject() );
+        dataElements.post( "/" + first + "/translations", new JsonObject() );
+
+        new TrackerActions().postAndGetJobReport( new JsonObjectBuilder()
+            .addArray( "trackedEntities", new JsonObjectBuilder().addProperty( "trackedEntity", "teUid000001" ).build() )
+            .build(), new QueryParamsBuilder() );
+
+        assertEquals( Arrays.asList( "/dataElements", "/programs" ),
+            new ArrayList<>( TestRunStorage.getCreatedEntities().keySet() ) );
+        assertEquals( Arrays.asList( first, second ), TestRunStorage.getCreatedEntities( "/dataElements" ) );
+        assertEquals( Arrays.asList( program ), TestRunStorage.getCreatedEntities( "programs" ) );
+        assertEquals( Arrays.asList( "teUid000001" ),
+            TestRunStorage.getCreatedTrackerObjects( TrackerImportReport.TRACKED_ENTITY ) );
+        assertEquals( 4, TestRunStorage.size() );
+    }
+
+    @Test
+    public void shouldNotRecordWhenDisabled()
+    {
+        TestRunStorage.disable();
+
+        new RestApiActions( "/dataElements" ).create( new JsonObject() );
+
+        assertEquals( 0, TestRunStorage.size() );
+    }
+
+    @Test
+    public void shouldNotRecordUpdatedTrackerObjects()
+    {
+        JsonObject payload = new JsonObjectBuilder()
+            .addArray( "trackedEntities", new JsonObjectBuilder().addProperty( "trackedEntity", "teUid000002" ).build() )
+            .build();
+
+        new TrackerActions().postAndGetJobReport( payload,
+            new QueryParamsBuilder().add( "importStrategy", "UPDATE" ) );
+
+        assertEquals( 0, TestRunStorage.size() );
+    }
+
+    @Test
+    public void shouldRecordAsyncTrackerImportsFromJobReport()
+    {
+        TrackerActions trackerActions = new TrackerActions();
+        String jobId = trackerActions.postAndGetJobReport( new JsonObjectBuilder()
+            .addArray( "trackedEntities", new JsonObjectBuilder().addProperty( "trackedEntity", "teUid000003" ).build() )
+            .build() ).extractString( "response.id" );
+
+        assertEquals( 0, TestRunStorage.size() );
+
+        trackerActions.waitUntilJobIsCompleted( jobId );
+        trackerActions.getJobReport( jobId, "FULL" );
+
+        assertEquals( Arrays.asList( "teUid000003" ),
+            TestRunStorage.getCreatedTrackerObjects( TrackerImportReport.TRACKED_ENTITY ) );
+    }
+
+    @Test
+    public void shouldDeleteInBatchesInReverseOrder()
+    {
+        List<String> dataElements = new ArrayList<>();
+
+        for ( int i = 0; i < 120; i++ )
+        {
+            dataElements.add( new RestApiActions( "/dataElements" ).create( new JsonObject() ) );
+        }
+
+        new RestApiActions( "/dataSets" ).create( new JsonObject() );
+
+        JsonObjectBuilder payload = new JsonObjectBuilder();
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            payload.addOrAppendToArray( "trackedEntities",
+                new JsonObjectBuilder().addProperty( "trackedEntity", String.format( "te%09d", i ) ).build() );
+        }
+
+        new TrackerActions().postAndGetJobReport( payload.build(), new QueryParamsBuilder() );
+
+        long requestsBefore = stub.getServer().getRequestCount();
+        int deleted = new TestCleanUp().setBatchSize( 50 ).setParallelism( 3 ).deleteCreatedEntities();
+
+        assertEquals( 131, deleted );
+        assertEquals( 0, TestRunStorage.size() );
+        assertEquals( 5, stub.getServer().getRequestCount() - requestsBefore );
+        assertEquals( 404, new RestApiActions( "/dataElements" ).get( dataElements.get( 7 ) ).statusCode() );
+    }
+
+    @Test
+    public void shouldDeleteEntitiesOfAnEndpointNewestFirst()
+    {
+        List<String> dataElements = new ArrayList<>();
+
+        for ( int i = 0; i < 5; i++ )
+        {
+            dataElements.add( new RestApiActions( "/dataElements" ).create( new JsonObject() ) );
+        }
+
+        List<String> deleteOrder = new ArrayList<>();
+        RestAssured.filters( ( requestSpec, responseSpec, ctx ) -> {
+            if ( requestSpec.getURI().contains( "/metadata" ) )
+            {
+                JsonObject payload = new JsonParser().parse( String.valueOf( requestSpec.<Object>getBody() ) )
+                    .getAsJsonObject();
+                payload.getAsJsonArray( "dataElements" )
+                    .forEach( element -> deleteOrder.add( element.getAsJsonObject().get( "id" ).getAsString() ) );
+            }
+
+            return ctx.next( requestSpec, responseSpec );
+        } );
+
+        try
+        {
+            assertEquals( 5, new TestCleanUp().setBatchSize( 2 ).deleteCreatedEntities() );
+        }
+        finally
+        {
+            RestAssured.replaceFiltersWith( new ArrayList<>() );
+        }
+
+        Collections.reverse( dataElements );
+        assertEquals( dataElements, deleteOrder );
+        assertEquals( 0, TestRunStorage.size() );
+    }
+
+    @Test
+    public void shouldDeleteRejectedEntitiesOneByOne()
+    {
+        String first = new RestApiActions( "/dataElements" ).create( new JsonObject() );
+        String second = new RestApiActions( "/dataElements" ).create( new JsonObject() );
+        new RestApiActions( "/dataElements" ).delete( second );
+
+        long requestsBefore = stub.getServer().getRequestCount();
+        int deleted = new TestCleanUp().deleteCreatedEntities();
+
+        assertEquals( 2, deleted );
+        assertEquals( 0, TestRunStorage.size() );
+        assertEquals( 2, stub.getServer().getRequestCount() - requestsBefore );
+        assertEquals( 404, new RestApiActions( "/dataElements" ).get( first ).statusCode() );
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.paging;
+
+import com.google.gson.JsonObject;
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.stub.Dhis2StubServer;
+import org.hisp.dhis.stub.Dhis2StubServerExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ParallelPageFetcherTest
+{
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension(
+        new Dhis2StubServer().setCollectionSize( 2_500 ) );
+
+    @Test
+    public void shouldFetchAllPagesInOrder()
+    {
+        QueryParamsBuilder params = new QueryParamsBuilder().add( "fields", "id" );
+        List<JsonObject> organisationUnits = new ParallelPageFetcher( new RestApiActions( "/organisationUnits" ),
+            "organisationUnits" )
+            .setPageSize( 100 )
+            .setParallelism( 4 )
+            .fetchAll( params );
+
+        assertEquals( ids( 2_500 ), organisationUnits.stream()
+            .map( organisationUnit -> organisationUnit.get( "id" ).getAsString() )
+            .collect( Collectors.toList() ) );
+        assertEquals( "?fields=id", params.build() );
+    }
+
+    @Test
+    public void shouldStreamAllPagesUnordered()
+    {
+        Set<String> ids;
+
+        try ( Stream<JsonObject> dataElements = new ParallelPageFetcher( new RestApiActions( "/dataElements" ),
+            "dataElements" )
+            .setPageSize( 70 )
+            .setParallelism( 3 )
+            .stream( new QueryParamsBuilder() ) )
+        {
+            ids = dataElements.map( dataElement -> dataElement.get( "id" ).getAsString() )
+                .collect( Collectors.toSet() );
+        }
+
+        assertEquals( 2_500, ids.size() );
+        assertEquals( ids( 2_500 ), ids.stream().sorted().collect( Collectors.toList() ) );
+    }
+
+    @Test
+    public void shouldStopStreamingWhenClosed()
+    {
+        try ( Stream<JsonObject> dataElements = new ParallelPageFetcher( new RestApiActions( "/dataElements" ),
+            "dataElements" )
+            .setPageSize( 10 )
+            .stream( new QueryParamsBuilder() ) )
+        {
+            assertEquals( 15, dataElements.limit( 15 ).count() );
+        }
+    }
+
+    private static List<String> ids( int count )
+    {
+        return IntStream.range( 0, count ).mapToObj( i -> String.format( "g%010d", i ) )
+            .collect( Collectors.toList() );
+    }
+}
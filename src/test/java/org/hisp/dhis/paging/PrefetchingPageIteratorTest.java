@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.paging;
+
+import com.google.gson.JsonObject;
+import org.hisp.dhis.actions.TrackerActions;
+import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.stub.Dhis2StubServer;
+import org.hisp.dhis.stub.Dhis2StubServerExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PrefetchingPageIteratorTest
+{
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension(
+        new Dhis2StubServer().setCollectionSize( 2_500 ) );
+
+    @Test
+    public void shouldIterateAllPagesInOrder()
+    {
+        List<Integer> items = new ArrayList<>();
+        new PrefetchingPageIterator<>( page -> page( page, 3, 8 ), 3 ).forEachRemaining( items::add );
+
+        assertEquals( IntStream.range( 0, 8 ).boxed().collect( Collectors.toList() ), items );
+    }
+
+    @Test
+    public void shouldPrefetchOnlyTheNextPage()
+        throws InterruptedException
+    {
+        AtomicInteger fetched = new AtomicInteger();
+        PrefetchingPageIterator<Integer> iterator = new PrefetchingPageIterator<>( page -> {
+            fetched.incrementAndGet();
+            return page( page, 10, 1_000 );
+        }, 10 );
+
+        iterator.next();
+        Thread.sleep( 100 );
+
+        assertEquals( 2, fetched.get() );
+
+        iterator.close();
+        assertFalse( iterator.hasNext() );
+    }
+
+    @Test
+    public void shouldRethrowFailureOfPage()
+    {
+        PrefetchingPageIterator<Integer> iterator = new PrefetchingPageIterator<>( page -> {
+            if ( page == 2 )
+            {
+                throw new IllegalStateException( "page 2" );
+            }
+
+            return page( page, 2, 10 );
+        }, 2 );
+
+        iterator.next();
+        iterator.next();
+
+        assertEquals( "page 2", assertThrows( IllegalStateException.class, iterator::next ).getMessage() );
+    }
+
+    @Test
+    public void shouldStreamTrackerExport()
+    {
+        TrackerActions trackerActions = new TrackerActions();
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        QueryParamsBuilder params = new QueryParamsBuilder().add( "program", "prg1" );
+
+        try ( Stream<JsonObject> events = trackerActions.export( "events", params, 1_000 ) )
+        {
+            events.forEach( event -> ids.add( event.get( "id" ).getAsString() ) );
+        }
+
+        assertEquals( 2_500, ids.size() );
+        assertEquals( "?program=prg1", params.build() );
+        assertEquals( Arrays.asList( "g0000000000", "g0000000001" ), trackerActions
+            .exportTrackedEntities( new QueryParamsBuilder() )
+            .limit( 2 )
+            .map( trackedEntity -> trackedEntity.get( "id" ).getAsString() )
+            .collect( Collectors.toList() ) );
+    }
+
+    private static List<Integer> page( int page, int pageSize, int total )
+    {
+        int from = (page - 1) * pageSize;
+
+        if ( from >= total )
+        {
+            return Collections.emptyList();
+        }
+
+        return IntStream.range( from, Math.min( from + pageSize, total ) ).boxed().collect( Collectors.toList() );
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.recording;
+
+import io.restassured.RestAssured;
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.response.dto.ApiResponse;
+import org.hisp.dhis.response.dto.ResponseSummary;
+import org.hisp.dhis.rest_assured.extensions.RecordingFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RecordingTest
+{
+    private Path file;
+
+    @BeforeEach
+    public void createFile()
+        throws IOException
+    {
+        file = Files.createTempFile( "recording", ".drc" );
+    }
+
+    @AfterEach
+    public void deleteFile()
+        throws IOException
+    {
+        RestAssured.reset();
+        Files.deleteIfExists( file );
+    }
+
+    private Exchange exchange( String method, String path, String query, int status, String body )
+    {
+        return new Exchange( System.currentTimeMillis(), 1_000_000, method, path, query, "application/json",
+            null, status, "application/json;charset=UTF-8", body.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    @Test
+    public void shouldReadWrittenExchanges()
+        throws IOException
+    {
+        try ( RecordingWriter writer = new RecordingWriter( file ) )
+        {
+            writer.write( exchange( "GET", "/system/id", "limit=1", 200, "{\"codes\":[\"abc\"]}" ) );
+            writer.write( exchange( "DELETE", "/dataElements/abc", null, 404, "" ) );
+        }
+
+        List<Exchange> exchanges = RecordingReader.readAll( file );
+
+        assertEquals( 2, exchanges.size() );
+        assertEquals( "/system/id?limit=1", exchanges.get( 0 ).getPathAndQuery() );
+        assertArrayEquals( "{\"codes\":[\"abc\"]}".getBytes( StandardCharsets.UTF_8 ),
+            exchanges.get( 0 ).getResponseBody() );
+        assertNull( exchanges.get( 1 ).getQuery() );
+        assertEquals( 404, exchanges.get( 1 ).getStatusCode() );
+    }
+
+    @Test
+    public void shouldRecordLongQueries()
+        throws IOException
+    {
+        StringBuilder query = new StringBuilder( "filter=id:in:[" );
+
+        for ( int i = 0; i < 10_000; i++ )
+        {
+            query.append( String.format( "g%010d,", i ) );
+        }
+
+        query.append( "\u00e6]" );
+
+        try ( RecordingWriter writer = new RecordingWriter( file ) )
+        {
+            writer.write( exchange( "GET", "/dataElements", query.toString(), 200, "{}" ) );
+        }
+
+        assertEquals( query.toString(), RecordingReader.readAll( file ).get( 0 ).getQuery() );
+    }
+
+    @Test
+    public void shouldSkipTruncatedRecord()
+        throws IOException
+    {
+        try ( RecordingWriter writer = new RecordingWriter( file ) )
+        {
+            writer.write( exchange( "GET", "/system/id", null, 200, "{}" ) );
+            writer.write( exchange( "GET", "/schemas", null, 200, "{\"schemas\":[]}" ) );
+        }
+
+        try ( RandomAccessFile raf = new RandomAccessFile( file.toFile(), "rw" ) )
+        {
+            raf.setLength( raf.length() - 3 );
+        }
+
+        assertEquals( 1, RecordingReader.readAll( file ).size() );
+    }
+
+    @Test
+    public void shouldAppendAfterLastCompleteRecord()
+        throws IOException
+    {
+        try ( RecordingWriter writer = new RecordingWriter( file ) )
+        {
+            writer.write( exchange( "GET", "/system/id", null, 200, "{}" ) );
+            writer.write( exchange( "GET", "/schemas", null, 200, "{\"schemas\":[]}" ) );
+        }
+
+        try ( RandomAccessFile raf = new RandomAccessFile( file.toFile(), "rw" ) )
+        {
+            raf.setLength( raf.length() - 3 );
+        }
+
+        try ( RecordingWriter writer = new RecordingWriter( file ) )
+        {
+            writer.write( exchange( "GET", "/periodTypes", null, 200, "{}" ) );
+        }
+
+        List<Exchange> exchanges = RecordingReader.readAll( file );
+
+        assertEquals( 2, exchanges.size() );
+        assertEquals( "/system/id", exchanges.get( 0 ).getPath() );
+        assertEquals( "/periodTypes", exchanges.get( 1 ).getPath() );
+    }
+
+    @Test
+    public void shouldRefuseToAppendToOtherFiles()
+        throws IOException
+    {
+        Files.write( file, "not a recording".getBytes( StandardCharsets.UTF_8 ) );
+
+        assertThrows( IllegalArgumentException.class, () -> new RecordingWriter( file ) );
+    }
+
+    @Test
+    public void shouldRecordAndReplayAgainstStub()
+        throws IOException
+    {
+        List<Exchange> recorded = Arrays.asList(
+            exchange( "GET", "/system/id", null, 200, "{\"codes\":[\"a\"]}" ),
+            exchange( "GET", "/system/id", null, 200, "{\"codes\":[\"b\"]}" ),
+            exchange( "POST", "/tracker", "async=false", 200, "{\"status\":\"OK\"}" ) );
+
+        try ( ReplayStubServer stub = ReplayStubServer.start( recorded, false );
+            RecordingFilter recordingFilter = new RecordingFilter( file ) )
+        {
+            RestAssured.filters( recordingFilter );
+
+            RestApiActions systemActions = new RestApiActions( "/system" ).setBaseUri( stub.getBaseUri() );
+            assertEquals( "a", systemActions.get( "/id" ).extractString( "codes[0]" ) );
+            assertEquals( "b", systemActions.get( "/id" ).extractString( "codes[0]" ) );
+
+            ApiResponse response = new RestApiActions( "/tracker" ).setBaseUri( stub.getBaseUri() )
+                .post( "", "{}", new QueryParamsBuilder().add( "async=false" ) );
+            assertEquals( "OK", response.extractString( "status" ) );
+            assertEquals( 404, systemActions.get( "/unknown" ).statusCode() );
+
+            RestAssured.reset();
+            recordingFilter.close();
+
+            List<Exchange> replayed = RecordingReader.readAll( file );
+            assertEquals( 4, replayed.size() );
+            assertEquals( "/tracker/?async=false", replayed.get( 2 ).getPathAndQuery() );
+            assertArrayEquals( "{}".getBytes( StandardCharsets.UTF_8 ), replayed.get( 2 ).getRequestBody() );
+
+            List<ResponseSummary> summaries = new Replayer( replayed ).replay( stub.getBaseUri(), 0 );
+            assertEquals( 4, summaries.size() );
+            assertEquals( 200, summaries.get( 2 ).getStatusCode() );
+            assertEquals( 404, summaries.get( 3 ).getStatusCode() );
+        }
+    }
+}
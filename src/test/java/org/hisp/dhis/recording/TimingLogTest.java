@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.recording;
+
+import com.sun.net.httpserver.HttpServer;
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.stub.Dhis2StubServer;
+import org.hisp.dhis.stub.Dhis2StubServerExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimingLogTest
+{
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension(
+        new Dhis2StubServer().setCollectionSize( 2 ) );
+
+    private Path file;
+
+    @BeforeEach
+    public void createFile()
+        throws IOException
+    {
+        file = Files.createTempFile( "timing", ".dtl" );
+    }
+
+    @AfterEach
+    public void deleteFile()
+        throws IOException
+    {
+        Files.deleteIfExists( file );
+        Files.deleteIfExists( TimingLog.endpointsFile( file ) );
+    }
+
+    @Test
+    public void shouldReadRecordsOfAllThreads()
+        throws InterruptedException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+
+        try ( TimingLog log = new TimingLog( file, 16 ) )
+        {
+            for ( int thread = 0; thread < 4; thread++ )
+            {
+                executor.submit( () -> {
+                    for ( int i = 0; i < 1000; i++ )
+                    {
+                        log.record( i % 2 == 0 ? "GET /dataElements" : "POST /tracker", i % 10 == 0 ? 500 : 200,
+                            1_000_000, 100 );
+                    }
+                } );
+            }
+
+            executor.shutdown();
+            assertTrue( executor.awaitTermination( 10, TimeUnit.SECONDS ) );
+        }
+
+        AtomicLong count = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+
+        try ( TimingLogReader reader = new TimingLogReader( file ) )
+        {
+            reader.forEach( ( timestamp, endpointId, status, latencyNanos, bytes ) -> {
+                count.incrementAndGet();
+                errors.addAndGet( status == 500 ? 1 : 0 );
+            } );
+
+            assertEquals( 2, reader.getEndpoints().size() );
+        }
+
+        assertEquals( 4000, count.get() );
+        assertEquals( 400, errors.get() );
+    }
+
+    @Test
+    public void shouldWriteCsvAndSeries()
+    {
+
+        try ( TimingLog log = new TimingLog( file ) )
+        {
+            log.record( "GET /dataElements", 200, 2_000_000, 10 );
+            log.record( "GET /dataElements", 404, 4_000_000, 20 );
+        }
+
+        StringWriter csv = new StringWriter();
+        StringWriter series = new StringWriter();
+
+        try ( TimingLogReader reader = new TimingLogReader( file ) )
+        {
+            reader.writeCsv( csv );
+            reader.writeSeries( series, 60_000 );
+        }
+
+        String[] csvLines = csv.toString().split( "\n" );
+        assertEquals( 3, csvLines.length );
+        assertTrue( csvLines[1].endsWith( ",GET /dataElements,200,2.0,10" ) );
+
+        String[] seriesLines = series.toString().split( "\n" );
+        assertTrue( seriesLines.length >= 2 );
+        assertTrue( seriesLines[seriesLines.length - 1].contains( ",GET /dataElements," ) );
+    }
+
+    @Test
+    public void shouldRecordRequestsOfActions()
+    {
+
+        try ( TimingLog log = new TimingLog( file ) )
+        {
+            RestApiActions.setTimingLog( log );
+
+            RestApiActions actions = new RestApiActions( "/dataElements" );
+            actions.get();
+            actions.getAndDiscard( "" );
+            actions.get( "missing" );
+        }
+        finally
+        {
+            RestApiActions.setTimingLog( null );
+        }
+
+        List<Integer> statuses = new ArrayList<>();
+
+        try ( TimingLogReader reader = new TimingLogReader( file ) )
+        {
+            reader.forEach( ( timestamp, endpointId, status, latencyNanos, bytes ) -> {
+                statuses.add( status );
+                assertEquals( "GET /dataElements", reader.getEndpoint( endpointId ) );
+                assertTrue( latencyNanos > 0 );
+            } );
+        }
+
+        assertEquals( 200, (int) statuses.get( 0 ) );
+        assertEquals( 200, (int) statuses.get( 1 ) );
+        assertEquals( 404, (int) statuses.get( 2 ) );
+    }
+
+    @Test
+    public void shouldRecordBytesOfChunkedResponses()
+        throws IOException
+    {
+        byte[] body = "{\"dataElements\":[]}".getBytes( StandardCharsets.UTF_8 );
+        HttpServer server = HttpServer.create( new InetSocketAddress( "localhost", 0 ), 0 );
+        server.createContext( "/", http -> {
+            http.getResponseHeaders().add( "Content-Type", "application/json" );
+            // length 0 makes the server send the body chunked
+            http.sendResponseHeaders( 200, 0 );
+            http.getResponseBody().write( body );
+            http.close();
+        } );
+        server.start();
+
+        try ( TimingLog log = new TimingLog( file ) )
+        {
+            RestApiActions.setTimingLog( log );
+
+            new RestApiActions( "/dataElements" ).setBaseUri( "http://localhost:" + server.getAddress().getPort() )
+                .get();
+        }
+        finally
+        {
+            RestApiActions.setTimingLog( null );
+            server.stop( 0 );
+        }
+
+        List<Long> bytes = new ArrayList<>();
+
+        try ( TimingLogReader reader = new TimingLogReader( file ) )
+        {
+            reader.forEach( ( timestamp, endpointId, status, latencyNanos, size ) -> bytes.add( size ) );
+        }
+
+        assertEquals( Collections.singletonList( (long) body.length ), bytes );
+    }
+}
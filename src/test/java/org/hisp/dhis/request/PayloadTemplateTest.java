@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.request;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.hisp.dhis.utils.JsonObjectBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PayloadTemplateTest
+{
+    private final PayloadTemplate template = PayloadTemplate.compile( new JsonObjectBuilder()
+        .addProperty( "trackedEntity", PayloadTemplate.uid( "te" ) )
+        .addProperty( "orgUnit", "DiszpKrYNg8" )
+        .addProperty( "name", PayloadTemplate.text( "name" ) )
+        .addProperty( "age", PayloadTemplate.number( "age" ) )
+        .addObject( "enrollment", new JsonObjectBuilder()
+            .addProperty( "trackedEntity", PayloadTemplate.uid( "te" ) )
+            .addProperty( "enrolledAt", PayloadTemplate.date( "enrolledAt" ) ) )
+        .wrapIntoArray( "trackedEntities" ) );
+
+    @Test
+    public void shouldRenderSlotValues()
+    {
+        byte[] rendered = template.newRenderer()
+            .set( "te", "PQfMcpmXeFE" )
+            .set( "name", "Nancy \"Nan\" \u00c5lesund\n" )
+            .set( "age", 42 )
+            .set( "enrolledAt", "2022-01-01" )
+            .render();
+
+        JsonObject expected = new JsonObjectBuilder()
+            .addProperty( "trackedEntity", "PQfMcpmXeFE" )
+            .addProperty( "orgUnit", "DiszpKrYNg8" )
+            .addProperty( "name", "Nancy \"Nan\" \u00c5lesund\n" )
+            .addProperty( "age", "42" )
+            .addObject( "enrollment", new JsonObjectBuilder()
+                .addProperty( "trackedEntity", "PQfMcpmXeFE" )
+                .addProperty( "enrolledAt", "2022-01-01" ) )
+            .wrapIntoArray( "trackedEntities" );
+        expected.getAsJsonArray( "trackedEntities" ).get( 0 ).getAsJsonObject().addProperty( "age", 42 );
+
+        assertEquals( expected, new JsonParser().parse( new String( rendered, StandardCharsets.UTF_8 ) ) );
+    }
+
+    @Test
+    public void shouldReuseRendererBetweenRequests()
+    {
+        PayloadTemplate.Renderer renderer = template.newRenderer()
+            .set( "name", "name" )
+            .set( "age", 1 )
+            .set( "enrolledAt", "2022-01-01" );
+
+        String first = new String( renderer.set( "te", "PQfMcpmXeFE" ).render(), StandardCharsets.UTF_8 );
+        String second = new String( renderer.set( "te", "Kj6vYde4LHh" ).render(), StandardCharsets.UTF_8 );
+
+        assertEquals( first.replace( "PQfMcpmXeFE", "Kj6vYde4LHh" ), second );
+    }
+
+    @Test
+    public void shouldRejectInvalidUid()
+    {
+        PayloadTemplate.Renderer renderer = template.newRenderer().set( "te", "\", \"injected\": \"" );
+
+        assertThrows( IllegalArgumentException.class, renderer::render );
+    }
+
+    @Test
+    public void shouldRejectInvalidNumberAndBoolean()
+    {
+        PayloadTemplate flags = PayloadTemplate.compile( new JsonObjectBuilder()
+            .addProperty( "age", PayloadTemplate.number( "age" ) )
+            .addProperty( "active", PayloadTemplate.bool( "active" ) ) );
+        PayloadTemplate.Renderer renderer = flags.newRenderer();
+
+        assertThrows( IllegalArgumentException.class, () -> renderer.set( "age", "1,\"x\":2" ) );
+        assertThrows( IllegalArgumentException.class, () -> renderer.set( "age", "\u0661" ) );
+        assertThrows( IllegalArgumentException.class, () -> renderer.set( "age", Double.NaN ) );
+        assertThrows( IllegalArgumentException.class, () -> renderer.set( "age", "01" ) );
+        assertThrows( IllegalArgumentException.class, () -> renderer.set( "active", "yes" ) );
+
+        renderer.set( "age", "-1.5e-3" ).set( "active", "true" );
+
+        assertEquals( "{\"age\":-1.5e-3,\"active\":true}", new String( renderer.render(), StandardCharsets.UTF_8 ) );
+    }
+
+    @Test
+    public void shouldListSlots()
+    {
+        assertEquals( 4, template.getSlotNames().size() );
+        assertEquals( PayloadTemplate.SlotType.DATE, template.getSlotType( "enrolledAt" ) );
+    }
+}
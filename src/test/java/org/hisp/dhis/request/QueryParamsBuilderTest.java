@@ -92,4 +92,70 @@ public class QueryParamsBuilderTest
 
         assertThat( queryParams, equalTo( "?key=value&key=anotherValue" ) );
     }
+
+    @Test
+    public void addShouldKeepEqualsSignsInValue()
+    {
+        String queryParams = new QueryParamsBuilder().add( "filter=name:eq:a=b" )
+            .addOrUpdate( "query=x=y" )
+            .build();
+
+        assertThat( queryParams, equalTo( "?filter=name:eq:a=b&query=x=y" ) );
+    }
+
+    @Test
+    public void buildEncodedShouldEncodeKeysAndValues()
+    {
+        QueryParamsBuilder builder = new QueryParamsBuilder().add( "fields", "id,name" )
+            .add( "filter", "name:like:a&b c" );
+
+        assertThat( builder.buildEncoded(), equalTo( "?fields=id%2Cname&filter=name%3Alike%3Aa%26b+c" ) );
+        assertThat( builder.build(), equalTo( "?fields=id,name&filter=name:like:a%26b c" ) );
+    }
+
+    @Test
+    public void buildShouldEscapeQueryDelimiters()
+    {
+        QueryParamsBuilder builder = new QueryParamsBuilder().add( "filter", "name:eq:100% & #1+2" );
+
+        assertThat( builder.build(), equalTo( "?filter=name:eq:100%25 %26 %231%2B2" ) );
+        assertThat( builder.template( "page" ).build( "a&b" ),
+            equalTo( "?filter=name:eq:100%25 %26 %231%2B2&page=a%26b" ) );
+    }
+
+    @Test
+    public void buildShouldReflectUpdatesAfterBuilding()
+    {
+        QueryParamsBuilder builder = new QueryParamsBuilder().add( "page", "1" );
+
+        assertThat( builder.build(), equalTo( "?page=1" ) );
+
+        builder.addOrUpdate( "page", "2" );
+
+        assertThat( builder.build(), equalTo( "?page=2" ) );
+        assertThat( builder.buildEncoded(), equalTo( "?page=2" ) );
+    }
+
+    @Test
+    public void templateShouldReplaceVaryingValues()
+    {
+        QueryParamsTemplate template = new QueryParamsBuilder().add( "fields", "id,name" )
+            .add( "page", "1" )
+            .add( "pageSize", "50" )
+            .template( "page", "orgUnit" );
+
+        assertThat( template.build( "2", "DiszpKrYNg8" ), equalTo( "?fields=id,name&page=2&pageSize=50&orgUnit=DiszpKrYNg8" ) );
+        assertThat( template.buildEncoded( "3", "a b" ), equalTo( "?fields=id%2Cname&page=3&pageSize=50&orgUnit=a+b" ) );
+    }
+
+    @Test
+    public void templateShouldNotChangeBuilder()
+    {
+        QueryParamsBuilder builder = new QueryParamsBuilder().add( "fields", "id" );
+        QueryParamsBuilder copy = builder.copy().add( "pageSize", "50" );
+
+        assertThat( builder.template( "page" ).build( "2" ), equalTo( "?fields=id&page=2" ) );
+        assertThat( builder.build(), equalTo( "?fields=id" ) );
+        assertThat( copy.build(), equalTo( "?fields=id&pageSize=50" ) );
+    }
 }
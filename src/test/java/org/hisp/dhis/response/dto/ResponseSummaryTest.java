@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.response.dto;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.response.Response;
+import org.hisp.dhis.response.BodySampler;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResponseSummaryTest
+{
+    private Response response( String body )
+    {
+        return new ResponseBuilder()
+            .setStatusCode( 200 )
+            .setContentType( "application/json;charset=UTF-8" )
+            .setHeader( "ETag", "\"abc\"" )
+            .setBody( body )
+            .build();
+    }
+
+    @Test
+    public void shouldDiscardBodyAndCountBytes()
+    {
+        ResponseSummary summary = ResponseSummary.of( response( "{\"name\":\"Ase\"}" ), System.nanoTime(), false );
+
+        assertEquals( 200, summary.getStatusCode() );
+        assertEquals( "\"abc\"", summary.getHeader( "ETag" ) );
+        assertEquals( 14, summary.getBodySize() );
+        assertFalse( summary.isSampled() );
+        assertNull( summary.getBody() );
+    }
+
+    @Test
+    public void shouldKeepSampledBody()
+    {
+        ResponseSummary summary = ResponseSummary.of( response( "{\"name\":\"Ase\"}" ), System.nanoTime(), true );
+
+        assertTrue( summary.isSampled() );
+        assertEquals( "{\"name\":\"Ase\"}", summary.getBody() );
+    }
+
+    @Test
+    public void shouldSampleEveryNthBody()
+    {
+        BodySampler sampler = BodySampler.everyNth( 3 );
+
+        assertTrue( sampler.shouldSample() );
+        assertFalse( sampler.shouldSample() );
+        assertFalse( sampler.shouldSample() );
+        assertTrue( sampler.shouldSample() );
+    }
+}
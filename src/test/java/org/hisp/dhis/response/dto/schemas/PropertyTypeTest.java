@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hisp.dhis.response.dto.schemas;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PropertyTypeTest
+{
+    private final Gson gson = new Gson();
+
+    @Test
+    public void shouldReadDhis2Values()
+    {
+        assertEquals( PropertyType.NUMBER, gson.fromJson( "\"INTEGER\"", PropertyType.class ) );
+        assertEquals( PropertyType.NUMBER, gson.fromJson( "\"NUMBER\"", PropertyType.class ) );
+        assertEquals( PropertyType.STRING, gson.fromJson( "\"TEXT\"", PropertyType.class ) );
+        assertEquals( PropertyType.UNKNOWN, gson.fromJson( "\"GEOLOCATION\"", PropertyType.class ) );
+        assertNull( gson.fromJson( "null", PropertyType.class ) );
+    }
+
+    @Test
+    public void shouldWriteAndReadBackNames()
+    {
+        assertEquals( "\"STRING\"", gson.toJson( PropertyType.STRING ) );
+
+        for ( PropertyType type : PropertyType.values() )
+        {
+            assertEquals( type, gson.fromJson( gson.toJson( type ), PropertyType.class ) );
+        }
+    }
+
+    @Test
+    public void shouldReadSchemaProperty()
+    {
+        SchemaProperty property = gson.fromJson( "{\"name\":\"code\",\"propertyType\":\"TEXT\"}",
+            SchemaProperty.class );
+
+        assertEquals( PropertyType.STRING, property.getPropertyType() );
+    }
+}
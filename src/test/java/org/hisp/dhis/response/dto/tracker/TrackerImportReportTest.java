@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.response.dto.tracker;
+
+import io.restassured.http.Header;
+import org.hisp.dhis.response.dto.ApiResponse;
+import org.hisp.dhis.response.dto.TrackerApiResponse;
+import org.hisp.dhis.transport.ResponseFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TrackerImportReportTest
+{
+    private static final String IMPORTED = "{\"status\":\"OK\",\"validationReport\":{\"errorReports\":[],"
+        + "\"warningReports\":[]},\"stats\":{\"created\":3,\"updated\":0,\"deleted\":0,\"ignored\":0,\"total\":3},"
+        + "\"timingsStats\":{\"timers\":{\"commit\":\"0.1 sec.\"}},\"bundleReport\":{\"status\":\"OK\","
+        + "\"typeReportMap\":{\"TRACKED_ENTITY\":{\"trackerType\":\"TRACKED_ENTITY\",\"stats\":{\"created\":1,"
+        + "\"total\":1},\"objectReports\":[{\"trackerType\":\"TRACKED_ENTITY\",\"uid\":\"tei1\",\"index\":0,"
+        + "\"errorReports\":[]}]},\"EVENT\":{\"trackerType\":\"EVENT\",\"stats\":{\"created\":2,\"total\":2},"
+        + "\"objectReports\":[{\"uid\":\"event1\",\"index\":0},{\"uid\":\"event2\",\"index\":1}]}},"
+        + "\"stats\":{\"created\":3,\"total\":3}},\"message\":null}";
+
+    private static final String REJECTED = "{\"status\":\"ERROR\",\"validationReport\":{\"errorReports\":["
+        + "{\"message\":\"Event has no program\",\"errorCode\":\"E1033\",\"trackerType\":\"EVENT\","
+        + "\"uid\":\"event1\"}],\"warningReports\":[]},\"stats\":{\"created\":0,\"updated\":0,\"deleted\":0,"
+        + "\"ignored\":1,\"total\":1},\"bundleReport\":null}";
+
+    @Test
+    public void shouldReadImportedObjects()
+    {
+        TrackerImportReport report = TrackerImportReport.parse( new StringReader( IMPORTED ) );
+
+        assertEquals( "OK", report.getStatus() );
+        assertEquals( 3, report.getStats().getCreated() );
+        assertEquals( Collections.singletonList( "tei1" ),
+            report.getTypeReport( TrackerImportReport.TRACKED_ENTITY ).getUids() );
+        assertEquals( Arrays.asList( "event1", "event2" ),
+            report.getTypeReport( TrackerImportReport.EVENT ).getUids() );
+        assertEquals( 2, report.getTypeReport( TrackerImportReport.EVENT ).getStats().getTotal() );
+        assertNull( report.getTypeReport( TrackerImportReport.ENROLLMENT ) );
+        assertEquals( 0, report.getErrorReports().size() );
+    }
+
+    @Test
+    public void shouldReadValidationErrors()
+    {
+        TrackerImportReport report = TrackerImportReport.parse( new StringReader( REJECTED ) );
+
+        assertEquals( 1, report.getStats().getIgnored() );
+        assertNull( report.getTypeReports() );
+        assertEquals( "E1033", report.getErrorReports().get( 0 ).getErrorCode() );
+        assertEquals( "event1", report.getErrorReports().get( 0 ).getUid() );
+    }
+
+    @Test
+    public void shouldValidateResponseFromReport()
+    {
+        TrackerApiResponse imported = response( IMPORTED );
+        TrackerApiResponse rejected = response( REJECTED );
+
+        imported.validateSuccessfulImport();
+        imported.validateEvents().body( "stats.created", equalTo( 2 ) );
+        assertEquals( Arrays.asList( "event1", "event2" ), imported.extractImportedEvents() );
+        assertNull( imported.extractImportedEnrollments() );
+
+        rejected.validateErrorReport().body( "errorCode[0]", equalTo( "E1033" ) );
+        assertThrows( AssertionError.class, rejected::validateSuccessfulImport );
+    }
+
+    private TrackerApiResponse response( String body )
+    {
+        return new TrackerApiResponse( new ApiResponse( ResponseFactory.create( 200, null,
+            Collections.singletonList( new Header( "Content-Type", "application/json;charset=UTF-8" ) ), body,
+            1 ) ) );
+    }
+}
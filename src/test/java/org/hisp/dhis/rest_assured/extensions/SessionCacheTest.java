@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.rest_assured.extensions;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class SessionCacheTest
+{
+    @Test
+    public void shouldReturnSessionOfUser()
+    {
+        SessionCache cache = new SessionCache();
+        cache.put( "admin", "district", "JSESSIONID", "abc" );
+        cache.put( "tracker", "Test1234!", "SESSION", "def" );
+
+        assertEquals( "abc", cache.get( "admin", "district" ).getCookieValue() );
+        assertEquals( "SESSION", cache.get( "tracker", "Test1234!" ).getCookieName() );
+    }
+
+    @Test
+    public void shouldNotReturnSessionForDifferentPassword()
+    {
+        SessionCache cache = new SessionCache();
+        cache.put( "admin", "district", "JSESSIONID", "abc" );
+
+        assertNull( cache.get( "admin", "wrong" ) );
+        assertNull( cache.get( "admin", "district" ) );
+    }
+
+    @Test
+    public void shouldNotReturnExpiredSession()
+        throws InterruptedException
+    {
+        SessionCache cache = new SessionCache( 1 );
+        cache.put( "admin", "district", "JSESSIONID", "abc" );
+
+        Thread.sleep( 5 );
+
+        assertNull( cache.get( "admin", "district" ) );
+        assertEquals( 0, cache.size() );
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.rest_assured.extensions;
+
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TokenAuthFilterTest
+{
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private final AtomicInteger refreshes = new AtomicInteger();
+
+    private TokenProvider provider( long lifetimeMillis )
+    {
+        return new TokenProvider()
+        {
+            @Override
+            public Token fetch( String baseUri, String username, String password )
+            {
+                return new Token( "Bearer", username + fetches.incrementAndGet(),
+                    System.currentTimeMillis() + lifetimeMillis );
+            }
+
+            @Override
+            public Token refresh( String baseUri, String username, String password, Token token )
+            {
+                return new Token( "Bearer", username + "-refreshed" + refreshes.incrementAndGet(),
+                    System.currentTimeMillis() + lifetimeMillis );
+            }
+        };
+    }
+
+    @Test
+    public void shouldCacheTokenPerUser()
+    {
+        TokenAuthFilter filter = new TokenAuthFilter( provider( TimeUnit.HOURS.toMillis( 1 ) ) );
+
+        Token admin = filter.getToken( "http://localhost/api", "admin", "district" );
+
+        assertSame( admin, filter.getToken( "http://localhost/api", "admin", "district" ) );
+        assertNotSame( admin, filter.getToken( "http://localhost/api", "tracker", "Test1234!" ) );
+        assertEquals( 2, fetches.get() );
+    }
+
+    @Test
+    public void shouldRefreshTokenBeforeExpiry()
+    {
+        TokenAuthFilter filter = new TokenAuthFilter( provider( TimeUnit.SECONDS.toMillis( 30 ) ),
+            TimeUnit.MINUTES.toMillis( 1 ) );
+
+        Token token = filter.getToken( "http://localhost/api", "admin", "district" );
+        Token refreshed = filter.getToken( "http://localhost/api", "admin", "district" );
+
+        assertEquals( "Bearer admin1", token.toHeaderValue() );
+        assertEquals( "Bearer admin-refreshed1", refreshed.toHeaderValue() );
+    }
+
+    @Test
+    public void shouldFetchTokenOnceForConcurrentRequests()
+        throws Exception
+    {
+        TokenAuthFilter filter = new TokenAuthFilter( provider( TimeUnit.HOURS.toMillis( 1 ) ) );
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+
+        try
+        {
+            List<Future<Token>> futures = new ArrayList<>();
+
+            for ( int i = 0; i < 64; i++ )
+            {
+                futures.add( executor.submit( () -> filter.getToken( "http://localhost/api", "admin", "district" ) ) );
+            }
+
+            for ( Future<Token> future : futures )
+            {
+                assertEquals( "admin1", future.get().getValue() );
+            }
+
+            assertEquals( 1, fetches.get() );
+        }
+        finally
+        {
+            executor.shutdown();
+            executor.awaitTermination( 5, TimeUnit.SECONDS );
+        }
+    }
+
+    @Test
+    public void shouldNotRetryChallengeWithBasicAuth()
+        throws Exception
+    {
+        List<String> authorizations = Collections.synchronizedList( new ArrayList<>() );
+        HttpServer server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+        server.createContext( "/", exchange -> {
+            authorizations.add( exchange.getRequestHeaders().getFirst( "Authorization" ) );
+            exchange.getResponseHeaders().add( "WWW-Authenticate", "Basic realm=\"DHIS2\"" );
+            exchange.sendResponseHeaders( 401, -1 );
+            exchange.close();
+        } );
+        server.start();
+        RestAssured.authentication = RestAssured.preemptive().basic( "admin", "district" );
+
+        try
+        {
+            TokenAuthFilter filter = new TokenAuthFilter( provider( TimeUnit.HOURS.toMillis( 1 ) ) );
+            String baseUri = "http://localhost:" + server.getAddress().getPort();
+
+            int status = RestAssured.given().baseUri( baseUri ).filter( filter ).get( "/api/me" )
+                .statusCode();
+
+            assertEquals( 401, status );
+            assertEquals( Collections.singletonList( "Bearer admin1" ), authorizations );
+
+            filter.getToken( baseUri, "admin", "district" );
+
+            assertEquals( 2, fetches.get() );
+        }
+        finally
+        {
+            RestAssured.reset();
+            server.stop( 0 );
+        }
+    }
+
+    @Test
+    public void shouldResolveOAuth2TokenEndpointAgainstServerRoot()
+    {
+        assertEquals( "http://localhost:8080", OAuth2TokenProvider.serverRoot( "http://localhost:8080/api" ) );
+        assertEquals( "http://localhost:8080/dhis", OAuth2TokenProvider.serverRoot( "http://localhost:8080/dhis/api/" ) );
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.rest_assured.extensions;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class VirtualUserPoolTest
+{
+    @AfterEach
+    public void unbind()
+    {
+        VirtualUser.unbind();
+    }
+
+    @Test
+    public void shouldAssignUsersRoundRobin()
+    {
+        VirtualUserPool pool = VirtualUserPool.of( "user", "Test1234!", 3 );
+
+        assertEquals( "user1", pool.next().getUsername() );
+        assertEquals( "user2", pool.next().getUsername() );
+        assertEquals( "user3", pool.next().getUsername() );
+        assertEquals( "user1", pool.next().getUsername() );
+    }
+
+    @Test
+    public void shouldAssignUsersByWeight()
+    {
+        VirtualUser admin = new VirtualUser( "admin", "district", 1 );
+        VirtualUser tracker = new VirtualUser( "tracker", "Test1234!", 3 );
+        VirtualUserPool pool = VirtualUserPool.weighted( Arrays.asList( admin, tracker ) );
+
+        Map<VirtualUser, Integer> counts = new HashMap<>();
+
+        for ( int i = 0; i < 400; i++ )
+        {
+            counts.merge( pool.next(), 1, Integer::sum );
+        }
+
+        assertEquals( 100, (int) counts.get( admin ) );
+        assertEquals( 300, (int) counts.get( tracker ) );
+    }
+
+    @Test
+    public void shouldInterleaveWeightedUsers()
+    {
+        VirtualUser admin = new VirtualUser( "admin", "district", 2 );
+        VirtualUser tracker = new VirtualUser( "tracker", "Test1234!", 1 );
+        VirtualUser viewer = new VirtualUser( "viewer", "Test1234!", 1 );
+        VirtualUserPool pool = VirtualUserPool.weighted( Arrays.asList( admin, tracker, viewer ) );
+
+        for ( int cycle = 0; cycle < 2; cycle++ )
+        {
+            assertSame( admin, pool.next() );
+            assertSame( tracker, pool.next() );
+            assertSame( viewer, pool.next() );
+            assertSame( admin, pool.next() );
+        }
+    }
+
+    @Test
+    public void shouldKeepUserBoundToThread()
+        throws Exception
+    {
+        VirtualUserPool pool = VirtualUserPool.of( "user", "Test1234!", 2 );
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+
+        try
+        {
+            Future<VirtualUser> first = executor.submit( () -> {
+                VirtualUser user = pool.assignToCurrentThread();
+                assertSame( user, pool.assignToCurrentThread() );
+                return VirtualUser.current();
+            } );
+
+            assertEquals( "user1", first.get().getUsername() );
+            assertNull( VirtualUser.current() );
+        }
+        finally
+        {
+            executor.shutdown();
+            executor.awaitTermination( 5, TimeUnit.SECONDS );
+        }
+    }
+
+    @Test
+    public void shouldRestorePreviousUserAfterCall()
+    {
+        VirtualUser outer = new VirtualUser( "admin", "district" );
+        VirtualUser inner = new VirtualUser( "tracker", "Test1234!" );
+
+        outer.bind();
+
+        assertSame( inner, inner.callAs( VirtualUser::current ) );
+        assertSame( outer, VirtualUser.current() );
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.scenario;
+
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.actions.TrackerActions;
+import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+import org.hisp.dhis.rest_assured.extensions.VirtualUserPool;
+import org.hisp.dhis.stub.Dhis2StubServerExtension;
+import org.hisp.dhis.utils.JsonObjectBuilder;
+import org.hisp.dhis.utils.MetadataRandomizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScenarioRunnerTest
+{
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension();
+
+    @Test
+    public void shouldPassValuesBetweenStepsAndMeasureEachStep()
+    {
+        Set<String> users = ConcurrentHashMap.newKeySet();
+
+        Scenario scenario = Scenario.named( "register and review" )
+            .step( "create data element", context -> context.put( "dataElement",
+                new RestApiActions( "/dataElements" )
+                    .create( MetadataRandomizer.generateObjectForEndpoint( "dataElement" ) ) ) )
+            .thinkTime( 1, 3, TimeUnit.MILLISECONDS )
+            .step( "import tracked entity", context -> context.put( "trackedEntity", new TrackerActions()
+                .postAndGetJobReport( new JsonObjectBuilder().addArray( "trackedEntities", new JsonObjectBuilder()
+                    .addProperty( "trackedEntity", "te" + context.getUser() + "x" + context.getIteration() )
+                    .build() ).build(), new QueryParamsBuilder() )
+                .validateSuccessfulImport().extractImportedTeis().get( 0 ) ) )
+            .step( "query data element", context -> {
+                users.add( VirtualUser.current().getUsername() );
+                new RestApiActions( "/dataElements" ).get( context.getString( "dataElement" ) )
+                    .validate().statusCode( 200 );
+                assertEquals( "te" + context.getUser() + "x" + context.getIteration(),
+                    context.getString( "trackedEntity" ) );
+            } );
+
+        ScenarioResult result = new ScenarioRunner()
+            .setUsers( 4 )
+            .setIterations( 3 )
+            .setVirtualUserPool( VirtualUserPool.of( "user", "Test1234!", 2 ) )
+            .run( scenario );
+
+        assertEquals( 12, result.getIterations() );
+        assertEquals( 0, result.getFailedIterations() );
+        assertEquals( scenario.getStepNames(), result.getSteps().keySet().stream()
+            .collect( Collectors.toList() ) );
+
+        for ( StepMetrics step : result.getSteps().values() )
+        {
+            assertEquals( 12, step.getCount() );
+            assertEquals( 0, step.getFailureCount() );
+            assertTrue( step.getPercentile( 50, TimeUnit.MICROSECONDS ) > 0 );
+            assertTrue( step.getPercentile( 50, TimeUnit.MICROSECONDS ) <= step.getMax( TimeUnit.MICROSECONDS ) );
+            assertTrue( step.getThroughput() > 0 );
+        }
+
+        assertEquals( 2, users.size() );
+    }
+
+    @Test
+    public void shouldEndIterationOnFailingStep()
+    {
+        Scenario scenario = Scenario.named( "missing object" )
+            .step( "read", context -> new RestApiActions( "/dataElements" ).get( "missing" ).validate()
+                .statusCode( 404 ) )
+            .step( "read value", context -> context.get( "missing" ) )
+            .step( "never", context -> {
+            } );
+
+        ScenarioResult result = new ScenarioRunner().setUsers( 2 ).setIterations( 2 ).run( scenario );
+
+        assertEquals( 4, result.getIterations() );
+        assertEquals( 4, result.getFailedIterations() );
+        assertEquals( 4, result.getStep( "read value" ).getFailureCount() );
+        assertEquals( 0, result.getStep( "read" ).getFailureCount() );
+        assertEquals( 0, result.getStep( "never" ).getCount() );
+        assertThrows( IllegalArgumentException.class, () -> scenario.step( "never", context -> {
+        } ) );
+    }
+
+    @Test
+    public void shouldRunUntilDurationPassed()
+    {
+        Scenario scenario = Scenario.named( "think" )
+            .step( "think", context -> {
+            } )
+            .thinkTime( 10, 10, TimeUnit.MILLISECONDS );
+
+        ScenarioResult result = new ScenarioRunner()
+            .setUsers( 3 )
+            .setIterations( 0 )
+            .setDuration( 150, TimeUnit.MILLISECONDS )
+            .setRampUp( 50, TimeUnit.MILLISECONDS )
+            .run( scenario );
+
+        assertTrue( result.getElapsed( TimeUnit.MILLISECONDS ) >= 150 );
+        assertTrue( result.getIterations() >= 3 && result.getIterations() <= 3 * 16 );
+        assertEquals( result.getIterations(), result.getStep( "think" ).getCount() );
+    }
+
+    @Test
+    public void shouldBucketLatencies()
+    {
+        for ( long micros : new long[] { 0, 15, 16, 17, 1_000, 123_456, 10_000_000 } )
+        {
+            int bucket = StepMetrics.bucket( micros );
+
+            assertTrue( StepMetrics.lowerBound( bucket ) <= micros );
+            assertTrue( StepMetrics.lowerBound( bucket + 1 ) > micros );
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.stub;
+
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Runs a {@link Dhis2StubServer} for the tests of a class and points
+ * Rest-Assured at it. Register it on a static field:
+ *
+ * <pre>
+ * &#64;RegisterExtension
+ * static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension(
+ *     new Dhis2StubServer().setLatency( 200, 0 ) );
+ * </pre>
+ *
+ * The base uri Rest-Assured had before is restored when the tests of the
+ * class are done.
+ */
+public class Dhis2StubServerExtension
+    implements BeforeAllCallback, AfterAllCallback
+{
+    private final Dhis2StubServer server;
+
+    private String previousBaseUri;
+
+    public Dhis2StubServerExtension()
+    {
+        this( new Dhis2StubServer() );
+    }
+
+    /**
+     * @param server configured server, started before the tests of the class
+     */
+    public Dhis2StubServerExtension( Dhis2StubServer server )
+    {
+        this.server = server;
+    }
+
+    public Dhis2StubServer getServer()
+    {
+        return server;
+    }
+
+    @Override
+    public void beforeAll( ExtensionContext context )
+    {
+        server.start();
+        previousBaseUri = RestAssured.baseURI;
+        RestAssured.baseURI = server.getBaseUri();
+    }
+
+    @Override
+    public void afterAll( ExtensionContext context )
+    {
+        RestAssured.baseURI = previousBaseUri;
+        server.close();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.stub;
+
+import com.google.gson.JsonObject;
+import org.hisp.dhis.actions.IdGenerator;
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.actions.TrackerActions;
+import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.response.dto.ApiResponse;
+import org.hisp.dhis.response.dto.TrackerApiResponse;
+import org.hisp.dhis.utils.JsonObjectBuilder;
+import org.hisp.dhis.utils.MetadataRandomizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Dhis2StubServerTest
+{
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension(
+        new Dhis2StubServer().setCollectionSize( 5 ) );
+
+    @Test
+    public void shouldGenerateUids()
+    {
+        assertTrue( new IdGenerator().generateUniqueId().matches( "[a-zA-Z][a-zA-Z0-9]{10}" ) );
+    }
+
+    @Test
+    public void shouldCreateObjectMatchingSchema()
+    {
+        JsonObject dataSet = MetadataRandomizer.generateObjectForEndpoint( "dataSet" );
+        RestApiActions dataSetActions = new RestApiActions( "/dataSets" );
+
+        String uid = dataSetActions.create( dataSet );
+
+        assertEquals( dataSet.get( "name" ).getAsString(), dataSetActions.get( uid ).extractString( "name" ) );
+        assertEquals( 5, dataSetActions.get().extractList( "dataSets" ).size() );
+        assertEquals( 200, dataSetActions.delete( uid ).statusCode() );
+        assertEquals( 404, dataSetActions.get( uid ).statusCode() );
+    }
+
+    @Test
+    public void shouldReportImportedTrackerObjects()
+    {
+        JsonObject event = new JsonObjectBuilder().addProperty( "event", "eventUid001" ).build();
+        JsonObject enrollment = new JsonObjectBuilder().addArray( "events", event ).build();
+        JsonObject trackedEntity = new JsonObjectBuilder().addArray( "enrollments", enrollment ).build();
+        JsonObject payload = new JsonObjectBuilder().addArray( "trackedEntities", trackedEntity ).build();
+
+        TrackerApiResponse response = new TrackerActions()
+            .postAndGetJobReport( payload, new QueryParamsBuilder() )
+            .validateSuccessfulImport();
+
+        assertEquals( 1, response.extractImportedTeis().size() );
+        assertEquals( 1, response.extractImportedEnrollments().size() );
+        assertEquals( "eventUid001", response.extractImportedEvents().get( 0 ) );
+    }
+
+    @Test
+    public void shouldCompleteAsyncTrackerJob()
+    {
+        TrackerActions trackerActions = new TrackerActions();
+        ApiResponse response = trackerActions.post( new JsonObjectBuilder().addArray( "events",
+            new JsonObjectBuilder().addProperty( "event", "eventUid002" ).build() ).build() );
+        String jobId = response.extractString( "response.id" );
+
+        trackerActions.waitUntilJobIsCompleted( jobId );
+
+        assertEquals( "eventUid002",
+            trackerActions.getJobReport( jobId, "FULL" ).extractImportedEvents().get( 0 ) );
+    }
+
+    @Test
+    public void shouldAnswerBadRequestForMalformedInput()
+    {
+        RestApiActions dataSetActions = new RestApiActions( "/dataSets" );
+
+        assertEquals( 400, dataSetActions.get( "", new QueryParamsBuilder().add( "pageSize", "0" ) ).statusCode() );
+        assertEquals( 400, dataSetActions.get( "", new QueryParamsBuilder().add( "page", "x" ) ).statusCode() );
+        assertEquals( 400, new RestApiActions( "/metadata" ).post( "{\"dataSets\": [" ).statusCode() );
+        assertEquals( 200, dataSetActions.get().statusCode() );
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.transport;
+
+import io.restassured.response.Response;
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.stub.Dhis2StubServerExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrencyLimiterTest
+{
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension();
+
+    private static final TransportRequest REQUEST = new TransportRequest( "GET", "" );
+
+    @Test
+    public void shouldBackOffOnErrorsAndGrowOnSuccess()
+    {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter().setInitialLimit( 10 ).setBackoffRatio( 0.5 );
+
+        limiter.send( "http://dhis2", "/dataElements", REQUEST, request -> response( 503 ) );
+
+        assertEquals( 5, limiter.getLimit( "http://dhis2" ) );
+        assertEquals( 5, limiter.getLimit( "http://dhis2", "/dataElements" ) );
+
+        limiter.send( "http://dhis2", "/dataElements", REQUEST, request -> response( 429 ) );
+        limiter.send( "http://dhis2", "/dataElements", REQUEST, request -> response( 429 ) );
+
+        assertEquals( 1, limiter.getLimit( "http://dhis2" ) );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            limiter.send( "http://dhis2", "/dataElements", REQUEST, request -> response( 200 ) );
+        }
+
+        assertTrue( limiter.getLimit( "http://dhis2" ) > 1 );
+        assertEquals( 10, limiter.getLimit( "http://dhis2", "/organisationUnits" ) );
+        assertEquals( 0, limiter.getInFlight( "http://dhis2" ) );
+    }
+
+    @Test
+    public void shouldTreatSlowResponsesAsFailures()
+    {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter().setInitialLimit( 10 ).setBackoffRatio( 0.5 )
+            .setLatencyLimit( 10, TimeUnit.MILLISECONDS );
+
+        limiter.send( "http://dhis2", "/analytics", REQUEST, request -> {
+            sleep( 30 );
+            return response( 200 );
+        } );
+
+        assertEquals( 5, limiter.getLimit( "http://dhis2", "/analytics" ) );
+    }
+
+    @Test
+    public void shouldCapRequestsInFlight()
+        throws Exception
+    {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter().setInitialLimit( 4 ).setMaxLimit( 4 );
+        AtomicInteger inFlight = new AtomicInteger();
+        List<Integer> observed = Collections.synchronizedList( new ArrayList<>() );
+        ExecutorService executor = Executors.newFixedThreadPool( 16 );
+
+        try
+        {
+            List<Future<Response>> responses = new ArrayList<>();
+
+            for ( int i = 0; i < 64; i++ )
+            {
+                responses.add( executor.submit( () -> limiter.send( "http://dhis2", "/events", REQUEST, request -> {
+                    observed.add( inFlight.incrementAndGet() );
+                    sleep( 5 );
+                    inFlight.decrementAndGet();
+                    return response( 200 );
+                } ) ) );
+            }
+
+            for ( Future<Response> response : responses )
+            {
+                assertEquals( 200, response.get().statusCode() );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertEquals( 4, (int) Collections.max( observed ) );
+    }
+
+    @Test
+    public void shouldLimitActionsPerEndpoint()
+    {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+
+        assertEquals( 200, new RestApiActions( "/periodTypes" ).setConcurrencyLimiter( limiter ).get()
+            .statusCode() );
+        assertEquals( 404, new RestApiActions( "/schemas" ).setConcurrencyLimiter( limiter ).get( "unknown" )
+            .statusCode() );
+        assertEquals( 0, limiter.getInFlight( stub.getServer().getBaseUri() ) );
+        assertEquals( 20, limiter.getLimit( stub.getServer().getBaseUri(), "/schemas" ) );
+    }
+
+    private static Response response( int statusCode )
+    {
+        return ResponseFactory.create( statusCode, null, Collections.emptyList(), "", 0 );
+    }
+
+    private static void sleep( long millis )
+    {
+        try
+        {
+            Thread.sleep( millis );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
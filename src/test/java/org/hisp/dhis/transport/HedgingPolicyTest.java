@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.transport;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.response.Response;
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.stub.Dhis2StubServer;
+import org.hisp.dhis.stub.Dhis2StubServerExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HedgingPolicyTest
+{
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension(
+        new Dhis2StubServer().setLatency( 1, 0 ) );
+
+    private static final TransportRequest REQUEST = new TransportRequest( "GET", "" );
+
+    @Test
+    public void shouldNotHedgeBeforeEnoughSamples()
+    {
+        HedgingPolicy policy = new HedgingPolicy().setBudget( 1 ).setMinSamples( 20 );
+
+        for ( int i = 0; i < 5; i++ )
+        {
+            policy.send( "/dataElements", REQUEST, request -> response( 200, 5 ) );
+        }
+
+        assertEquals( 5, policy.getRequestCount() );
+        assertEquals( 0, policy.getHedgeCount() );
+        assertEquals( -1, policy.getHedgeDelay( "/dataElements", TimeUnit.MILLISECONDS ) );
+    }
+
+    @Test
+    public void shouldUseHedgeAnsweredFirst()
+    {
+        HedgingPolicy policy = new HedgingPolicy().setBudget( 1 ).setMinSamples( 10 );
+        warmUp( policy, "/dataElements" );
+        AtomicInteger calls = new AtomicInteger();
+
+        long start = System.nanoTime();
+        Response response = policy.send( "/dataElements", REQUEST,
+            request -> calls.incrementAndGet() == 1 ? response( 200, 2_000 ) : response( 203, 0 ) );
+
+        assertEquals( 203, response.statusCode() );
+        assertTrue( System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos( 1_000 ) );
+        assertEquals( 1, policy.getHedgeCount() );
+        assertEquals( 1, policy.getHedgeWonCount() );
+    }
+
+    @Test
+    public void shouldDrainLosingResponse()
+        throws InterruptedException
+    {
+        HedgingPolicy policy = new HedgingPolicy().setBudget( 1 ).setMinSamples( 10 );
+        warmUp( policy, "/dataElements" );
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean drained = new AtomicBoolean();
+
+        Response response = policy.send( "/dataElements", REQUEST, request -> calls.incrementAndGet() == 1
+            ? streamed( 200, 1_000, drained )
+            : response( 203, 0 ) );
+
+        assertEquals( 203, response.statusCode() );
+
+        for ( int i = 0; i < 300 && !drained.get(); i++ )
+        {
+            Thread.sleep( 10 );
+        }
+
+        assertTrue( drained.get() );
+    }
+
+    @Test
+    public void shouldNotHedgeOverBudget()
+    {
+        HedgingPolicy policy = new HedgingPolicy().setBudget( 0.01 ).setMinSamples( 10 );
+        warmUp( policy, "/events" );
+
+        Response response = policy.send( "/events", REQUEST, request -> response( 200, 100 ) );
+
+        assertEquals( 200, response.statusCode() );
+        assertEquals( 0, policy.getHedgeCount() );
+    }
+
+    @Test
+    public void shouldHedgeActionsGets()
+    {
+        HedgingPolicy policy = new HedgingPolicy().setMinSamples( 5 );
+        RestApiActions actions = new RestApiActions( "/periodTypes" ).setHedgingPolicy( policy );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( 200, actions.get().statusCode() );
+        }
+
+        assertEquals( 10, policy.getRequestCount() );
+        assertTrue( policy.getHedgeDelay( "/periodTypes", TimeUnit.NANOSECONDS ) > 0 );
+    }
+
+    private static void warmUp( HedgingPolicy policy, String endpoint )
+    {
+        for ( int i = 0; i < 10; i++ )
+        {
+            policy.send( endpoint, REQUEST, request -> response( 200, 1 ) );
+        }
+    }
+
+    private static Response response( int statusCode, long delayMillis )
+    {
+        try
+        {
+            Thread.sleep( delayMillis );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        return ResponseFactory.create( statusCode, null, Collections.emptyList(), "", delayMillis );
+    }
+
+    private static Response streamed( int statusCode, long delayMillis, AtomicBoolean drained )
+    {
+        response( statusCode, delayMillis );
+
+        InputStream body = new ByteArrayInputStream( "{}".getBytes( StandardCharsets.UTF_8 ) )
+        {
+            @Override
+            public synchronized int read( byte[] bytes, int offset, int length )
+            {
+                int read = super.read( bytes, offset, length );
+                drained.compareAndSet( false, read < 0 );
+                return read;
+            }
+        };
+
+        return new ResponseBuilder().setStatusCode( statusCode ).setStatusLine( "HTTP/1.1 " + statusCode )
+            .setBody( body ).build();
+    }
+}
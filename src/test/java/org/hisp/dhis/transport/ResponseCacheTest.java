@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.transport;
+
+import io.restassured.http.Header;
+import io.restassured.response.Response;
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.response.dto.ApiResponse;
+import org.hisp.dhis.stub.Dhis2StubServerExtension;
+import org.hisp.dhis.utils.JsonObjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ResponseCacheTest
+{
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension();
+
+    @Test
+    public void shouldAnswerUnchangedResponseFromCache()
+    {
+        ResponseCache cache = new ResponseCache( 10 );
+        RestApiActions restAssuredActions = new RestApiActions( "/periodTypes" ).setResponseCache( cache );
+        RestApiActions transportActions = new RestApiActions( "/periodTypes" ).setResponseCache( cache )
+            .setTransport( new UrlConnectionTransport() );
+
+        ApiResponse first = restAssuredActions.get();
+        ApiResponse second = restAssuredActions.get();
+        ApiResponse third = transportActions.get();
+
+        assertEquals( 200, second.statusCode() );
+        assertEquals( first.getAsString(), second.getAsString() );
+        assertEquals( first.getAsString(), third.getAsString() );
+        assertEquals( "Monthly", third.extractString( "periodTypes[2].name" ) );
+        assertEquals( 2, cache.getHitCount() );
+        assertEquals( 1, cache.getMissCount() );
+    }
+
+    @Test
+    public void shouldReplaceChangedResponse()
+    {
+        ResponseCache cache = new ResponseCache( 10 );
+        RestApiActions actions = new RestApiActions( "/dataElements" ).setResponseCache( cache );
+        actions.update( "deCached001", new JsonObjectBuilder().addProperty( "name", "before" ).build() );
+
+        assertEquals( "before", actions.get( "deCached001" ).extractString( "name" ) );
+
+        actions.update( "deCached001", new JsonObjectBuilder().addProperty( "name", "after" ).build() );
+
+        assertEquals( "after", actions.get( "deCached001" ).extractString( "name" ) );
+        assertEquals( "after", actions.get( "deCached001" ).extractString( "name" ) );
+        assertEquals( 1, cache.getHitCount() );
+        assertEquals( 2, cache.getMissCount() );
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedResponse()
+    {
+        ResponseCache cache = new ResponseCache( 2 );
+        RestApiActions actions = new RestApiActions( "/schemas" ).setResponseCache( cache );
+
+        actions.get( "dataElement" );
+        actions.get( "organisationUnit" );
+        actions.get( "dataElement" );
+        actions.get( "dataSet" );
+        actions.get( "dataElement" );
+
+        assertEquals( 2, cache.size() );
+        assertEquals( 1, cache.getEvictionCount() );
+        assertEquals( 2, cache.getHitCount() );
+    }
+
+    @Test
+    public void shouldKeepBodyBytesOfCachedResponse()
+    {
+        byte[] body = new byte[256];
+
+        for ( int i = 0; i < body.length; i++ )
+        {
+            body[i] = (byte) i;
+        }
+
+        List<Header> headers = Arrays.asList( new Header( "Content-Type", "application/octet-stream" ),
+            new Header( "ETag", "\"v1\"" ) );
+        ResponseCache cache = new ResponseCache( 10 );
+        String uri = "http://localhost/api/fileResources/abc/data";
+
+        cache.send( uri, new TransportRequest( "GET", "" ),
+            request -> ResponseFactory.create( 200, null, headers, body, 0 ) );
+        Response cached = cache.send( uri, new TransportRequest( "GET", "" ),
+            request -> ResponseFactory.create( 304, null, Collections.emptyList(), new byte[0], 0 ) );
+
+        assertEquals( 1, cache.getHitCount() );
+        assertArrayEquals( body, cached.asByteArray() );
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.transport;
+
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.response.dto.ApiResponse;
+import org.hisp.dhis.stub.Dhis2StubServer;
+import org.hisp.dhis.stub.Dhis2StubServerExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest
+{
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension(
+        new Dhis2StubServer().setLatency( 200, 0 ) );
+
+    @Test
+    public void shouldSendConcurrentIdenticalRequestsOnce()
+        throws Exception
+    {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( 16 );
+        long requestsBefore = stub.getServer().getRequestCount();
+
+        try
+        {
+            List<Future<ApiResponse>> responses = new ArrayList<>();
+
+            for ( int i = 0; i < 16; i++ )
+            {
+                responses.add( executor.submit( () -> {
+                    start.await();
+                    return new RestApiActions( "/schemas" ).setSingleFlight( singleFlight ).get( "dataElement" );
+                } ) );
+            }
+
+            start.countDown();
+
+            for ( Future<ApiResponse> response : responses )
+            {
+                assertEquals( 200, response.get().statusCode() );
+                assertEquals( "dataElements", response.get().extractString( "plural" ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertTrue( singleFlight.getSentCount() < 16, singleFlight.toString() );
+        assertEquals( 16, singleFlight.getSentCount() + singleFlight.getSharedCount() );
+        assertEquals( singleFlight.getSentCount(), stub.getServer().getRequestCount() - requestsBefore );
+
+        new RestApiActions( "/schemas" ).setSingleFlight( singleFlight ).get( "dataElement" );
+
+        assertEquals( singleFlight.getSentCount(), stub.getServer().getRequestCount() - requestsBefore );
+    }
+
+    @Test
+    public void shouldShareFailureOfRequestInFlight()
+        throws Exception
+    {
+        SingleFlight singleFlight = new SingleFlight();
+        IllegalStateException failure = new IllegalStateException( "failed" );
+        CountDownLatch entered = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        AtomicReference<Throwable> followerFailure = new AtomicReference<>();
+
+        Thread leader = new Thread( () -> assertThrows( IllegalStateException.class,
+            () -> singleFlight.send( "http://localhost/api/schemas", new TransportRequest( "GET", "" ), request -> {
+                entered.countDown();
+                await( release );
+                throw failure;
+            } ) ) );
+        leader.start();
+        entered.await();
+
+        Thread follower = new Thread( () -> {
+            try
+            {
+                singleFlight.send( "http://localhost/api/schemas", new TransportRequest( "GET", "" ), request -> {
+                    throw new AssertionError( "Request in flight was sent again" );
+                } );
+            }
+            catch ( Throwable e )
+            {
+                followerFailure.set( e );
+            }
+        } );
+        follower.start();
+
+        while ( follower.getState() != Thread.State.WAITING )
+        {
+            Thread.sleep( 1 );
+        }
+
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertSame( failure, followerFailure.get() );
+        assertEquals( 1, singleFlight.getSentCount() );
+    }
+
+    private static void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.transport;
+
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.RestAssured;
+import org.hisp.dhis.actions.IdGenerator;
+import org.hisp.dhis.actions.RestApiActions;
+import org.hisp.dhis.actions.SchemasActions;
+import org.hisp.dhis.actions.TrackerActions;
+import org.hisp.dhis.request.QueryParamsBuilder;
+import org.hisp.dhis.response.dto.ApiResponse;
+import org.hisp.dhis.response.dto.TrackerApiResponse;
+import org.hisp.dhis.rest_assured.extensions.SessionCache;
+import org.hisp.dhis.rest_assured.extensions.VirtualUser;
+import org.hisp.dhis.stub.Dhis2StubServer;
+import org.hisp.dhis.stub.Dhis2StubServerExtension;
+import org.hisp.dhis.utils.JsonObjectBuilder;
+import org.hisp.dhis.utils.MetadataRandomizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UrlConnectionTransportTest
+{
+    private static final HttpTransport TRANSPORT = new UrlConnectionTransport();
+
+    @RegisterExtension
+    static final Dhis2StubServerExtension stub = new Dhis2StubServerExtension(
+        new Dhis2StubServer().setCollectionSize( 5 ) );
+
+    @Test
+    public void shouldRunActionsOnTransport()
+    {
+        IdGenerator idGenerator = new IdGenerator();
+        idGenerator.setTransport( TRANSPORT );
+        RestApiActions dataSetActions = new RestApiActions( "/dataSets" ).setTransport( TRANSPORT );
+        JsonObject dataSet = MetadataRandomizer.generateObjectForEndpoint( "dataSet" );
+
+        assertTrue( idGenerator.generateUniqueId().matches( "[a-zA-Z][a-zA-Z0-9]{10}" ) );
+
+        String uid = dataSetActions.create( dataSet );
+        ApiResponse response = dataSetActions.get( uid );
+
+        response.validate().statusCode( 200 ).body( "name", equalTo( dataSet.get( "name" ).getAsString() ) );
+        assertEquals( 5, dataSetActions.get().extractList( "dataSets" ).size() );
+        assertEquals( 200, dataSetActions.delete( uid ).statusCode() );
+        assertEquals( 404, dataSetActions.get( uid ).statusCode() );
+    }
+
+    @Test
+    public void shouldExtractTrackerReportAndSchemas()
+    {
+        TrackerActions trackerActions = new TrackerActions();
+        trackerActions.setTransport( TRANSPORT );
+        SchemasActions schemasActions = new SchemasActions();
+        schemasActions.setTransport( TRANSPORT );
+
+        JsonObject event = new JsonObjectBuilder().addProperty( "event", "eventUid003" ).build();
+        TrackerApiResponse response = trackerActions
+            .postAndGetJobReport( new JsonObjectBuilder().addArray( "events", event ).build(),
+                new QueryParamsBuilder() )
+            .validateSuccessfulImport();
+
+        assertEquals( "eventUid003", response.extractImportedEvents().get( 0 ) );
+        assertTrue( response.getTime() >= 0 );
+        assertEquals( "dataElements", schemasActions.getSchema( "dataElement" ).getPlural() );
+        assertTrue( schemasActions.getRequiredProperties( "dataElement" ).size() > 0 );
+    }
+
+    @Test
+    public void shouldAuthenticateVirtualUser()
+        throws IOException
+    {
+        HttpServer echo = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+        echo.createContext( "/", exchange -> {
+            String cookie = exchange.getRequestHeaders().getFirst( "Cookie" );
+            byte[] body = String.valueOf( cookie ).getBytes( StandardCharsets.UTF_8 );
+            exchange.getResponseHeaders().add( "Set-Cookie", "JSESSIONID=session1; Path=/" );
+            exchange.sendResponseHeaders(
+                exchange.getRequestHeaders().containsKey( "Authorization" ) ? 200 : 401, body.length );
+
+            try ( OutputStream out = exchange.getResponseBody() )
+            {
+                out.write( body );
+            }
+        } );
+        echo.start();
+
+        try
+        {
+            RestApiActions actions = new RestApiActions( "/me" )
+                .setBaseUri( "http://localhost:" + echo.getAddress().getPort() )
+                .setTransport( TRANSPORT );
+            VirtualUser user = new VirtualUser( "admin", "district" );
+
+            assertEquals( 401, actions.get().statusCode() );
+            assertEquals( "null", user.callAs( () -> actions.get().getAsString() ) );
+            assertEquals( "JSESSIONID=session1", user.callAs( () -> actions.get().getAsString() ) );
+            assertTrue( user.hasSession() );
+            assertEquals( 2, user.getRequestCount() );
+        }
+        finally
+        {
+            echo.stop( 0 );
+        }
+    }
+
+    @Test
+    public void shouldReuseSessionOfGlobalAuthentication()
+        throws IOException
+    {
+        HttpServer echo = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+        echo.createContext( "/", exchange -> {
+            String cookie = exchange.getRequestHeaders().getFirst( "Cookie" );
+            byte[] body = String.valueOf( cookie ).getBytes( StandardCharsets.UTF_8 );
+
+            if ( cookie == null )
+            {
+                exchange.getResponseHeaders().add( "Set-Cookie", "JSESSIONID=session2; Path=/; HttpOnly" );
+            }
+
+            exchange.sendResponseHeaders( 200, body.length );
+
+            try ( OutputStream out = exchange.getResponseBody() )
+            {
+                out.write( body );
+            }
+        } );
+        echo.start();
+        RestAssured.authentication = RestAssured.preemptive().basic( "admin", "district" );
+
+        try
+        {
+            SessionCache sessionCache = new SessionCache();
+            RestApiActions actions = new RestApiActions( "/me" )
+                .setBaseUri( "http://localhost:" + echo.getAddress().getPort() )
+                .setTransport( new UrlConnectionTransport( sessionCache ) );
+
+            assertEquals( "null", actions.get().getAsString() );
+            assertEquals( "JSESSIONID=session2", actions.get().getAsString() );
+            assertEquals( "session2", sessionCache.get( "admin", "district" ).getCookieValue() );
+        }
+        finally
+        {
+            RestAssured.authentication = RestAssured.DEFAULT_AUTH;
+            echo.stop( 0 );
+        }
+    }
+
+    @Test
+    public void shouldEncodeQuery()
+        throws IOException
+    {
+        HttpServer echo = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+        echo.createContext( "/", exchange -> {
+            byte[] body = exchange.getRequestURI().getRawQuery().getBytes( StandardCharsets.UTF_8 );
+            exchange.sendResponseHeaders( 200, body.length );
+
+            try ( OutputStream out = exchange.getResponseBody() )
+            {
+                out.write( body );
+            }
+        } );
+        echo.start();
+
+        try
+        {
+            RestApiActions actions = new RestApiActions( "/dataElements" )
+                .setBaseUri( "http://localhost:" + echo.getAddress().getPort() )
+                .setTransport( TRANSPORT );
+
+            assertEquals( "filter=name:like:foo%20bar&filter=id:in:%5Ba%7Cb%5D&rootJunction=100%25%C3%A6",
+                actions.get( "?filter=name:like:foo bar&filter=id:in:[a|b]&rootJunction=100%\u00e6" ).getAsString() );
+            assertEquals( "filter=id%3Ain%3A%5Ba%7Cb%5D&name=x%2By+%C3%A6",
+                actions.get( new QueryParamsBuilder().add( "filter", "id:in:[a|b]" ).add( "name", "x+y \u00e6" )
+                    .buildEncoded() ).getAsString() );
+        }
+        finally
+        {
+            echo.stop( 0 );
+        }
+    }
+
+    @Test
+    public void shouldRoundTripQueryParams()
+        throws IOException
+    {
+        HttpServer echo = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+        echo.createContext( "/", exchange -> {
+            StringBuilder params = new StringBuilder();
+
+            for ( String param : exchange.getRequestURI().getRawQuery().split( "&" ) )
+            {
+                String[] pair = param.split( "=", 2 );
+                params.append( URLDecoder.decode( pair[0], "UTF-8" ) ).append( '=' )
+                    .append( URLDecoder.decode( pair[1], "UTF-8" ) ).append( '\n' );
+            }
+
+            byte[] body = params.toString().getBytes( StandardCharsets.UTF_8 );
+            exchange.getResponseHeaders().add( "Content-Type", "text/plain; charset=UTF-8" );
+            exchange.sendResponseHeaders( 200, body.length );
+
+            try ( OutputStream out = exchange.getResponseBody() )
+            {
+                out.write( body );
+            }
+        } );
+        echo.start();
+
+        try
+        {
+            QueryParamsBuilder params = new QueryParamsBuilder()
+                .add( "filter", "name:like:a&b c" )
+                .add( "filter", "code:eq:100%" )
+                .add( "filter", "code:eq:%41+#1" )
+                .add( "filter", "id:in:[a|b]" )
+                .add( "a&b", "\u00e6\u00f8\u00e5" );
+            String expected = "filter=name:like:a&b c\nfilter=code:eq:100%\nfilter=code:eq:%41+#1\n"
+                + "filter=id:in:[a|b]\na&b=\u00e6\u00f8\u00e5\n";
+            String baseUri = "http://localhost:" + echo.getAddress().getPort();
+
+            for ( HttpTransport transport : new HttpTransport[] { null, TRANSPORT } )
+            {
+                RestApiActions actions = new RestApiActions( "/dataElements" ).setBaseUri( baseUri )
+                    .setTransport( transport );
+
+                assertEquals( expected, actions.get( "", params ).getAsString() );
+                assertEquals( expected, actions.get( params.buildEncoded() ).getAsString() );
+                assertEquals( expected + "page=1\n",
+                    actions.get( params.template( "page" ).build( "1" ) ).getAsString() );
+            }
+        }
+        finally
+        {
+            echo.stop( 0 );
+        }
+    }
+
+    @Test
+    public void shouldKeepBodiesAsBytes()
+        throws IOException
+    {
+        byte[] binary = new byte[256];
+
+        for ( int i = 0; i < binary.length; i++ )
+        {
+            binary[i] = (byte) i;
+        }
+
+        HttpServer echo = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+        echo.createContext( "/", exchange -> {
+            String contentType = exchange.getRequestHeaders().getFirst( "Content-Type" );
+            byte[] body = "POST".equals( exchange.getRequestMethod() )
+                ? (contentType + "\n" + new String( readAll( exchange.getRequestBody() ), StandardCharsets.ISO_8859_1 ))
+                    .getBytes( StandardCharsets.UTF_8 )
+                : binary;
+            exchange.getResponseHeaders().add( "Content-Type",
+                "POST".equals( exchange.getRequestMethod() ) ? "text/plain; charset=UTF-8" : "application/gzip" );
+            exchange.sendResponseHeaders( 200, body.length );
+
+            try ( OutputStream out = exchange.getResponseBody() )
+            {
+                out.write( body );
+            }
+        } );
+        echo.start();
+
+        try
+        {
+            String uri = "http://localhost:" + echo.getAddress().getPort() + "/api/files";
+
+            assertArrayEquals( binary, TRANSPORT.send( uri, new TransportRequest( "GET", "" ) ).asByteArray() );
+            assertEquals( "text/plain; charset=ISO-8859-1\n\u00e6",
+                TRANSPORT.send( uri, new TransportRequest( "POST", "" ).setBody( "\u00e6" ) ).asString() );
+        }
+        finally
+        {
+            echo.stop( 0 );
+        }
+    }
+
+    private static byte[] readAll( InputStream in )
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+
+        while ( (read = in.read( buffer )) != -1 )
+        {
+            out.write( buffer, 0, read );
+        }
+
+        return out.toByteArray();
+    }
+}
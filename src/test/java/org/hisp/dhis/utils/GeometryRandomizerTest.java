@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.utils;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GeometryRandomizerTest
+{
+    private final GeometryRandomizer randomizer = new GeometryRandomizer( new Random( 1L ) );
+
+    @Test
+    public void shouldGeneratePointsInsideBoundingBox()
+    {
+        Envelope bbox = new Envelope( 10.0, 11.0, 59.0, 60.0 );
+
+        for ( int i = 0; i < 1000; i++ )
+        {
+            Point point = randomizer.randomPoint( bbox );
+
+            assertTrue( bbox.contains( point.getCoordinate() ) );
+        }
+    }
+
+    @Test
+    public void shouldGenerateValidPolygonInsideBoundingBox()
+    {
+        Envelope bbox = new Envelope( -13.3, -10.2, 6.9, 10.0 );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            Polygon polygon = randomizer.randomPolygon( bbox, 12 );
+
+            assertTrue( polygon.isValid() );
+            assertEquals( 13, polygon.getNumPoints() );
+            assertTrue( bbox.contains( polygon.getEnvelopeInternal() ) );
+        }
+    }
+
+    @Test
+    public void shouldGeneratePointsInsidePolygon()
+    {
+        Polygon polygon = randomizer.randomPolygon( new Envelope( 0, 1, 0, 1 ), 8 );
+        GeometryRandomizer.PolygonSampler sampler = randomizer.sampler( polygon );
+
+        for ( int i = 0; i < 1000; i++ )
+        {
+            assertTrue( polygon.contains( sampler.randomPoint() ) );
+        }
+    }
+
+    @Test
+    public void shouldWriteGeoJson()
+    {
+        Point point = GeometryRandomizer.geometryFactory()
+            .createPoint( new com.vividsolutions.jts.geom.Coordinate( 10.5, 59.9 ) );
+
+        assertEquals( "{\"type\":\"Point\",\"coordinates\":[10.5,59.9]}", GeoJsonWriter.toJson( point ) );
+
+        Polygon polygon = randomizer.randomPolygon( new Envelope( 0, 1, 0, 1 ), 5 );
+        JsonObject streamed = new JsonParser().parse( GeoJsonWriter.toJson( polygon ) ).getAsJsonObject();
+
+        assertEquals( GeoJsonWriter.toJsonObject( polygon ), streamed );
+        assertEquals( "Polygon", streamed.get( "type" ).getAsString() );
+        assertEquals( 6, streamed.getAsJsonArray( "coordinates" ).get( 0 ).getAsJsonArray().size() );
+    }
+}
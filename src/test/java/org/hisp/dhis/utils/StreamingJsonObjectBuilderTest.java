@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2004-2022, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.utils;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StreamingJsonObjectBuilderTest
+{
+    @Test
+    public void shouldWriteSameJsonAsTreeBuilder()
+    {
+        JsonObject event = new JsonObjectBuilder()
+            .addProperty( "event", "eventUid001" )
+            .addProperty( "status", "ACTIVE" )
+            .build();
+
+        JsonObject expected = new JsonObjectBuilder()
+            .addProperty( "trackedEntity", "teiUid00001" )
+            .addObject( "attributes", new JsonObjectBuilder().addProperty( "name", "value <&>" ) )
+            .addArray( "events", event, event )
+            .wrapIntoArray( "trackedEntities" );
+
+        StringWriter writer = new StringWriter();
+
+        new StreamingJsonObjectBuilder( writer )
+            .wrapIntoArray( "trackedEntities" )
+            .addProperty( "trackedEntity", "teiUid00001" )
+            .addObject( "attributes", attributes -> attributes.addProperty( "name", "value <&>" ) )
+            .addArray( "events", 2, ( builder, i ) -> builder
+                .addProperty( "event", "eventUid001" )
+                .addProperty( "status", "ACTIVE" ) )
+            .build();
+
+        assertEquals( expected.toString(), writer.toString() );
+    }
+
+    @Test
+    public void shouldStreamIntoOutputStream()
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        new StreamingJsonObjectBuilder( outputStream )
+            .addProperty( "name", "Ngelehun CHC" )
+            .addProperty( "level", 4 )
+            .addProperty( "open", true )
+            .addPoint( "geometry", -11.4197, 8.1039 )
+            .build();
+
+        JsonObject written = new JsonParser().parse( new String( outputStream.toByteArray(), StandardCharsets.UTF_8 ) )
+            .getAsJsonObject();
+
+        assertEquals( "Ngelehun CHC", written.get( "name" ).getAsString() );
+        assertEquals( 4, written.get( "level" ).getAsInt() );
+        assertEquals( "Point", written.getAsJsonObject( "geometry" ).get( "type" ).getAsString() );
+    }
+
+    @Test
+    public void shouldNotWrapAfterPropertiesAreWritten()
+    {
+        StreamingJsonObjectBuilder builder = new StreamingJsonObjectBuilder( new StringWriter() )
+            .addProperty( "key", "value" );
+
+        assertThrows( IllegalStateException.class, () -> builder.wrapIntoArray( "array" ) );
+    }
+}